@@ -0,0 +1,11 @@
+/**
+ * 等待队列已满时的准入策略
+ */
+public enum AdmissionPolicy {
+    // 立即拒绝
+    REJECT,
+    // 等待空位，超过阻塞时限后拒绝（适用于并发模式，由其他线程运行周期腾出空位）
+    BLOCK,
+    // 发放回场票进入虚拟队列，实体队列有空位时按票号顺序自动转入
+    VIRTUAL_QUEUE
+}
@@ -4,6 +4,9 @@ import java.util.Scanner;
  * 主类，包含程序入口和各部分功能演示方法
  */
 public class AssignmentTwo {
+    // 演示用控制台监听器，输出各操作的中文提示
+    private final RideEventListener console = new ConsoleRideListener();
+
     public static void main(String[] args) {
         AssignmentTwo demo = new AssignmentTwo();
         Scanner scanner = new Scanner(System.in);
@@ -65,6 +68,7 @@ public class AssignmentTwo {
         Employee operator = new Employee("张三", 30, "13800138001", "EMP001", "过山车操作员");
         // 创建游乐设施
         Ride rollerCoaster = new Ride("云霄飞车", "刺激类", operator, 2);
+        rollerCoaster.setEventListener(console);
 
         // 添加5名游客到队列
         System.out.println("\n--- 添加5名游客到队列 ---");
@@ -96,6 +100,7 @@ public class AssignmentTwo {
         System.out.println("\n===== 演示Part4A：历史记录管理 =====");
         Employee operator = new Employee("王五", 28, "13800138002", "EMP003", "水上设施操作员");
         Ride thunderstorm = new Ride("雷霆风暴", "水上类", operator, 4);
+        thunderstorm.setEventListener(console);
 
         System.out.println("\n--- 添加5名游客到历史记录 ---");
         Visitor v1 = new Visitor("Tom", 27, "13700137001", "VIS006", true);
@@ -130,6 +135,7 @@ public class AssignmentTwo {
         System.out.println("\n===== 演示Part4B：历史记录排序 =====");
         Employee operator = new Employee("赵六", 35, "13800138003", "EMP004", "观光设施操作员");
         Ride ferrisWheel = new Ride("摩天轮", "观光类", operator, 8);
+        ferrisWheel.setEventListener(console);
 
         System.out.println("\n--- 添加5名游客（年龄和姓名无序） ---");
         ferrisWheel.addVisitorToHistory(new Visitor("Bob", 35, "13600136001", "VIS012", false));
@@ -162,6 +168,7 @@ public class AssignmentTwo {
         Employee operator = new Employee("李四", 35, "13500135001", "EMP002", "旋转木马操作员");
         // 创建游乐设施（单周期最大载客量3人）
         Ride carousel = new Ride("旋转木马", "亲子类", operator, 3);
+        carousel.setEventListener(console);
 
         System.out.println("\n--- 添加10名游客到队列 ---");
         // 添加10名游客到队列
@@ -200,6 +207,7 @@ public class AssignmentTwo {
         System.out.println("\n===== 演示Part6：导出历史记录到文件 =====");
         Employee operator = new Employee("孙七", 32, "13800138004", "EMP005", "水上设施操作员");
         Ride logFlume = new Ride("激流勇进", "水上类", operator, 6);
+        logFlume.setEventListener(console);
 
         System.out.println("\n--- 添加5名游客到历史记录 ---");
         // 添加5名游客到历史记录
@@ -228,6 +236,7 @@ public class AssignmentTwo {
         System.out.println("\n===== 演示Part7：从文件导入历史记录 =====");
         Employee operator = new Employee("周八", 29, "13800138005", "EMP006", "测试设施操作员");
         Ride importRide = new Ride("导入测试设施", "测试类", operator, 5);
+        importRide.setEventListener(console);
 
         System.out.println("\n--- 导入前历史记录 ---");
         importRide.printRideHistory();
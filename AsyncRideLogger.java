@@ -0,0 +1,237 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 异步批量结构化日志监听器
+ * 调用线程只把事件放入有界队列（队列满时丢弃并计数，不阻塞Ride），
+ * 后台线程批量取出事件，每行写一条JSON并在每批结束时flush。
+ * 入队在读锁内检查closed，关闭在写锁内设置closed：关闭之后不会再有事件进入队列，
+ * 关闭前入队的事件都会写出；输出失败时未写出的事件计入dropped
+ */
+public class AsyncRideLogger implements RideEventListener, AutoCloseable {
+    private static final int BATCH_SIZE = 1024;
+
+    private final BlockingQueue<Event> events;
+    private final Writer out;
+    private final Thread worker;
+    private final AtomicLong dropped = new AtomicLong();
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+
+    public AsyncRideLogger(Writer out, int capacity) {
+        this.out = out;
+        this.events = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.worker = new Thread(this::drainLoop, "ride-logger");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    // 队列已满、已关闭或输出失败而没有写出的事件数
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public void visitorQueued(Ride ride, Visitor visitor) {
+        publish(new Event("visitorQueued", ride, visitor, 0, 0, null));
+    }
+
+    @Override
+    public void visitorRejected(Ride ride, Visitor visitor) {
+        publish(new Event("visitorRejected", ride, visitor, 0, 0, null));
+    }
+
+    @Override
+    public void returnTicketIssued(Ride ride, ReturnTicket ticket) {
+        publish(new Event("returnTicketIssued", ride, ticket.getVisitor(),
+                ticket.getEstimatedReturnCycle(), ticket.getTicketNumber(), null));
+    }
+
+    @Override
+    public void visitorRemovedFromQueue(Ride ride, Visitor visitor) {
+        publish(new Event("visitorRemovedFromQueue", ride, visitor, 0, 0, null));
+    }
+
+    @Override
+    public void visitorMovedToFastPass(Ride ride, Visitor visitor) {
+        publish(new Event("visitorMovedToFastPass", ride, visitor, 0, 0, null));
+    }
+
+    @Override
+    public void visitorAddedToHistory(Ride ride, Visitor visitor) {
+        publish(new Event("visitorAddedToHistory", ride, visitor, 0, 0, null));
+    }
+
+    @Override
+    public void historyChecked(Ride ride, Visitor visitor, boolean found) {
+        publish(new Event("historyChecked", ride, visitor, 0, found ? 1 : 0, null));
+    }
+
+    @Override
+    public void visitorsCounted(Ride ride, int count) {
+        publish(new Event("visitorsCounted", ride, null, 0, count, null));
+    }
+
+    @Override
+    public void historySorted(Ride ride) {
+        publish(new Event("historySorted", ride, null, 0, 0, null));
+    }
+
+    @Override
+    public void cycleStarted(Ride ride, int cycle) {
+        publish(new Event("cycleStarted", ride, null, cycle, 0, null));
+    }
+
+    @Override
+    public void visitorBoarded(Ride ride, Visitor visitor, int cycle) {
+        publish(new Event("visitorBoarded", ride, visitor, cycle, 0, null));
+    }
+
+    @Override
+    public void cycleCompleted(Ride ride, int cycle, int riders) {
+        publish(new Event("cycleCompleted", ride, null, cycle, riders, null));
+    }
+
+    @Override
+    public void historyExported(Ride ride, String filePath, String kind, long count) {
+        publish(new Event("historyExported", ride, null, 0, count, filePath));
+    }
+
+    @Override
+    public void historyImported(Ride ride, String source, ImportStats stats) {
+        publish(new Event("historyImported", ride, null, 0, stats.getRows(), source));
+    }
+
+    @Override
+    public void operationFailed(Ride ride, RideFailure failure, String detail) {
+        publish(new Event("operationFailed", ride, null, 0, 0, failure.name(), detail));
+    }
+
+    private void publish(Event event) {
+        closeLock.readLock().lock();
+        try {
+            if (closed || !events.offer(event)) {
+                dropped.incrementAndGet();
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    private void markClosed() {
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+    }
+
+    private void drainLoop() {
+        List<Event> batch = new ArrayList<>(BATCH_SIZE);
+        StringBuilder line = new StringBuilder(256);
+        try {
+            while (!closed || !events.isEmpty()) {
+                Event first = events.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                events.drainTo(batch, BATCH_SIZE - 1);
+                for (Event event : batch) {
+                    line.setLength(0);
+                    event.appendJson(line);
+                    out.write(line.append('\n').toString());
+                }
+                out.flush();
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // 输出失败后停止记录，后续事件计入dropped
+        } finally {
+            markClosed();
+            dropped.addAndGet(batch.size() + events.size()); // 只有异常退出时才有剩余
+            events.clear();
+        }
+    }
+
+    // 等待已入队的事件写完后关闭输出
+    @Override
+    public void close() throws IOException {
+        markClosed();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.close();
+    }
+
+    // 结构化事件：type + 设施名称 + 游客ID + 周期号 + 数量 + 失败原因 + 附加信息
+    private static class Event {
+        private final long timestamp = System.currentTimeMillis();
+        private final String type;
+        private final String rideName;
+        private final String visitorId;
+        private final int cycle;
+        private final long count;
+        private final String failure;
+        private final String detail;
+
+        Event(String type, Ride ride, Visitor visitor, int cycle, long count, String detail) {
+            this(type, ride, visitor, cycle, count, null, detail);
+        }
+
+        Event(String type, Ride ride, Visitor visitor, int cycle, long count, String failure, String detail) {
+            this.type = type;
+            this.rideName = ride.getRideName();
+            this.visitorId = visitor == null ? null : visitor.getVisitorId();
+            this.cycle = cycle;
+            this.count = count;
+            this.failure = failure;
+            this.detail = detail;
+        }
+
+        void appendJson(StringBuilder sb) {
+            sb.append("{\"ts\":").append(timestamp)
+                    .append(",\"type\":\"").append(type).append('"');
+            appendField(sb, "ride", rideName);
+            appendField(sb, "visitorId", visitorId);
+            if (cycle > 0) {
+                sb.append(",\"cycle\":").append(cycle);
+            }
+            sb.append(",\"count\":").append(count);
+            appendField(sb, "failure", failure);
+            appendField(sb, "detail", detail);
+            sb.append('}');
+        }
+
+        private static void appendField(StringBuilder sb, String name, String value) {
+            if (value == null) {
+                return;
+            }
+            sb.append(",\"").append(name).append("\":\"");
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    sb.append('\\').append(c);
+                } else if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+    }
+}
@@ -0,0 +1,249 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 可重复运行的Ride基准测试套件，结果输出为JSON，便于在不同版本之间diff
+ * 覆盖：addVisitorToQueue、runOneCycle、checkVisitorFromHistory、sortRideHistory、
+ * exportRideHistory（以及流式导出）、importRideHistory（以及流式/二进制导入）
+ *
+ * 用法：java BenchmarkSuite [--profile quick|standard|full] [--sizes 1000,100000]
+ *                          [--warmup 2] [--iterations 5] [--json bench-results.json] [--only 名称1,名称2]
+ * 规模配置（--sizes优先）：
+ *   quick     1K，用于快速检查
+ *   standard  1K、100K（默认）
+ *   full      1K、100K、10M，需要较大的堆，例如 java -Xmx8g BenchmarkSuite --profile full
+ * 同样的场景也有JMH版本（jmh/ridebench，运行方式见pom.xml）
+ */
+public class BenchmarkSuite {
+    private static final PrintStream CONSOLE = System.out;
+    private static final int QUERIES = 100_000;
+
+    private static final Map<String, int[]> PROFILES = Map.of(
+            "quick", new int[]{1_000},
+            "standard", new int[]{1_000, 100_000},
+            "full", new int[]{1_000, 100_000, 10_000_000});
+
+    private final int warmup;
+    private final int iterations;
+    private final Set<String> only;
+    private final List<Result> results = new ArrayList<>();
+    private final Employee operator = new Employee("基准", 30, "00000000000", "EMP-BENCH", "基准测试");
+
+    public BenchmarkSuite(int warmup, int iterations, Set<String> only) {
+        this.warmup = warmup;
+        this.iterations = iterations;
+        this.only = only;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = PROFILES.get("standard");
+        int[] explicitSizes = null;
+        int warmup = 2;
+        int iterations = 5;
+        String json = "bench-results.json";
+        Set<String> only = new HashSet<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--profile":
+                    sizes = PROFILES.get(args[i + 1]);
+                    if (sizes == null) {
+                        throw new IllegalArgumentException("未知规模配置：" + args[i + 1] + "，可选quick、standard、full");
+                    }
+                    break;
+                case "--sizes":
+                    explicitSizes = Arrays.stream(args[i + 1].split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--json":
+                    json = args[i + 1];
+                    break;
+                case "--only":
+                    only.addAll(Arrays.asList(args[i + 1].split(",")));
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知参数：" + args[i]);
+            }
+        }
+
+        if (explicitSizes != null) {
+            sizes = explicitSizes;
+        }
+
+        BenchmarkSuite suite = new BenchmarkSuite(warmup, iterations, only);
+        for (int size : sizes) {
+            suite.runAll(size);
+        }
+        Files.write(Paths.get(json), suite.toJson().getBytes(StandardCharsets.UTF_8));
+        CONSOLE.println("结果已写入：" + json);
+    }
+
+    private void runAll(int size) throws IOException {
+        Visitor[] visitors = new Visitor[size];
+        for (int i = 0; i < size; i++) {
+            visitors[i] = RideBenchmark.visitor(i);
+        }
+
+        measure("addVisitorToQueue", size, size, this::newRide, ride -> {
+            for (Visitor visitor : visitors) {
+                ride.addVisitorToQueue(visitor);
+            }
+        });
+
+        measure("runOneCycle", size, (size + 31) / 32, () -> {
+            Ride ride = newRide();
+            for (Visitor visitor : visitors) {
+                ride.addVisitorToQueue(visitor);
+            }
+            return ride;
+        }, ride -> {
+            while (ride.getQueueSize() > 0) {
+                ride.runOneCycle();
+            }
+        });
+
+        Visitor[] probes = new Visitor[QUERIES];
+        Random random = new Random(42);
+        for (int i = 0; i < QUERIES; i++) {
+            probes[i] = RideBenchmark.visitor(random.nextInt(size * 2)); // 约一半不在历史记录中
+        }
+        Ride history = withHistory(visitors);
+        measure("checkVisitorFromHistory", size, QUERIES, () -> history, ride -> {
+            for (Visitor probe : probes) {
+                ride.checkVisitorFromHistory(probe);
+            }
+        });
+
+        List<Visitor> shuffled = new ArrayList<>(Arrays.asList(visitors));
+        Collections.shuffle(shuffled, new Random(42));
+        measure("sortRideHistory", size, size, () -> withHistory(shuffled.toArray(new Visitor[0])),
+                ride -> ride.sortRideHistory(new VisitorComparator()));
+
+        Path csv = Files.createTempFile("ride-bench", ".csv");
+        Path bin = Files.createTempFile("ride-bench", ".rhb");
+        try {
+            measure("exportRideHistory", size, size, () -> history,
+                    ride -> ride.exportRideHistory(csv.toString()));
+            measure("exportRideHistoryStreaming", size, size, () -> history,
+                    ride -> ride.exportRideHistoryStreaming(csv.toString(), false));
+            RideBenchmark.silently(() -> {
+                history.exportRideHistoryBinary(bin.toString());
+                return null;
+            });
+            measure("importRideHistory", size, size, this::newRide,
+                    ride -> ride.importRideHistory(csv.toString()));
+            measure("importRideHistoryStreaming", size, size, this::newRide,
+                    ride -> ride.importRideHistoryStreaming(csv.toString()));
+            measure("importRideHistoryBinary", size, size, this::newRide,
+                    ride -> ride.importRideHistoryBinary(bin.toString()));
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(bin);
+        }
+    }
+
+    private Ride newRide() {
+        return new Ride("基准设施", "基准类", operator, 32);
+    }
+
+    private Ride withHistory(Visitor[] visitors) {
+        Ride ride = newRide();
+        RideBenchmark.silently(() -> {
+            for (Visitor visitor : visitors) {
+                ride.addVisitorToHistory(visitor);
+            }
+            return null;
+        });
+        return ride;
+    }
+
+    /**
+     * 运行warmup次预热和iterations次测量；setup在计时之外执行，每次迭代都重新准备状态
+     */
+    private void measure(String name, int size, long opsPerIteration,
+                         Supplier<Ride> setup, Consumer<Ride> body) {
+        if (!only.isEmpty() && !only.contains(name)) {
+            return;
+        }
+        double[] nsPerOp = new double[iterations];
+        for (int i = 0; i < warmup + iterations; i++) {
+            Ride ride = RideBenchmark.silently(setup);
+            System.gc();
+            long elapsed = RideBenchmark.silently(() -> {
+                long begin = System.nanoTime();
+                body.accept(ride);
+                return System.nanoTime() - begin;
+            });
+            if (i >= warmup) {
+                nsPerOp[i - warmup] = (double) elapsed / opsPerIteration;
+            }
+        }
+        Result result = new Result(name, size, opsPerIteration, nsPerOp);
+        results.add(result);
+        CONSOLE.printf("%-28s n=%,-11d %,14.1f ns/op（±%.1f）%n", name, size, result.mean(), result.stdDev());
+    }
+
+    private String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"timestamp\": \"").append(Instant.now()).append("\",\n");
+        json.append("  \"jvm\": \"").append(System.getProperty("java.vm.name")).append(' ')
+                .append(System.getProperty("java.version")).append("\",\n");
+        json.append("  \"processors\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n");
+        json.append("  \"warmupIterations\": ").append(warmup).append(",\n");
+        json.append("  \"measurementIterations\": ").append(iterations).append(",\n");
+        json.append("  \"results\": [");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"benchmark\": \"").append(r.name)
+                    .append("\", \"size\": ").append(r.size)
+                    .append(", \"opsPerIteration\": ").append(r.opsPerIteration)
+                    .append(", \"nsPerOp\": ").append(String.format(Locale.ROOT, "%.3f", r.mean()))
+                    .append(", \"nsPerOpMin\": ").append(String.format(Locale.ROOT, "%.3f", r.min()))
+                    .append(", \"nsPerOpStdDev\": ").append(String.format(Locale.ROOT, "%.3f", r.stdDev()))
+                    .append('}');
+        }
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+
+    private static class Result {
+        private final String name;
+        private final int size;
+        private final long opsPerIteration;
+        private final double[] nsPerOp;
+
+        Result(String name, int size, long opsPerIteration, double[] nsPerOp) {
+            this.name = name;
+            this.size = size;
+            this.opsPerIteration = opsPerIteration;
+            this.nsPerOp = nsPerOp;
+        }
+
+        double mean() {
+            return Arrays.stream(nsPerOp).average().orElse(0);
+        }
+
+        double min() {
+            return Arrays.stream(nsPerOp).min().orElse(0);
+        }
+
+        double stdDev() {
+            double mean = mean();
+            return Math.sqrt(Arrays.stream(nsPerOp).map(v -> (v - mean) * (v - mean)).average().orElse(0));
+        }
+    }
+}
@@ -0,0 +1,252 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 紧凑的二进制历史记录格式（列式存储）
+ * 文件结构：
+ *   魔数"RHB1" | 版本号(1字节) | 行数(varint)
+ *   字典：条目数(varint)，每条为 长度+1(varint，0表示null) + UTF-8字节
+ *   年龄列：每行一个zigzag varint
+ *   快速通行列：按位压缩，每字节8行
+ *   姓名/电话/游客ID列：每行一个字典编号(varint)
+ *   CRC32校验和(4字节，覆盖前面所有内容)
+ * 与CSV格式可以无损互转；字段中含逗号或为null时也能原样保存
+ */
+public class BinaryHistoryCodec {
+    private static final byte[] MAGIC = {'R', 'H', 'B', '1'};
+    private static final int VERSION = 1;
+
+    // 按给定顺序写出游客，返回写出的行数
+    public static int write(Iterable<Visitor> visitors, Path path) throws IOException {
+        StringDictionary dictionary = new StringDictionary();
+        List<Visitor> rows = new ArrayList<>();
+        for (Visitor visitor : visitors) {
+            rows.add(visitor);
+        }
+        int n = rows.size();
+        int[] names = new int[n];
+        int[] phones = new int[n];
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            Visitor visitor = rows.get(i);
+            names[i] = dictionary.encode(visitor.getName());
+            phones[i] = dictionary.encode(visitor.getPhoneNumber());
+            ids[i] = dictionary.encode(visitor.getVisitorId());
+        }
+
+        VarintOutput out = new VarintOutput();
+        out.writeBytes(MAGIC);
+        out.writeByte(VERSION);
+        out.writeVarint(n);
+        out.writeVarint(dictionary.size());
+        for (int code = 0; code < dictionary.size(); code++) {
+            String value = dictionary.decode(code);
+            if (value == null) {
+                out.writeVarint(0);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeVarint(bytes.length + 1);
+                out.writeBytes(bytes);
+            }
+        }
+        for (Visitor visitor : rows) {
+            int age = visitor.getAge();
+            out.writeVarint((age << 1) ^ (age >> 31)); // zigzag，负数也能紧凑编码
+        }
+        int bits = 0;
+        for (int i = 0; i < n; i++) {
+            if (rows.get(i).isHasFastPass()) {
+                bits |= 1 << (i & 7);
+            }
+            if ((i & 7) == 7 || i == n - 1) {
+                out.writeByte(bits);
+                bits = 0;
+            }
+        }
+        for (int code : names) {
+            out.writeVarint(code);
+        }
+        for (int code : phones) {
+            out.writeVarint(code);
+        }
+        for (int code : ids) {
+            out.writeVarint(code);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(out.buffer(), 0, out.size());
+        out.writeInt((int) crc.getValue());
+
+        try (OutputStream file = Files.newOutputStream(path)) {
+            file.write(out.buffer(), 0, out.size());
+        }
+        return n;
+    }
+
+    // 读取并校验文件，按原顺序把游客交给visitors
+    public static void read(Path path, List<Visitor> visitors, ImportStats stats) throws IOException {
+        byte[] data = Files.readAllBytes(path);
+        stats.addBytes(data.length);
+        if (data.length < MAGIC.length + 1 + 4) {
+            throw new IOException("文件过短，不是二进制历史记录文件");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                throw new IOException("文件头不匹配，不是二进制历史记录文件");
+            }
+        }
+        if (data[MAGIC.length] != VERSION) {
+            throw new IOException("不支持的二进制格式版本：" + data[MAGIC.length]);
+        }
+        int bodyLength = data.length - 4;
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, bodyLength);
+        int stored = ((data[bodyLength] & 0xFF) << 24) | ((data[bodyLength + 1] & 0xFF) << 16)
+                | ((data[bodyLength + 2] & 0xFF) << 8) | (data[bodyLength + 3] & 0xFF);
+        if (stored != (int) crc.getValue()) {
+            throw new IOException("校验和不匹配，文件已损坏");
+        }
+
+        VarintInput in = new VarintInput(data, MAGIC.length + 1, bodyLength);
+        // 计数先与剩余字节数比较再分配数组：每名游客至少占4字节（年龄和三个字典编号），每个字典项至少1字节
+        int n = in.readCount(4);
+        String[] dictionary = new String[in.readCount(1)];
+        for (int code = 0; code < dictionary.length; code++) {
+            int length = in.readVarint();
+            dictionary[code] = length == 0 ? null : in.readString(length - 1);
+        }
+        int[] ages = new int[n];
+        for (int i = 0; i < n; i++) {
+            int zigzag = in.readVarint();
+            ages[i] = (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+        int fastPassOffset = in.skip((n + 7) / 8);
+        int[] names = new int[n];
+        int[] phones = new int[n];
+        for (int i = 0; i < n; i++) {
+            names[i] = in.readVarint();
+        }
+        for (int i = 0; i < n; i++) {
+            phones[i] = in.readVarint();
+        }
+        for (int i = 0; i < n; i++) {
+            boolean hasFastPass = (data[fastPassOffset + (i >> 3)] & (1 << (i & 7))) != 0;
+            visitors.add(new Visitor(lookup(dictionary, names[i]), ages[i], lookup(dictionary, phones[i]),
+                    lookup(dictionary, in.readVarint()), hasFastPass));
+            stats.recordRow();
+        }
+    }
+
+    private static String lookup(String[] dictionary, int code) throws IOException {
+        if (code < 0 || code >= dictionary.length) {
+            throw new IOException("字典编号越界：" + code);
+        }
+        return dictionary[code];
+    }
+
+    // 写缓冲区（可扩容的字节数组）
+    private static class VarintOutput {
+        private byte[] buf = new byte[1 << 16];
+        private int size;
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[size++] = (byte) b;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, size, bytes.length);
+            size += bytes.length;
+        }
+
+        void writeVarint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buf[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            buf[size++] = (byte) (value >>> 24);
+            buf[size++] = (byte) (value >>> 16);
+            buf[size++] = (byte) (value >>> 8);
+            buf[size++] = (byte) value;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) {
+                byte[] bigger = new byte[Math.max(buf.length * 2, size + extra)];
+                System.arraycopy(buf, 0, bigger, 0, size);
+                buf = bigger;
+            }
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    // 读游标，越界时抛出IOException而不是数组越界
+    private static class VarintInput {
+        private final byte[] data;
+        private final int limit;
+        private int pos;
+
+        VarintInput(byte[] data, int pos, int limit) {
+            this.data = data;
+            this.pos = pos;
+            this.limit = limit;
+        }
+
+        int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                if (pos >= limit) {
+                    throw new IOException("文件内容不完整");
+                }
+                byte b = data[pos++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("varint编码错误");
+        }
+
+        // 读取元素个数，超过剩余字节数能容纳的数量时视为文件损坏
+        int readCount(int minBytesEach) throws IOException {
+            int count = readVarint();
+            if (count < 0 || (long) count * minBytesEach > limit - pos) {
+                throw new IOException("记录数与文件长度不符：" + count);
+            }
+            return count;
+        }
+
+        String readString(int length) throws IOException {
+            int start = skip(length);
+            return new String(data, start, length, StandardCharsets.UTF_8);
+        }
+
+        // 跳过length字节，返回跳过前的位置
+        int skip(int length) throws IOException {
+            if (length < 0 || length > limit - pos) {
+                throw new IOException("文件内容不完整");
+            }
+            int start = pos;
+            pos += length;
+            return start;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+import java.util.*;
+
+/**
+ * 列式存储：年龄保存在int[]，快速通行证保存在BitSet，姓名/电话/游客ID经字典编码后保存为int[]编号。
+ * 每条记录约占4个int加1个bit，重复乘坐的游客字符串只保存一份；
+ * get和遍历时才按需创建Visitor对象，因此两次遍历得到的是不同对象（equals仍按visitorId相等）
+ */
+public class ColumnarHistoryStorage implements HistoryStorage {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final StringDictionary names = new StringDictionary();
+    private final StringDictionary phones = new StringDictionary();
+    private final StringDictionary ids = new StringDictionary();
+
+    private int[] ages = new int[INITIAL_CAPACITY];
+    private int[] nameCodes = new int[INITIAL_CAPACITY];
+    private int[] phoneCodes = new int[INITIAL_CAPACITY];
+    private int[] idCodes = new int[INITIAL_CAPACITY];
+    private final BitSet fastPass = new BitSet();
+    private int size;
+
+    @Override
+    public void add(Visitor visitor) {
+        if (size == ages.length) {
+            grow(size + 1);
+        }
+        ages[size] = visitor.getAge();
+        nameCodes[size] = names.encode(visitor.getName());
+        phoneCodes[size] = phones.encode(visitor.getPhoneNumber());
+        idCodes[size] = ids.encode(visitor.getVisitorId());
+        fastPass.set(size, visitor.isHasFastPass());
+        size++;
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        if (capacity > ages.length) {
+            grow(capacity);
+        }
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, ages.length + (ages.length >> 1));
+        ages = Arrays.copyOf(ages, capacity);
+        nameCodes = Arrays.copyOf(nameCodes, capacity);
+        phoneCodes = Arrays.copyOf(phoneCodes, capacity);
+        idCodes = Arrays.copyOf(idCodes, capacity);
+    }
+
+    @Override
+    public Visitor get(int index) {
+        Objects.checkIndex(index, size);
+        return new Visitor(names.decode(nameCodes[index]), ages[index], phones.decode(phoneCodes[index]),
+                ids.decode(idCodes[index]), fastPass.get(index));
+    }
+
+    // 不创建Visitor，直接读取单列
+    public int getAge(int index) {
+        Objects.checkIndex(index, size);
+        return ages[index];
+    }
+
+    public String getVisitorId(int index) {
+        Objects.checkIndex(index, size);
+        return ids.decode(idCodes[index]);
+    }
+
+    public boolean hasFastPass(int index) {
+        Objects.checkIndex(index, size);
+        return fastPass.get(index);
+    }
+
+    // 字典中不同字符串的数量（姓名、电话、游客ID之和）
+    public int distinctStrings() {
+        return names.size() + phones.size() + ids.size();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 排序需要比较完整的游客，先按需创建对象求出新顺序，再按新顺序重排各列
+     */
+    @Override
+    public void sort(Comparator<Visitor> comparator) {
+        Visitor[] visitors = new Visitor[size];
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            visitors[i] = get(i);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> comparator.compare(visitors[a], visitors[b]));
+        int[] sortedAges = new int[ages.length];
+        int[] sortedNames = new int[ages.length];
+        int[] sortedPhones = new int[ages.length];
+        int[] sortedIds = new int[ages.length];
+        BitSet sortedFastPass = new BitSet(size);
+        for (int i = 0; i < size; i++) {
+            int from = order[i];
+            sortedAges[i] = ages[from];
+            sortedNames[i] = nameCodes[from];
+            sortedPhones[i] = phoneCodes[from];
+            sortedIds[i] = idCodes[from];
+            sortedFastPass.set(i, fastPass.get(from));
+        }
+        ages = sortedAges;
+        nameCodes = sortedNames;
+        phoneCodes = sortedPhones;
+        idCodes = sortedIds;
+        fastPass.clear();
+        fastPass.or(sortedFastPass);
+    }
+
+    @Override
+    public Iterator<Visitor> iterator() {
+        return new Iterator<Visitor>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Visitor next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+}
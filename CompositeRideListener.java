@@ -0,0 +1,167 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 组合监听器：把每个事件按顺序转发给多个监听器
+ * 例如同时使用控制台输出和VisitorRideIndex
+ */
+public class CompositeRideListener implements RideEventListener {
+    private final RideEventListener[] listeners;
+
+    private CompositeRideListener(RideEventListener[] listeners) {
+        this.listeners = listeners;
+    }
+
+    // 忽略null和NO_OP；只剩一个时直接返回它，不增加一层转发
+    public static RideEventListener of(RideEventListener... listeners) {
+        List<RideEventListener> active = new ArrayList<>();
+        for (RideEventListener listener : listeners) {
+            if (listener != null && listener != NO_OP) {
+                active.add(listener);
+            }
+        }
+        if (active.isEmpty()) {
+            return NO_OP;
+        }
+        if (active.size() == 1) {
+            return active.get(0);
+        }
+        return new CompositeRideListener(active.toArray(new RideEventListener[0]));
+    }
+
+    // 从组合中去掉某个监听器，返回剩下的监听器
+    public static RideEventListener without(RideEventListener listener, RideEventListener removed) {
+        if (listener == removed) {
+            return NO_OP;
+        }
+        if (!(listener instanceof CompositeRideListener)) {
+            return listener;
+        }
+        List<RideEventListener> remaining = new ArrayList<>();
+        for (RideEventListener child : ((CompositeRideListener) listener).listeners) {
+            if (child != removed) {
+                remaining.add(child);
+            }
+        }
+        return of(remaining.toArray(new RideEventListener[0]));
+    }
+
+    @Override
+    public void visitorQueued(Ride ride, Visitor visitor) {
+        for (RideEventListener listener : listeners) {
+            listener.visitorQueued(ride, visitor);
+        }
+    }
+
+    @Override
+    public void visitorRejected(Ride ride, Visitor visitor) {
+        for (RideEventListener listener : listeners) {
+            listener.visitorRejected(ride, visitor);
+        }
+    }
+
+    @Override
+    public void returnTicketIssued(Ride ride, ReturnTicket ticket) {
+        for (RideEventListener listener : listeners) {
+            listener.returnTicketIssued(ride, ticket);
+        }
+    }
+
+    @Override
+    public void visitorRemovedFromQueue(Ride ride, Visitor visitor) {
+        for (RideEventListener listener : listeners) {
+            listener.visitorRemovedFromQueue(ride, visitor);
+        }
+    }
+
+    @Override
+    public void visitorMovedToFastPass(Ride ride, Visitor visitor) {
+        for (RideEventListener listener : listeners) {
+            listener.visitorMovedToFastPass(ride, visitor);
+        }
+    }
+
+    @Override
+    public void visitorsQueued(Ride ride, List<Visitor> visitors) {
+        for (RideEventListener listener : listeners) {
+            listener.visitorsQueued(ride, visitors);
+        }
+    }
+
+    @Override
+    public void visitorsDrained(Ride ride, List<Visitor> visitors) {
+        for (RideEventListener listener : listeners) {
+            listener.visitorsDrained(ride, visitors);
+        }
+    }
+
+    @Override
+    public void visitorAddedToHistory(Ride ride, Visitor visitor) {
+        for (RideEventListener listener : listeners) {
+            listener.visitorAddedToHistory(ride, visitor);
+        }
+    }
+
+    @Override
+    public void historyChecked(Ride ride, Visitor visitor, boolean found) {
+        for (RideEventListener listener : listeners) {
+            listener.historyChecked(ride, visitor, found);
+        }
+    }
+
+    @Override
+    public void visitorsCounted(Ride ride, int count) {
+        for (RideEventListener listener : listeners) {
+            listener.visitorsCounted(ride, count);
+        }
+    }
+
+    @Override
+    public void historySorted(Ride ride) {
+        for (RideEventListener listener : listeners) {
+            listener.historySorted(ride);
+        }
+    }
+
+    @Override
+    public void cycleStarted(Ride ride, int cycle) {
+        for (RideEventListener listener : listeners) {
+            listener.cycleStarted(ride, cycle);
+        }
+    }
+
+    @Override
+    public void visitorBoarded(Ride ride, Visitor visitor, int cycle) {
+        for (RideEventListener listener : listeners) {
+            listener.visitorBoarded(ride, visitor, cycle);
+        }
+    }
+
+    @Override
+    public void cycleCompleted(Ride ride, int cycle, int riders) {
+        for (RideEventListener listener : listeners) {
+            listener.cycleCompleted(ride, cycle, riders);
+        }
+    }
+
+    @Override
+    public void historyExported(Ride ride, String filePath, String kind, long count) {
+        for (RideEventListener listener : listeners) {
+            listener.historyExported(ride, filePath, kind, count);
+        }
+    }
+
+    @Override
+    public void historyImported(Ride ride, String source, ImportStats stats) {
+        for (RideEventListener listener : listeners) {
+            listener.historyImported(ride, source, stats);
+        }
+    }
+
+    @Override
+    public void operationFailed(Ride ride, RideFailure failure, String detail) {
+        for (RideEventListener listener : listeners) {
+            listener.operationFailed(ride, failure, detail);
+        }
+    }
+}
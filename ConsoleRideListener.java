@@ -0,0 +1,102 @@
+import java.util.List;
+
+/**
+ * 控制台监听器：输出与演示菜单原有文字一致的中文提示
+ */
+public class ConsoleRideListener implements RideEventListener {
+    @Override
+    public void visitorQueued(Ride ride, Visitor visitor) {
+        System.out.println("成功添加游客【" + visitor.getName() + "】到【" + ride.getRideName() + "】的等待队列");
+    }
+
+    @Override
+    public void visitorRejected(Ride ride, Visitor visitor) {
+        System.out.println("错误：【" + ride.getRideName() + "】的等待队列已满（容量：" + ride.getQueueCapacity()
+                + "），游客【" + visitor.getName() + "】未能加入！");
+    }
+
+    @Override
+    public void returnTicketIssued(Ride ride, ReturnTicket ticket) {
+        System.out.println("【" + ride.getRideName() + "】的等待队列已满，已发放" + ticket);
+    }
+
+    @Override
+    public void visitorRemovedFromQueue(Ride ride, Visitor visitor) {
+        System.out.println("成功从【" + ride.getRideName() + "】的等待队列移除游客：" + visitor.getName());
+    }
+
+    @Override
+    public void visitorMovedToFastPass(Ride ride, Visitor visitor) {
+        System.out.println("游客" + visitor.getName() + "已转入【" + ride.getRideName() + "】的快速通道");
+    }
+
+    @Override
+    public void visitorsQueued(Ride ride, List<Visitor> visitors) {
+        System.out.println("成功批量添加" + visitors.size() + "名游客到【" + ride.getRideName() + "】的等待队列");
+    }
+
+    @Override
+    public void visitorsDrained(Ride ride, List<Visitor> visitors) {
+        System.out.println("成功从【" + ride.getRideName() + "】的等待队列批量移除" + visitors.size() + "名游客");
+    }
+
+    @Override
+    public void visitorAddedToHistory(Ride ride, Visitor visitor) {
+        System.out.println("成功添加游客【" + visitor.getName() + "】到【" + ride.getRideName() + "】的历史记录");
+    }
+
+    @Override
+    public void historyChecked(Ride ride, Visitor visitor, boolean found) {
+        if (found) {
+            System.out.println("查询结果：游客【" + visitor.getName() + "】曾乘坐过【" + ride.getRideName() + "】");
+        } else {
+            System.out.println("查询结果：游客【" + visitor.getName() + "】未乘坐过【" + ride.getRideName() + "】");
+        }
+    }
+
+    @Override
+    public void visitorsCounted(Ride ride, int count) {
+        System.out.println("【" + ride.getRideName() + "】的历史乘坐人数：" + count);
+    }
+
+    @Override
+    public void historySorted(Ride ride) {
+        System.out.println("成功对【" + ride.getRideName() + "】的历史记录进行排序");
+    }
+
+    @Override
+    public void cycleStarted(Ride ride, int cycle) {
+        Employee operator = ride.getOperator();
+        System.out.println("\n【" + ride.getRideName() + "】开始运行第" + cycle + "个周期（最大载客量：" + ride.getMaxRider() + "）");
+        System.out.println("操作员：" + operator.getName() + "（" + operator.getPosition() + "）");
+    }
+
+    @Override
+    public void visitorBoarded(Ride ride, Visitor visitor, int cycle) {
+        System.out.println("游客【" + visitor.getName() + "】已上车");
+    }
+
+    @Override
+    public void cycleCompleted(Ride ride, int cycle, int riders) {
+        System.out.println("【" + ride.getRideName() + "】第" + cycle + "个周期运行结束，本次载客：" + riders + "人");
+    }
+
+    @Override
+    public void historyExported(Ride ride, String filePath, String kind, long count) {
+        System.out.println("成功导出【" + ride.getRideName() + "】的历史记录到" + kind + "：" + filePath);
+        System.out.println("共导出 " + count + " 条记录");
+    }
+
+    @Override
+    public void historyImported(Ride ride, String source, ImportStats stats) {
+        System.out.println("成功从文件【" + source + "】导入" + stats.getRows() + "名游客到【" + ride.getRideName() + "】的历史记录");
+        if (stats.getRejected() > 0) {
+            System.out.println("导入统计：" + stats);
+        }
+    }
+
+    @Override
+    public void operationFailed(Ride ride, RideFailure failure, String detail) {
+        System.out.println("错误：" + failure.describe(ride.getRideName(), detail));
+    }
+}
@@ -0,0 +1,205 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * 流式CSV历史记录读取器
+ * 直接在字节缓冲区上切分字段：不做逐行trim、不使用正则split、不创建String[]，
+ * 年龄和快速通行标记直接从字节解析，只有姓名、电话、游客ID会生成String。
+ * 格式与Visitor.toCsvString()一致（姓名,年龄,电话,游客ID,true/false），文件按UTF-8解码。
+ * 非法行只计入ImportStats，不逐行打印
+ */
+public class CsvHistoryReader {
+    private static final int BUFFER_SIZE = 1 << 20; // 1MB读缓冲区，行超长时自动扩容
+    private static final int FIELD_COUNT = 5;
+    private static final long INVALID = Long.MIN_VALUE;
+
+    private final Consumer<Visitor> sink;
+    private final ImportStats stats;
+
+    // 当前行各字段的起止位置（复用，避免每行分配）
+    private final int[] fieldStart = new int[FIELD_COUNT];
+    private final int[] fieldEnd = new int[FIELD_COUNT];
+    private long lineNumber;
+    private boolean afterCarriageReturn; // 上一个行结束符是'\r'，用于把"\r\n"当作一个换行
+
+    public CsvHistoryReader(Consumer<Visitor> sink, ImportStats stats) {
+        this.sink = sink;
+        this.stats = stats;
+    }
+
+    // 读取整个文件，解析出的游客按文件顺序交给sink
+    public void read(Path path) throws IOException {
+        read(path, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * 只解析起始字节位于[start, end)内的行，用于把大文件按字节切分给多个线程：
+     * start不在行首时跳过第一段残行（它属于上一个分片），最后一行即使越过end也会读完。
+     * 这样各分片恰好覆盖每一行一次
+     */
+    public void read(Path path, long start, long end) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            end = Math.min(end, channel.size());
+            if (start >= end) {
+                return;
+            }
+            stats.addBytes(end - start);
+            boolean skipPartialLine = start > 0;
+            if (skipPartialLine) {
+                lineNumber = -1; // 从文件中间开始，行号未知
+            }
+            // 从start-1开始读：若它恰好是换行符，start处就是本分片的第一行
+            long offset = skipPartialLine ? start - 1 : 0;
+            channel.position(offset);
+            scan(channel, skipPartialLine, offset, end);
+        }
+    }
+
+    private void scan(FileChannel channel, boolean skipPartialLine, long bufferOffset, long end) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(buf);
+        int carried = 0; // 上一轮留下的未结束半行长度
+        while (true) {
+            int read = channel.read(buffer);
+            if (read < 0) {
+                break;
+            }
+            int limit = buffer.position();
+            int pos = 0;
+            for (int i = carried; i < limit; i++) {
+                byte b = buf[i];
+                if (b != '\n' && b != '\r') {
+                    continue;
+                }
+                if (skipPartialLine) {
+                    skipPartialLine = false;
+                } else if (b == '\n' && i == pos && afterCarriageReturn) {
+                    b = 0; // "\r\n"中的'\n'，不是新的一行
+                } else {
+                    parseLine(buf, pos, i);
+                }
+                afterCarriageReturn = b == '\r';
+                pos = i + 1;
+                if (bufferOffset + pos >= end) {
+                    return; // 下一行从end之后开始，属于下一个分片
+                }
+            }
+            // 把未结束的半行移到缓冲区开头；缓冲区被一整行占满时扩容
+            int remaining = skipPartialLine ? 0 : limit - pos;
+            if (remaining == buf.length) {
+                byte[] bigger = new byte[buf.length * 2];
+                System.arraycopy(buf, 0, bigger, 0, remaining);
+                buf = bigger;
+                buffer = ByteBuffer.wrap(buf);
+            } else {
+                System.arraycopy(buf, limit - remaining, buf, 0, remaining);
+            }
+            bufferOffset += limit - remaining;
+            buffer.position(remaining);
+            carried = remaining;
+        }
+        if (buffer.position() > 0 && !skipPartialLine) {
+            parseLine(buf, 0, buffer.position());
+        }
+    }
+
+    /**
+     * 解析[start, end)之间的一行。规则与Visitor.fromCsvString一致：
+     * 去掉首尾空白后为空的行跳过；末尾的空字段被忽略；字段数必须为5
+     */
+    private void parseLine(byte[] buf, int start, int end) {
+        if (lineNumber >= 0) {
+            lineNumber++;
+        }
+        while (start < end && (buf[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (buf[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return;
+        }
+
+        int field = 0;
+        int lastNonEmpty = -1;
+        int fieldBegin = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buf[i] == ',') {
+                if (i > fieldBegin) {
+                    lastNonEmpty = field;
+                }
+                if (field < FIELD_COUNT) {
+                    fieldStart[field] = fieldBegin;
+                    fieldEnd[field] = i;
+                } else if (i > fieldBegin) {
+                    stats.recordRejected(lineNumber); // 多出的非空字段
+                    return;
+                }
+                field++;
+                fieldBegin = i + 1;
+            }
+        }
+        if (lastNonEmpty != FIELD_COUNT - 1) {
+            stats.recordRejected(lineNumber);
+            return;
+        }
+
+        long age = parseInt(buf, fieldStart[1], fieldEnd[1]);
+        if (age == INVALID) {
+            stats.recordRejected(lineNumber);
+            return;
+        }
+        boolean hasFastPass = isTrue(buf, fieldStart[4], fieldEnd[4]);
+        sink.accept(new Visitor(
+                string(buf, 0), (int) age, string(buf, 2), string(buf, 3), hasFastPass));
+        stats.recordRow();
+    }
+
+    private String string(byte[] buf, int field) {
+        return new String(buf, fieldStart[field], fieldEnd[field] - fieldStart[field], StandardCharsets.UTF_8);
+    }
+
+    // 与Integer.parseInt相同的规则（可选正负号，检查溢出）；非法时返回INVALID
+    private static long parseInt(byte[] buf, int start, int end) {
+        if (start == end) {
+            return INVALID;
+        }
+        boolean negative = false;
+        int i = start;
+        if (buf[i] == '-' || buf[i] == '+') {
+            negative = buf[i] == '-';
+            i++;
+            if (i == end) {
+                return INVALID;
+            }
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return INVALID;
+            }
+        }
+        value = negative ? -value : value;
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? INVALID : value;
+    }
+
+    // 等价于Boolean.parseBoolean：忽略大小写等于"true"时为true，否则为false
+    private static boolean isTrue(byte[] buf, int start, int end) {
+        return end - start == 4
+                && (buf[start] | 0x20) == 't'
+                && (buf[start + 1] | 0x20) == 'r'
+                && (buf[start + 2] | 0x20) == 'u'
+                && (buf[start + 3] | 0x20) == 'e';
+    }
+}
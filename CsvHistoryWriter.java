@@ -0,0 +1,198 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 流式CSV历史记录写入器
+ * 字段直接按UTF-8编码进可复用的1MB字节数组（逐字节写数组比逐字节写ByteBuffer快得多），
+ * 数组满时整块复制到直接缓冲区并写入FileChannel；不为每行拼接String，年龄直接写数字字节。
+ * 输出与exportRideHistory逐字节一致（Visitor.toCsvString()格式，null写为"null"，
+ * 行尾为System.lineSeparator()，无法编码的孤立代理字符写为'?'）。
+ * gzip为true时输出gzip压缩流（字节数组直接交给Deflater，不经过直接缓冲区）
+ */
+public class CsvHistoryWriter implements AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    private final FileChannel channel;
+    private final OutputStream gzip;
+    private final ByteBuffer direct;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+    private final byte[] digits = new byte[11];
+    private long rows;
+    private long bytes;
+    private boolean closed;
+
+    public CsvHistoryWriter(Path path, boolean gzip) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        if (gzip) {
+            this.gzip = new GZIPOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            this.direct = null;
+        } else {
+            this.gzip = null;
+            this.direct = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * 续写模式：先把文件截断到startPosition（丢弃其后未提交的内容），再从该位置开始追加，不支持gzip
+     */
+    public CsvHistoryWriter(Path path, long startPosition) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() > startPosition) {
+                channel.truncate(startPosition);
+            }
+            channel.position(startPosition);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.gzip = null;
+        this.direct = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    // 写一行：姓名,年龄,电话,游客ID,true/false
+    public void write(Visitor visitor) throws IOException {
+        writeString(visitor.getName());
+        put((byte) ',');
+        writeInt(visitor.getAge());
+        put((byte) ',');
+        writeString(visitor.getPhoneNumber());
+        put((byte) ',');
+        writeString(visitor.getVisitorId());
+        put((byte) ',');
+        putBytes(visitor.isHasFastPass() ? TRUE : FALSE);
+        putBytes(LINE_SEPARATOR);
+        rows++;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    // 写入的字节数（gzip时为压缩前的字节数）
+    public long getBytes() {
+        return bytes + pos;
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            putBytes(NULL);
+            return;
+        }
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            ensure(4);
+            if (c < 0x80) {
+                buf[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buf[pos++] = '?'; // 与String.getBytes(UTF_8)对孤立代理字符的处理一致
+            } else {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        if (value == Integer.MIN_VALUE) {
+            putBytes(Integer.toString(value).getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        int position = digits.length;
+        do {
+            digits[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        int count = digits.length - position;
+        ensure(count);
+        System.arraycopy(digits, position, buf, pos, count);
+        pos += count;
+    }
+
+    private void put(byte b) throws IOException {
+        ensure(1);
+        buf[pos++] = b;
+    }
+
+    private void putBytes(byte[] bytes) throws IOException {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        pos += bytes.length;
+    }
+
+    private void ensure(int count) throws IOException {
+        if (BUFFER_SIZE - pos < count) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        bytes += pos;
+        if (gzip != null) {
+            gzip.write(buf, 0, pos);
+        } else {
+            direct.clear();
+            direct.put(buf, 0, pos);
+            direct.flip();
+            while (direct.hasRemaining()) {
+                channel.write(direct);
+            }
+        }
+        pos = 0;
+    }
+
+    // 把已写的内容写入文件并落盘（gzip模式下只刷新压缩流）
+    public void sync() throws IOException {
+        drain();
+        if (gzip != null) {
+            gzip.flush();
+        } else {
+            channel.force(false);
+        }
+    }
+
+    // 可以重复调用
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            drain();
+            if (gzip != null) {
+                gzip.close();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * 增量导出的检查点（保存在导出文件旁的sidecar文件中）
+ * rows/bytes为已提交的行数和字节数：导出文件中超过bytes的部分是未提交的（崩溃时写了一半），
+ * 下次导出会先截断再续写。epoch在导出文件被从头重写时更换，导入方据此判断自己的进度是否仍然对应这个文件。
+ * 写入时先写临时文件再原子替换，任何时刻读到的都是完整的旧检查点或新检查点。
+ * 导入方的进度（“文件名.imported”）也用同样的格式保存，其中historyId和版本为0
+ */
+public class ExportCheckpoint {
+    private final long rows;
+    private final long bytes;
+    private final int cycle;
+    private final long epoch;
+    private final long historyId;
+    private final long historyVersion;
+
+    public ExportCheckpoint(long rows, long bytes, int cycle, long epoch, long historyId, long historyVersion) {
+        this.rows = rows;
+        this.bytes = bytes;
+        this.cycle = cycle;
+        this.epoch = epoch;
+        this.historyId = historyId;
+        this.historyVersion = historyVersion;
+    }
+
+    // 导出文件对应的检查点文件
+    public static Path sidecarOf(Path exportFile) {
+        return exportFile.resolveSibling(exportFile.getFileName() + ".checkpoint");
+    }
+
+    // 读取检查点；文件不存在或内容不完整时返回null
+    public static ExportCheckpoint read(Path sidecar) {
+        if (!Files.isRegularFile(sidecar)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(sidecar, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+            return new ExportCheckpoint(
+                    Long.parseLong(properties.getProperty("rows")),
+                    Long.parseLong(properties.getProperty("bytes")),
+                    Integer.parseInt(properties.getProperty("cycle")),
+                    Long.parseLong(properties.getProperty("epoch")),
+                    Long.parseLong(properties.getProperty("historyId")),
+                    Long.parseLong(properties.getProperty("historyVersion")));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public void write(Path sidecar) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("rows", Long.toString(rows));
+        properties.setProperty("bytes", Long.toString(bytes));
+        properties.setProperty("cycle", Integer.toString(cycle));
+        properties.setProperty("epoch", Long.toString(epoch));
+        properties.setProperty("historyId", Long.toString(historyId));
+        properties.setProperty("historyVersion", Long.toString(historyVersion));
+        Path temp = sidecar.resolveSibling(sidecar.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+        }
+        try {
+            Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    // 检查点写入时设施已运行的周期数
+    public int getCycle() {
+        return cycle;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getHistoryId() {
+        return historyId;
+    }
+
+    public long getHistoryVersion() {
+        return historyVersion;
+    }
+}
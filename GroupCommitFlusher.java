@@ -0,0 +1,59 @@
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 组提交的定时落盘：每隔组提交间隔调用一次日志的flush，没有新周期的设施也不会无限期地保留未落盘的记录。
+ * 所有日志共用一个守护线程；只弱引用日志，日志未关闭就被回收时任务自动取消
+ */
+final class GroupCommitFlusher {
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "group-commit-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private GroupCommitFlusher() {
+    }
+
+    /**
+     * 每隔periodMillis毫秒对target调用一次flush；flush不能捕获target本身（应传入方法引用），否则弱引用失效
+     */
+    static <T> ScheduledFuture<?> schedule(T target, Consumer<? super T> flush, long periodMillis) {
+        Task<T> task = new Task<>(target, flush);
+        long period = Math.max(1, periodMillis);
+        task.future = SCHEDULER.scheduleWithFixedDelay(task, period, period, TimeUnit.MILLISECONDS);
+        return task.future;
+    }
+
+    private static final class Task<T> implements Runnable {
+        private final WeakReference<T> target;
+        private final Consumer<? super T> flush;
+        private volatile ScheduledFuture<?> future;
+
+        Task(T target, Consumer<? super T> flush) {
+            this.target = new WeakReference<>(target);
+            this.flush = flush;
+        }
+
+        @Override
+        public void run() {
+            T current = target.get();
+            if (current == null) {
+                ScheduledFuture<?> scheduled = future;
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                }
+                return;
+            }
+            try {
+                flush.accept(current);
+            } catch (RuntimeException e) {
+                // 定时任务抛出异常会被取消；落盘失败留给下一次flush或close报告
+            }
+        }
+    }
+}
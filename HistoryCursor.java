@@ -0,0 +1,71 @@
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 历史记录游标：打开时固定记录条数，之后按页读取快照，运行周期追加的新记录不会出现在游标中
+ * 每次只缓存一页，内存占用与历史记录总数无关；同一游标只能由一个线程使用
+ */
+public class HistoryCursor implements Iterator<Visitor> {
+    private final HistoryStorage.Snapshot snapshot;
+    private final Visitor[] page;
+    private int pageStart;
+    private int pageLength;
+    private int position;
+
+    public HistoryCursor(HistoryStorage.Snapshot snapshot, int pageSize) {
+        this.snapshot = snapshot;
+        this.page = new Visitor[Math.max(1, pageSize)];
+    }
+
+    // 游标打开时的记录条数
+    public int size() {
+        return snapshot.size();
+    }
+
+    // 下一条记录的下标（从0开始）
+    public int position() {
+        return position;
+    }
+
+    // 跳到指定下标，之后从该条开始读取
+    public void seek(int index) {
+        position = Math.max(0, Math.min(index, snapshot.size()));
+    }
+
+    @Override
+    public boolean hasNext() {
+        return position < snapshot.size();
+    }
+
+    @Override
+    public Visitor next() {
+        if (position >= snapshot.size()) {
+            throw new NoSuchElementException();
+        }
+        int offset = position - pageStart;
+        if (offset < 0 || offset >= pageLength) {
+            pageStart = position;
+            pageLength = snapshot.read(position, page, page.length);
+            offset = 0;
+        }
+        position++;
+        return page[offset];
+    }
+
+    // 读取下一页（最多pageSize条），已到末尾时返回空列表
+    public List<Visitor> nextPage() {
+        List<Visitor> result = new ArrayList<>(Math.min(page.length, snapshot.size() - position));
+        while (result.size() < page.length && hasNext()) {
+            result.add(next());
+        }
+        return result;
+    }
+
+    // 从当前位置开始的惰性流，按页读取
+    public Stream<Visitor> stream() {
+        Spliterator<Visitor> spliterator = Spliterators.spliterator(this, snapshot.size() - position,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        return StreamSupport.stream(spliterator, false);
+    }
+}
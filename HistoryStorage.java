@@ -0,0 +1,46 @@
+import java.util.Comparator;
+
+/**
+ * 历史记录的底层存储，按插入顺序保存游客
+ * ObjectHistoryStorage直接保存Visitor对象；ColumnarHistoryStorage按列保存字段，遍历时才创建Visitor；
+ * MappedHistoryStorage写入内存映射的日志文件，重启后可以直接恢复
+ */
+public interface HistoryStorage extends Iterable<Visitor> {
+    void add(Visitor visitor);
+
+    // 预留容量，批量追加前调用
+    void ensureCapacity(int capacity);
+
+    Visitor get(int index);
+
+    int size();
+
+    // 按比较器重排（稳定排序）
+    void sort(Comparator<Visitor> comparator);
+
+    // 持久化存储在这里落盘；内存存储无需处理
+    default void flush() {}
+
+    /**
+     * 当前前size()条记录的只读快照，之后的追加和排序都不影响快照内容，读取快照无需加锁；
+     * 不支持无锁读取的存储返回null（调用方改为加锁分页读取）
+     */
+    default Snapshot snapshot() {
+        return null;
+    }
+
+    interface Snapshot {
+        int size();
+
+        Visitor get(int index);
+
+        // 从from开始最多读取count条到dest，返回实际读取的条数
+        default int read(int from, Visitor[] dest, int count) {
+            int n = Math.max(0, Math.min(count, size() - from));
+            for (int i = 0; i < n; i++) {
+                dest[i] = get(from + i);
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * 历史记录导入统计：成功行数、被拒绝行数、读取字节数和耗时
+ * 代替逐行打印警告，导入结束后统一汇总
+ */
+public class ImportStats {
+    private long rows;
+    private long rejected;
+    private long bytes;
+    private long elapsedNanos;
+    private long firstRejectedLine = -1; // 第一条被拒绝的行号（从1开始），便于定位问题
+
+    public void recordRow() {
+        rows++;
+    }
+
+    // lineNumber未知（例如从文件中间开始解析的分片）时传-1
+    public void recordRejected(long lineNumber) {
+        if (firstRejectedLine < 0 && lineNumber > 0) {
+            firstRejectedLine = lineNumber;
+        }
+        rejected++;
+    }
+
+    public void addBytes(long count) {
+        bytes += count;
+    }
+
+    /**
+     * 合并另一个分片/文件的统计；各分片行号不可比，合并后不再保留首个错误行号
+     */
+    public void merge(ImportStats other) {
+        rows += other.rows;
+        rejected += other.rejected;
+        bytes += other.bytes;
+        firstRejectedLine = -1;
+    }
+
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getFirstRejectedLine() {
+        return firstRejectedLine;
+    }
+
+    public double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "导入" + rows + "行，拒绝" + rejected + "行"
+                + (firstRejectedLine > 0 ? "（首个错误位于第" + firstRejectedLine + "行）" : "")
+                + "，读取" + bytes + "字节，耗时" + (elapsedNanos / 1_000_000) + "毫秒";
+    }
+}
@@ -0,0 +1,159 @@
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 支持中途离队和位置查询的FIFO通道（非并发模式使用）
+ * 队列项本身就是双向链表节点，入队、出队、按项删除都是O(1)链表操作；
+ * 每项入队时分配一个递增槽位，树状数组记录每个槽位是否仍在队列中，
+ * 某项前面的人数即其槽位之前的前缀和，查询和删除为O(log n)。
+ * 槽位用完时按当前顺序重新编号并重建树状数组（O(n)，均摊到每次入队为O(1)）
+ */
+public class IndexedLane extends AbstractQueue<QueueEntry> {
+    private static final int MIN_SLOTS = 16;
+
+    private QueueEntry head;
+    private QueueEntry tail;
+    private int size;
+
+    // 树状数组（下标从1开始），tree.length - 1为槽位数
+    private int[] tree = new int[MIN_SLOTS + 1];
+    private int nextSlot;
+
+    @Override
+    public boolean offer(QueueEntry entry) {
+        if (entry.lane != null) {
+            throw new IllegalStateException("队列项已在通道中");
+        }
+        if (nextSlot == tree.length - 1) {
+            compact();
+        }
+        entry.lane = this;
+        entry.slot = nextSlot++;
+        entry.prev = tail;
+        entry.next = null;
+        if (tail == null) {
+            head = entry;
+        } else {
+            tail.next = entry;
+        }
+        tail = entry;
+        size++;
+        update(entry.slot, 1);
+        return true;
+    }
+
+    @Override
+    public QueueEntry poll() {
+        QueueEntry entry = head;
+        if (entry != null) {
+            unlink(entry);
+        }
+        return entry;
+    }
+
+    @Override
+    public QueueEntry peek() {
+        return head;
+    }
+
+    // 删除指定的队列项（不在本通道中时返回false）
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof QueueEntry) || ((QueueEntry) o).lane != this) {
+            return false;
+        }
+        unlink((QueueEntry) o);
+        return true;
+    }
+
+    // 排在该项前面的人数；不在本通道中时返回-1
+    public int positionOf(QueueEntry entry) {
+        if (entry.lane != this) {
+            return -1;
+        }
+        int[] t = tree;
+        int count = 0;
+        for (int i = Math.min(entry.slot, t.length - 1); i > 0; i -= i & -i) {
+            count += t[i];
+        }
+        return count;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<QueueEntry> iterator() {
+        return new Iterator<QueueEntry>() {
+            private QueueEntry current = head;
+
+            @Override
+            public boolean hasNext() {
+                return current != null;
+            }
+
+            @Override
+            public QueueEntry next() {
+                if (current == null) {
+                    throw new NoSuchElementException();
+                }
+                QueueEntry entry = current;
+                current = entry.next;
+                return entry;
+            }
+        };
+    }
+
+    private void unlink(QueueEntry entry) {
+        if (entry.prev == null) {
+            head = entry.next;
+        } else {
+            entry.prev.next = entry.next;
+        }
+        if (entry.next == null) {
+            tail = entry.prev;
+        } else {
+            entry.next.prev = entry.prev;
+        }
+        update(entry.slot, -1);
+        entry.lane = null;
+        entry.prev = null;
+        entry.next = null;
+        size--;
+        if (size == 0) {
+            nextSlot = 0; // 通道排空时树状数组全为0，槽位直接从头开始
+        }
+    }
+
+    private void update(int slot, int delta) {
+        int[] t = tree;
+        for (int i = slot + 1; i < t.length; i += i & -i) {
+            t[i] += delta;
+        }
+    }
+
+    // 按链表顺序重新编号，槽位数保持在人数的两倍以上，再线性建树
+    private void compact() {
+        int slots = MIN_SLOTS;
+        while (slots < size * 2) {
+            slots <<= 1;
+        }
+        int[] t = new int[slots + 1];
+        int slot = 0;
+        for (QueueEntry entry = head; entry != null; entry = entry.next) {
+            entry.slot = slot++;
+            t[slot] = 1;
+        }
+        for (int i = 1; i <= slots; i++) {
+            int parent = i + (i & -i);
+            if (parent <= slots) {
+                t[parent] += t[i];
+            }
+        }
+        tree = t;
+        nextSlot = slot;
+    }
+}
@@ -0,0 +1,531 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.zip.CRC32;
+
+/**
+ * 持久化历史存储：每个设施一组只追加的内存映射日志文件
+ * 文件结构：
+ *   魔数"RHL1" | 版本号(1字节) | 3字节保留 | 检查点(int，已落盘的有效长度) | 4字节保留
+ *   记录：负载长度(int) | CRC32(int，覆盖负载) | 负载
+ *   负载：标志(1字节，bit0快速通行证，bit1~3对应姓名/电话/ID为null) | 年龄(int) | 姓名/电话/ID（各为长度int + UTF-8字节）
+ * 追加时先写负载和校验和，最后写长度，进程崩溃时不会留下“长度有效但内容不完整”的记录；
+ * 落盘时先force记录，再force写入了新检查点的文件头，所以检查点之前的记录一定完整。
+ * 打开文件时只沿长度字段找出记录边界，只校验检查点之后的记录，不创建Visitor；遇到长度为0、越界或校验失败的记录
+ * 即视为日志末尾，清掉之后写了一半的尾部记录（只扫描到连续一页的零为止，不扫描整个预分配区）。
+ * get和遍历时才从映射内存解码出Visitor。
+ * 一个文件写满segmentBytes（最大2GB）后滚动到下一个段文件（path.1、path.2……），追加不会因为文件大小失败。
+ * 写入映射内存的数据在进程崩溃后仍在操作系统页缓存中；FlushPolicy控制何时force到磁盘，以应对断电或系统崩溃
+ */
+public class MappedHistoryStorage implements HistoryStorage, AutoCloseable {
+    private static final byte[] MAGIC = {'R', 'H', 'L', '1'};
+    // 版本1的文件头没有检查点，打开时逐条校验；仍可读取和追加
+    private static final int VERSION = 2;
+    private static final int V1_HEADER_SIZE = 8;
+    private static final int HEADER_SIZE = 16;
+    private static final int CHECKPOINT_OFFSET = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final long INITIAL_MAPPING = 1L << 20;
+    private static final long MAX_MAPPING = Integer.MAX_VALUE - 8;
+    // 有效记录之后连续这么多字节为0即视为到达预分配的零区
+    private static final int ZERO_TAIL_RUN = 4096;
+
+    public enum FlushPolicy {
+        // 每次flush（每个周期、每次添加历史记录或批量导入之后）都force到磁盘
+        EVERY_CYCLE,
+        // 组提交：累计达到groupRecords条记录或距上次落盘超过groupMillis毫秒时才force，
+        // 没有新周期时由定时任务每隔groupMillis毫秒检查一次
+        GROUP_COMMIT
+    }
+
+    private final Path path;
+    private final FlushPolicy flushPolicy;
+    private final long segmentBytes;
+    private volatile int groupRecords = 4096;
+    private volatile long groupMillis = 100;
+
+    private final List<Segment> segments = new ArrayList<>();
+    // 正在追加的段（最后一个），关闭后为null
+    private Segment current;
+    // 记录位置：段序号 << 32 | 段内偏移；sort只重排这里的顺序，日志本身始终保持追加顺序
+    private long[] offsets = new long[1024];
+    private int size;
+    private int recoveredRecords;
+    private long truncatedBytes;
+
+    private int pendingRecords;
+    private long lastForceNanos = System.nanoTime();
+    private ScheduledFuture<?> flusher;
+    private final CRC32 crc = new CRC32();
+    private byte[] scratch = new byte[256];
+
+    private MappedHistoryStorage(Path path, FlushPolicy flushPolicy, long segmentBytes) {
+        this.path = path;
+        this.flushPolicy = flushPolicy;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * 打开（不存在时创建）日志文件并恢复其中的有效记录
+     */
+    public static MappedHistoryStorage open(Path path, FlushPolicy flushPolicy) throws IOException {
+        return open(path, flushPolicy, MAX_MAPPING);
+    }
+
+    // segmentBytes为单个段文件的大小上限（测试时用较小的值验证滚动）
+    static MappedHistoryStorage open(Path path, FlushPolicy flushPolicy, long segmentBytes) throws IOException {
+        MappedHistoryStorage storage = new MappedHistoryStorage(path, flushPolicy,
+                Math.max(HEADER_SIZE, Math.min(segmentBytes, MAX_MAPPING)));
+        try {
+            storage.recover();
+        } catch (IOException | RuntimeException e) {
+            for (Segment segment : storage.segments) {
+                segment.channel.close();
+            }
+            throw e;
+        }
+        storage.scheduleFlusher();
+        return storage;
+    }
+
+    private Path segmentPath(int index) {
+        return index == 0 ? path : path.resolveSibling(path.getFileName() + "." + index);
+    }
+
+    private void recover() throws IOException {
+        int count = 1;
+        while (Files.exists(segmentPath(count))) {
+            count++;
+        }
+        for (int k = 0; k < count; k++) {
+            Path file = segmentPath(k);
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            Segment segment = new Segment(file, channel);
+            segments.add(segment);
+            recoverSegment(k, segment, k == count - 1);
+        }
+        current = segments.get(count - 1);
+        recoveredRecords = size;
+    }
+
+    private void recoverSegment(int index, Segment segment, boolean last) throws IOException {
+        long fileSize = segment.channel.size();
+        if (fileSize > MAX_MAPPING) {
+            throw new IOException("日志文件超过2GB，无法映射：" + segment.path);
+        }
+        if (fileSize == 0 && last) {
+            segment.map(INITIAL_MAPPING);
+            segment.writeHeader();
+            return;
+        }
+        // 只有最后一个段还会追加，其余的段只按文件大小映射，不再扩展
+        segment.map(last ? Math.max(fileSize, INITIAL_MAPPING) : fileSize);
+        MappedByteBuffer buffer = segment.buffer;
+        if (fileSize < V1_HEADER_SIZE || !hasMagic(buffer)) {
+            throw new IOException("文件头不匹配，不是历史记录日志文件：" + segment.path);
+        }
+        int version = buffer.get(MAGIC.length);
+        if (version != 1 && version != VERSION) {
+            throw new IOException("不支持的日志版本：" + version);
+        }
+        segment.headerSize = version == 1 ? V1_HEADER_SIZE : HEADER_SIZE;
+        long checkpoint = segment.headerSize;
+        if (version == VERSION && fileSize >= HEADER_SIZE) {
+            int stored = buffer.getInt(CHECKPOINT_OFFSET);
+            // 检查点超出文件长度说明文件被截断过，退回逐条校验
+            if (stored >= HEADER_SIZE && stored <= fileSize) {
+                checkpoint = stored;
+            }
+        }
+        int position = segment.headerSize;
+        while (position + RECORD_HEADER_SIZE <= fileSize) {
+            int length = buffer.getInt(position);
+            long end = position + RECORD_HEADER_SIZE + (long) length;
+            if (length <= 0 || end > fileSize || (end > checkpoint
+                    && buffer.getInt(position + 4) != checksum(buffer, position + RECORD_HEADER_SIZE, length))) {
+                break;
+            }
+            addOffset(index, position);
+            position = (int) end;
+        }
+        segment.writePosition = position;
+        segment.forcedPosition = (int) Math.min(position, checkpoint);
+        clearTornTail(segment, position, fileSize);
+        if (segment.headerSize == HEADER_SIZE && buffer.getInt(CHECKPOINT_OFFSET) != segment.forcedPosition) {
+            buffer.putInt(CHECKPOINT_OFFSET, segment.forcedPosition);
+            buffer.force(0, HEADER_SIZE);
+        }
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 丢弃写了一半的尾部记录并清零，之后追加的记录不会与残留字节拼接；遇到连续一页的零即停止
+    private void clearTornTail(Segment segment, int from, long fileSize) {
+        MappedByteBuffer buffer = segment.buffer;
+        long end = from; // 最后一个非零字节之后的位置
+        long i = from;
+        while (i < fileSize && i - end < ZERO_TAIL_RUN) {
+            if (i + 8 <= fileSize) {
+                long word = buffer.getLong((int) i);
+                if (word != 0) {
+                    end = i + 8 - Long.numberOfTrailingZeros(word) / 8;
+                }
+                i += 8;
+            } else {
+                if (buffer.get((int) i) != 0) {
+                    end = i + 1;
+                }
+                i++;
+            }
+        }
+        int length = (int) (end - from);
+        if (length > 0) {
+            byte[] zeros = new byte[Math.min(length, ZERO_TAIL_RUN)];
+            for (int p = from; p < end; p += zeros.length) {
+                buffer.put(p, zeros, 0, (int) Math.min(zeros.length, end - p));
+            }
+            buffer.force(from, length);
+            truncatedBytes += length;
+        }
+    }
+
+    private int checksum(ByteBuffer buffer, int position, int length) {
+        crc.reset();
+        crc.update(buffer.slice(position, length));
+        return (int) crc.getValue();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+
+    public synchronized void setGroupCommit(int groupRecords, long groupMillis) {
+        this.groupRecords = Math.max(1, groupRecords);
+        this.groupMillis = Math.max(0, groupMillis);
+        scheduleFlusher();
+    }
+
+    // 组提交时按groupMillis定时检查未落盘的记录；groupMillis为0时每次flush都会落盘，不需要定时任务
+    private void scheduleFlusher() {
+        if (flusher != null) {
+            flusher.cancel(false);
+            flusher = null;
+        }
+        if (flushPolicy == FlushPolicy.GROUP_COMMIT && groupMillis > 0 && current != null) {
+            flusher = GroupCommitFlusher.schedule(this, MappedHistoryStorage::flush, groupMillis);
+        }
+    }
+
+    // 打开时从日志恢复的记录数
+    public int getRecoveredRecords() {
+        return recoveredRecords;
+    }
+
+    // 打开时丢弃的尾部字节数（崩溃时写了一半的记录）
+    public long getTruncatedBytes() {
+        return truncatedBytes;
+    }
+
+    // 日志有效内容的字节数（所有段之和）
+    public synchronized long getLogBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.writePosition;
+        }
+        return bytes;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void add(Visitor visitor) {
+        int length = encode(visitor);
+        long recordBytes = RECORD_HEADER_SIZE + (long) length;
+        Segment segment = current;
+        if (segment.writePosition + recordBytes > segmentBytes && segment.writePosition > segment.headerSize) {
+            segment = rollOver();
+        }
+        int position = segment.writePosition;
+        segment.ensureMapped(position + recordBytes);
+        MappedByteBuffer buffer = segment.buffer;
+        buffer.put(position + RECORD_HEADER_SIZE, scratch, 0, length);
+        buffer.putInt(position + 4, checksum(buffer, position + RECORD_HEADER_SIZE, length));
+        buffer.putInt(position, length);
+        segment.writePosition = (int) (position + recordBytes);
+        addOffset(segments.size() - 1, position);
+        pendingRecords++;
+    }
+
+    // 当前段写满：落盘并截断到有效长度，之后的记录写入新的段文件；已有记录仍从原来的段读取
+    private Segment rollOver() {
+        force();
+        current.truncate();
+        Path file = segmentPath(segments.size());
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            Segment next = new Segment(file, channel);
+            next.map(INITIAL_MAPPING);
+            next.writeHeader();
+            next.buffer.force(0, HEADER_SIZE);
+            segments.add(next);
+            current = next;
+            return next;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int encode(Visitor visitor) {
+        byte[] name = bytesOf(visitor.getName());
+        byte[] phone = bytesOf(visitor.getPhoneNumber());
+        byte[] id = bytesOf(visitor.getVisitorId());
+        int length = 1 + 4 + lengthOf(name) + lengthOf(phone) + lengthOf(id);
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        ByteBuffer out = ByteBuffer.wrap(scratch);
+        int flags = (visitor.isHasFastPass() ? 1 : 0) | (name == null ? 2 : 0) | (phone == null ? 4 : 0)
+                | (id == null ? 8 : 0);
+        out.put((byte) flags);
+        out.putInt(visitor.getAge());
+        putString(out, name);
+        putString(out, phone);
+        putString(out, id);
+        return length;
+    }
+
+    private static byte[] bytesOf(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int lengthOf(byte[] bytes) {
+        return 4 + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putString(ByteBuffer out, byte[] bytes) {
+        out.putInt(bytes == null ? 0 : bytes.length);
+        if (bytes != null) {
+            out.put(bytes);
+        }
+    }
+
+    private void addOffset(int segment, int position) {
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size + (size >> 1));
+        }
+        offsets[size++] = (long) segment << 32 | position;
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        if (capacity > offsets.length) {
+            offsets = Arrays.copyOf(offsets, capacity);
+        }
+    }
+
+    @Override
+    public Visitor get(int index) {
+        Objects.checkIndex(index, size);
+        long offset = offsets[index];
+        ByteBuffer buffer = segments.get((int) (offset >>> 32)).buffer;
+        int position = (int) offset + RECORD_HEADER_SIZE;
+        int flags = buffer.get(position);
+        int age = buffer.getInt(position + 1);
+        position += 5;
+        String name = (flags & 2) != 0 ? null : readString(buffer, position);
+        position += 4 + buffer.getInt(position);
+        String phone = (flags & 4) != 0 ? null : readString(buffer, position);
+        position += 4 + buffer.getInt(position);
+        String id = (flags & 8) != 0 ? null : readString(buffer, position);
+        return new Visitor(name, age, phone, id, (flags & 1) != 0);
+    }
+
+    private static String readString(ByteBuffer buffer, int position) {
+        byte[] bytes = new byte[buffer.getInt(position)];
+        buffer.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 只重排内存中的记录顺序；日志保持追加顺序，重新打开后恢复为乘坐先后顺序
+     */
+    @Override
+    public void sort(Comparator<Visitor> comparator) {
+        Visitor[] visitors = new Visitor[size];
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            visitors[i] = get(i);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> comparator.compare(visitors[a], visitors[b]));
+        long[] sorted = new long[offsets.length];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = offsets[order[i]];
+        }
+        offsets = sorted;
+    }
+
+    // 按落盘策略把已追加的记录force到磁盘（组提交时也由定时任务调用）
+    @Override
+    public synchronized void flush() {
+        if (pendingRecords == 0 || current == null) {
+            return;
+        }
+        if (flushPolicy == FlushPolicy.GROUP_COMMIT && pendingRecords < groupRecords
+                && System.nanoTime() - lastForceNanos < groupMillis * 1_000_000) {
+            return;
+        }
+        force();
+    }
+
+    // 立即落盘，忽略组提交的阈值
+    public synchronized void force() {
+        if (current == null) {
+            return;
+        }
+        current.force();
+        pendingRecords = 0;
+        lastForceNanos = System.nanoTime();
+    }
+
+    /**
+     * 落盘并把文件截断到有效长度；关闭后不能再读写
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (current == null) {
+            return;
+        }
+        if (flusher != null) {
+            flusher.cancel(false);
+            flusher = null;
+        }
+        force();
+        current.truncate();
+        current = null;
+        IOException failure = null;
+        for (Segment segment : segments) {
+            segment.buffer = null;
+            try {
+                segment.channel.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public Iterator<Visitor> iterator() {
+        return new Iterator<Visitor>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Visitor next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    // 一个段文件及其映射
+    private static final class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private MappedByteBuffer buffer;
+        private int headerSize = HEADER_SIZE;
+        private int writePosition;
+        // 已force到磁盘的长度，落盘时只force之后追加的部分
+        private int forcedPosition;
+
+        Segment(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+
+        void map(long capacity) throws IOException {
+            // 映射范围超过文件大小时，文件会被扩展（新增部分为0）
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+
+        void writeHeader() {
+            buffer.put(0, MAGIC);
+            buffer.put(MAGIC.length, (byte) VERSION);
+            buffer.putInt(CHECKPOINT_OFFSET, HEADER_SIZE);
+            writePosition = HEADER_SIZE;
+            forcedPosition = HEADER_SIZE;
+        }
+
+        void ensureMapped(long required) {
+            if (required <= buffer.capacity()) {
+                return;
+            }
+            if (required > MAX_MAPPING) {
+                throw new IllegalStateException("单条记录超过2GB：" + path);
+            }
+            long capacity = Math.min(MAX_MAPPING, Math.max(required, (long) buffer.capacity() * 2));
+            try {
+                map(capacity);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // 先force新追加的记录，再force写入新检查点的文件头
+        void force() {
+            if (writePosition > forcedPosition) {
+                buffer.force(forcedPosition, writePosition - forcedPosition);
+            }
+            if (headerSize == HEADER_SIZE && buffer.getInt(CHECKPOINT_OFFSET) != writePosition) {
+                buffer.putInt(CHECKPOINT_OFFSET, writePosition);
+                buffer.force(0, HEADER_SIZE);
+            }
+            forcedPosition = writePosition;
+        }
+
+        void truncate() {
+            try {
+                channel.truncate(writePosition);
+            } catch (IOException e) {
+                // 部分平台不允许截断仍被映射的文件；尾部的零区在下次打开时会被忽略
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.*;
+
+/**
+ * 默认存储：Visitor对象按固定大小的块保存
+ * 块一旦分配就不再移动，追加只写入末尾并在最后发布size，排序时写入新的块再整体替换，
+ * 因此snapshot()拿到的（块目录，size）在之后的追加和排序中保持不变，读取快照无需加锁
+ */
+public class ObjectHistoryStorage implements HistoryStorage {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private volatile Visitor[][] chunks = new Visitor[4][];
+    private volatile int size;
+
+    // 写入由调用方串行化（Ride在历史记录锁内写入）
+    @Override
+    public void add(Visitor visitor) {
+        int index = size;
+        Visitor[][] directory = chunks;
+        int chunk = index >>> CHUNK_BITS;
+        if (chunk == directory.length) {
+            directory = Arrays.copyOf(directory, directory.length * 2);
+            chunks = directory;
+        }
+        if (directory[chunk] == null) {
+            directory[chunk] = new Visitor[CHUNK_SIZE];
+        }
+        directory[chunk][index & CHUNK_MASK] = visitor;
+        size = index + 1; // 写入元素之后再发布
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        int needed = (capacity + CHUNK_MASK) >>> CHUNK_BITS;
+        if (needed > chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(needed, chunks.length * 2));
+        }
+    }
+
+    @Override
+    public Visitor get(int index) {
+        Objects.checkIndex(index, size);
+        return chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // 稳定排序后写入新的块，已有快照仍指向旧的块
+    @Override
+    public void sort(Comparator<Visitor> comparator) {
+        int n = size;
+        Visitor[] sorted = new Visitor[n];
+        snapshot().read(0, sorted, n);
+        Arrays.sort(sorted, comparator);
+        Visitor[][] directory = new Visitor[chunks.length][];
+        for (int i = 0; i < n; i += CHUNK_SIZE) {
+            directory[i >>> CHUNK_BITS] = Arrays.copyOfRange(sorted, i, i + CHUNK_SIZE);
+        }
+        chunks = directory;
+    }
+
+    @Override
+    public Snapshot snapshot() {
+        int n = size; // 先读size再读块目录，目录中一定包含前n条
+        Visitor[][] directory = chunks;
+        return new Snapshot() {
+            @Override
+            public int size() {
+                return n;
+            }
+
+            @Override
+            public Visitor get(int index) {
+                Objects.checkIndex(index, n);
+                return directory[index >>> CHUNK_BITS][index & CHUNK_MASK];
+            }
+
+            // 按块整段复制
+            @Override
+            public int read(int from, Visitor[] dest, int count) {
+                int total = Math.max(0, Math.min(count, n - from));
+                int copied = 0;
+                while (copied < total) {
+                    int index = from + copied;
+                    int length = Math.min(total - copied, CHUNK_SIZE - (index & CHUNK_MASK));
+                    System.arraycopy(directory[index >>> CHUNK_BITS], index & CHUNK_MASK, dest, copied, length);
+                    copied += length;
+                }
+                return total;
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Visitor> iterator() {
+        Snapshot snapshot = snapshot();
+        return new Iterator<Visitor>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.size();
+            }
+
+            @Override
+            public Visitor next() {
+                if (next >= snapshot.size()) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot.get(next++);
+            }
+        };
+    }
+}
@@ -0,0 +1,101 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 并行CSV历史记录导入
+ * 每个文件按行边界切成若干分片，分片在ForkJoin线程池上并行解析，
+ * 解析结果按“文件顺序 + 分片在文件中的顺序”依次返回，因此合并结果与逐个文件顺序导入完全一致。
+ * 同时最多有“并行度 × 2”个分片在解析或等待合并，分片合并后立即释放，
+ * 峰值内存只与分片大小和并行度有关，与文件数量和总数据量无关
+ */
+public class ParallelHistoryImporter {
+    private static final long DEFAULT_CHUNK_SIZE = 32L << 20; // 每个分片32MB
+
+    private final ForkJoinPool pool;
+    private final long chunkSize;
+
+    public ParallelHistoryImporter() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public ParallelHistoryImporter(ForkJoinPool pool, long chunkSize) {
+        this.pool = pool;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * 并行解析所有文件，按确定顺序把每个分片的结果交给merger，返回汇总统计
+     */
+    public ImportStats importFiles(List<Path> files, HistoryMerger merger) throws IOException {
+        long begin = System.nanoTime();
+        List<ChunkTask> chunks = new ArrayList<>(); // 只保存分片的位置，解析结果在合并后释放
+        for (Path file : files) {
+            long size = Files.size(file);
+            for (long start = 0; start < size; start += chunkSize) {
+                chunks.add(new ChunkTask(file, start, Math.min(size, start + chunkSize)));
+            }
+        }
+
+        int window = Math.max(2, pool.getParallelism() * 2);
+        ArrayDeque<ChunkTask> inFlight = new ArrayDeque<>(window);
+        ImportStats total = new ImportStats();
+        int next = 0;
+        try {
+            while (next < chunks.size() || !inFlight.isEmpty()) {
+                while (next < chunks.size() && inFlight.size() < window) {
+                    ChunkTask task = chunks.get(next);
+                    chunks.set(next++, null);
+                    pool.execute(task);
+                    inFlight.add(task);
+                }
+                ChunkTask task = inFlight.poll();
+                merger.merge(task.join());
+                total.merge(task.stats);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (ChunkTask task : inFlight) {
+                task.cancel(false);
+            }
+        }
+        total.setElapsedNanos(System.nanoTime() - begin);
+        return total;
+    }
+
+    // 接收单个分片的解析结果（按确定顺序调用）
+    public interface HistoryMerger {
+        void merge(List<Visitor> visitors);
+    }
+
+    private static class ChunkTask extends RecursiveTask<List<Visitor>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Path file;
+        private final long start;
+        private final long end;
+        private final ImportStats stats = new ImportStats();
+
+        ChunkTask(Path file, long start, long end) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected List<Visitor> compute() {
+            List<Visitor> visitors = new ArrayList<>();
+            try {
+                new CsvHistoryReader(visitors::add, stats).read(file, start, end);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return visitors;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 游乐园调度器：统一管理多个设施，按各自的周期时长定时运行runOneCycle
+ * 所有设施共用一个小的定时线程池，不为每个设施单独开线程；同一设施的周期任务不会并发执行。
+ * 周期在调度线程上运行，同时调用方线程还在入队，因此只接受并发模式的Ride（其等待队列可被多个线程同时修改），
+ * 周期本身仍在Ride的历史记录锁内完成，队列和历史记录保持一致
+ */
+public class Park {
+    private final ScheduledExecutorService scheduler;
+    private final Map<RideInterface, ScheduledRide> rides = new ConcurrentHashMap<>();
+    private final LongAdder totalCycles = new LongAdder();
+    private final LongAdder totalBoarded = new LongAdder();
+    private final LongAdder idleTicks = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    // 全园游客乘坐索引，注册的Ride上车时自动写入（挂在Ride的索引挂钩上，与事件监听器无关）
+    private final VisitorRideIndex visitorIndex = new VisitorRideIndex();
+    // 全园共用的游客注册表，同一游客在各设施中只保留一个Visitor对象
+    private final VisitorRegistry visitorRegistry = new VisitorRegistry();
+    private volatile long startNanos;
+    private volatile boolean running;
+
+    public Park() {
+        this(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public Park(int threads) {
+        this.scheduler = Executors.newScheduledThreadPool(Math.max(1, threads), new SchedulerThreadFactory());
+    }
+
+    /**
+     * 注册设施，cycleMillis为该设施一个周期的时长；调度器已启动时立即开始定时运行。
+     * 设施为null、周期时长不大于0或Ride不是并发模式时返回false（Ride通过其事件监听器报告失败原因）
+     */
+    public boolean addRide(RideInterface ride, long cycleMillis) {
+        if (ride == null) {
+            return false;
+        }
+        if (cycleMillis <= 0) {
+            if (ride instanceof Ride) {
+                Ride r = (Ride) ride;
+                r.getEventListener().operationFailed(r, RideFailure.INVALID_CYCLE_MILLIS, String.valueOf(cycleMillis));
+            }
+            return false;
+        }
+        if (ride instanceof Ride && !((Ride) ride).isConcurrent()) {
+            Ride r = (Ride) ride;
+            r.getEventListener().operationFailed(r, RideFailure.NOT_CONCURRENT, null);
+            return false;
+        }
+        ScheduledRide scheduled = new ScheduledRide(ride, cycleMillis);
+        ScheduledRide previous = rides.put(ride, scheduled);
+        if (previous != null) {
+            previous.cancel();
+        } else if (ride instanceof Ride) {
+            Ride r = (Ride) ride;
+            r.setVisitorIndex(visitorIndex);
+            r.setVisitorRegistry(visitorRegistry);
+        }
+        if (ride instanceof Ride) {
+            ((Ride) ride).getWaitEstimator().setNominalCycleMillis(cycleMillis);
+        }
+        if (running) {
+            scheduled.schedule();
+        }
+        return true;
+    }
+
+    public void removeRide(RideInterface ride) {
+        ScheduledRide scheduled = rides.remove(ride);
+        if (scheduled != null) {
+            scheduled.cancel();
+            if (ride instanceof Ride) {
+                Ride r = (Ride) ride;
+                if (r.getVisitorIndex() == visitorIndex) {
+                    r.setVisitorIndex(null);
+                }
+                visitorIndex.removeRide(r);
+                if (r.getVisitorRegistry() == visitorRegistry) {
+                    r.setVisitorRegistry(null);
+                }
+            }
+        }
+    }
+
+    public VisitorRegistry getVisitorRegistry() {
+        return visitorRegistry;
+    }
+
+    // 查询“某游客今天坐过哪些设施”，不需要逐个设施查询历史记录
+    public VisitorRideIndex getVisitorIndex() {
+        return visitorIndex;
+    }
+
+    public int getRideCount() {
+        return rides.size();
+    }
+
+    public List<RideInterface> getRides() {
+        return new ArrayList<>(rides.keySet());
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        startNanos = System.nanoTime();
+        for (ScheduledRide scheduled : rides.values()) {
+            scheduled.schedule();
+        }
+    }
+
+    // 停止定时运行；正在执行的周期会完整结束
+    public synchronized void stop() {
+        running = false;
+        for (ScheduledRide scheduled : rides.values()) {
+            scheduled.cancel();
+        }
+    }
+
+    // 停止并关闭线程池，等待正在执行的周期结束
+    public void shutdown() {
+        stop();
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getTotalCycles() {
+        return totalCycles.sum();
+    }
+
+    public long getTotalBoarded() {
+        return totalBoarded.sum();
+    }
+
+    // 轮到运行时队列为空而跳过的次数
+    public long getIdleTicks() {
+        return idleTicks.sum();
+    }
+
+    // 周期运行中抛出异常的次数（异常不会中断该设施的后续调度）
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    // 启动以来全园每秒上车人数
+    public double getThroughputPerSecond() {
+        long start = startNanos;
+        if (start == 0) {
+            return 0;
+        }
+        long elapsed = System.nanoTime() - start;
+        return elapsed <= 0 ? 0 : totalBoarded.sum() * 1e9 / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("设施%d个，运行%d个周期，上车%d人（%.0f人/秒），空闲跳过%d次，异常%d次",
+                rides.size(), getTotalCycles(), getTotalBoarded(), getThroughputPerSecond(),
+                getIdleTicks(), getFailures());
+    }
+
+    private class ScheduledRide implements Runnable {
+        private final RideInterface ride;
+        private final long cycleMillis;
+        private ScheduledFuture<?> future;
+        // 通用接口上一次统计的历史人数（同一设施的周期任务不会并发执行，无需同步）
+        private int lastHistorySize;
+
+        ScheduledRide(RideInterface ride, long cycleMillis) {
+            this.ride = ride;
+            this.cycleMillis = cycleMillis;
+            this.lastHistorySize = ride instanceof Ride ? 0 : ride.numberOfVisitors();
+        }
+
+        synchronized void schedule() {
+            if (future == null) {
+                // 同一时长的设施错开首次运行时间，避免所有设施在同一时刻争抢线程池
+                long initialDelay = Math.floorMod(System.identityHashCode(ride), cycleMillis);
+                future = scheduler.scheduleAtFixedRate(this, initialDelay, cycleMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        synchronized void cancel() {
+            if (future != null) {
+                future.cancel(false);
+                future = null;
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (ride instanceof Ride) {
+                    runRide((Ride) ride);
+                } else {
+                    // 通用接口只能通过历史人数的变化估算上车人数，每个周期只统计一次
+                    ride.runOneCycle();
+                    int historySize = ride.numberOfVisitors();
+                    totalBoarded.add(historySize - lastHistorySize);
+                    lastHistorySize = historySize;
+                    totalCycles.increment();
+                }
+            } catch (RuntimeException e) {
+                // 定时任务抛出异常会被取消，这里只计数，保证设施继续运行
+                failures.increment();
+            }
+        }
+
+        private void runRide(Ride ride) {
+            if (ride.getQueueSize() == 0) {
+                idleTicks.increment();
+                return;
+            }
+            RideMetrics metrics = ride.getMetrics();
+            long boardedBefore = metrics.getBoarded();
+            int cyclesBefore = ride.getNumOfCycles();
+            ride.runOneCycle();
+            totalBoarded.add(metrics.getBoarded() - boardedBefore);
+            totalCycles.add(ride.getNumOfCycles() - cyclesBefore);
+        }
+    }
+
+    private static class SchedulerThreadFactory implements ThreadFactory {
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "park-scheduler-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
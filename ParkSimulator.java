@@ -0,0 +1,206 @@
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 园区离散事件模拟器：按模拟时间驱动真实的Ride实例，用于估算设施容量是否够用
+ * 事件有三种：游客到达（非齐次泊松过程，用稀疏法生成）、设施周期（每个设施按各自的周期时长）和游客中途离队。
+ * 游客按热度选择设施，看到的预计等待（队列人数 / maxRider × 周期时长）超过自己的耐心时放弃排队；
+ * 入队后实际等待超过耐心仍未上车时，通过removeVisitor中途离队。
+ * 每次运行互不共享状态，Monte Carlo多次运行在固定线程池上并行，结果按运行顺序合并，给定种子时结果可重现
+ */
+public class ParkSimulator {
+    private final SimulationConfig config;
+
+    public ParkSimulator(SimulationConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * 并行运行runs次模拟（第i次使用种子seed + i），返回合并后的结果
+     */
+    public SimulationResult runMonteCarlo(int runs, long seed) throws InterruptedException {
+        int threads = Math.max(1, Math.min(runs, Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long begin = System.nanoTime();
+        try {
+            List<Future<SimulationResult>> futures = new ArrayList<>();
+            for (int i = 0; i < runs; i++) {
+                long runSeed = seed + i;
+                futures.add(pool.submit(() -> run(runSeed)));
+            }
+            SimulationResult combined = null;
+            for (Future<SimulationResult> future : futures) {
+                SimulationResult result = future.get();
+                if (combined == null) {
+                    combined = result;
+                } else {
+                    combined.merge(result);
+                }
+            }
+            if (combined != null) {
+                combined.setElapsedNanos(System.nanoTime() - begin);
+            }
+            return combined;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("模拟运行失败：" + e.getCause(), e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // 运行一个模拟日
+    public SimulationResult run(long seed) {
+        long begin = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        List<SimulationConfig.RideSpec> specs = config.getRides();
+        int rideCount = specs.size();
+        SimulationResult result = new SimulationResult();
+        Ride[] rides = new Ride[rideCount];
+        SimulationResult.RideResult[] rideResults = new SimulationResult.RideResult[rideCount];
+        double[] cumulativePopularity = new double[rideCount];
+        Employee operator = new Employee("模拟", 30, "00000000000", "EMP-SIM", "模拟操作员");
+        BoardingClock clock = new BoardingClock(result);
+        double totalPopularity = 0;
+        for (int i = 0; i < rideCount; i++) {
+            SimulationConfig.RideSpec spec = specs.get(i);
+            rides[i] = new Ride(spec.getName(), "模拟", operator, spec.getMaxRider());
+            if (config.getFastPassShare() > 0) {
+                rides[i].enableFastPassPriority(config.getFastPassPerRound(), config.getStandbyPerRound());
+            }
+            rideResults[i] = result.addRide(spec.getName(), spec.getMaxRider());
+            clock.register(rides[i], rideResults[i]);
+            rides[i].setEventListener(clock);
+            totalPopularity += spec.getPopularity();
+            cumulativePopularity[i] = totalPopularity;
+        }
+        if (rideCount == 0 || totalPopularity == 0) {
+            return result;
+        }
+
+        // 事件队列：time为模拟分钟，ride为-1表示游客到达，带visitor的是该游客耐心耗尽的时刻
+        PriorityQueue<Event> events = new PriorityQueue<>();
+        double maxRate = config.maxArrivalRate();
+        if (maxRate > 0) {
+            events.add(new Event(nextArrival(0, maxRate, random), -1));
+        }
+        for (int i = 0; i < rideCount; i++) {
+            events.add(new Event(specs.get(i).getCycleMinutes(), i));
+        }
+        double dayMinutes = config.getDayMinutes();
+        int visitorSequence = 0;
+        Event event;
+        while ((event = events.poll()) != null && event.time <= dayMinutes) {
+            clock.now = event.time;
+            if (event.ride < 0) {
+                // 稀疏法：以最大到达率生成候选时刻，按当时到达率 / 最大到达率的概率接受
+                if (random.nextDouble() * maxRate < config.arrivalRate(event.time)) {
+                    result.recordArrival();
+                    int choice = choose(cumulativePopularity, random.nextDouble() * totalPopularity);
+                    SimulationConfig.RideSpec spec = specs.get(choice);
+                    double postedWait = (double) rides[choice].getQueueSize() / spec.getMaxRider() * spec.getCycleMinutes();
+                    double patience = -config.getMeanPatienceMinutes() * Math.log(1 - random.nextDouble());
+                    if (postedWait > patience) {
+                        rideResults[choice].recordBalk();
+                    } else {
+                        visitorSequence++;
+                        Visitor visitor = new Visitor("模拟游客" + visitorSequence, 5 + random.nextInt(60), null,
+                                "SIM" + visitorSequence, random.nextDouble() < config.getFastPassShare());
+                        clock.queued(visitor);
+                        rides[choice].addVisitorToQueue(visitor);
+                        if (event.time + patience <= dayMinutes) {
+                            events.add(new Event(event.time + patience, choice, visitor));
+                        }
+                    }
+                }
+                event.time = nextArrival(event.time, maxRate, random);
+            } else if (event.visitor != null) {
+                // 耐心耗尽时仍在排队（没有上车）则中途离队，离队事件只触发一次
+                if (clock.abandoned(event.visitor)) {
+                    rides[event.ride].removeVisitor(event.visitor.getVisitorId());
+                    rideResults[event.ride].recordAbandon();
+                }
+                continue;
+            } else {
+                rideResults[event.ride].recordCycleOffered();
+                if (rides[event.ride].getQueueSize() > 0) {
+                    rides[event.ride].runOneCycle();
+                }
+                event.time += specs.get(event.ride).getCycleMinutes();
+            }
+            events.add(event);
+        }
+        for (int i = 0; i < rideCount; i++) {
+            rideResults[i].setUnserved(rides[i].getQueueSize());
+        }
+        result.setElapsedNanos(System.nanoTime() - begin);
+        return result;
+    }
+
+    private static double nextArrival(double now, double rate, SplittableRandom random) {
+        return now - Math.log(1 - random.nextDouble()) / rate;
+    }
+
+    // 按累计权重二分查找选中的设施
+    private static int choose(double[] cumulative, double target) {
+        int index = Arrays.binarySearch(cumulative, target);
+        index = index >= 0 ? index + 1 : -index - 1;
+        return Math.min(index, cumulative.length - 1);
+    }
+
+    private static class Event implements Comparable<Event> {
+        private double time;
+        private final int ride;
+        private final Visitor visitor;
+
+        Event(double time, int ride) {
+            this(time, ride, null);
+        }
+
+        Event(double time, int ride, Visitor visitor) {
+            this.time = time;
+            this.ride = ride;
+            this.visitor = visitor;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            return Double.compare(time, other.time);
+        }
+    }
+
+    // 记录游客的入队时刻（模拟时间），上车时换算为等待时长
+    private static class BoardingClock implements RideEventListener {
+        private final SimulationResult result;
+        private final Map<Ride, SimulationResult.RideResult> results = new IdentityHashMap<>();
+        private final Map<Visitor, Double> queuedAt = new IdentityHashMap<>();
+        private double now;
+
+        BoardingClock(SimulationResult result) {
+            this.result = result;
+        }
+
+        void register(Ride ride, SimulationResult.RideResult rideResult) {
+            results.put(ride, rideResult);
+        }
+
+        void queued(Visitor visitor) {
+            queuedAt.put(visitor, now);
+        }
+
+        // 游客仍在排队时视为离队并返回true，已经上车时返回false
+        boolean abandoned(Visitor visitor) {
+            return queuedAt.remove(visitor) != null;
+        }
+
+        @Override
+        public void visitorBoarded(Ride ride, Visitor visitor, int cycle) {
+            Double since = queuedAt.remove(visitor);
+            if (since != null) {
+                result.recordWait(results.get(ride), Math.round((now - since) * 60_000));
+            }
+        }
+    }
+}
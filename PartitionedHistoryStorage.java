@@ -0,0 +1,331 @@
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+/**
+ * 按时间分区的存储：记录按写入时刻（本地时区）归入按小时或按天划分的分区，每个分区是一个ObjectHistoryStorage
+ * 过期分区整块从头部摘除，与分区内的记录数无关。
+ * 排序时先在各分区内排序，再k路归并出全局有序的位置视图（分区序号 + 分区内位置，每条8字节），
+ * 之后写入的记录按写入顺序排在视图之后；摘除分区时从视图中过滤掉这些分区的记录
+ */
+public class PartitionedHistoryStorage implements HistoryStorage {
+    private final ChronoUnit unit;
+    private final ZoneId zone;
+    private final LongSupplier clock;
+
+    private final ArrayList<Partition> partitions = new ArrayList<>();
+    private Partition current;
+    private int size;
+    private long totalAdded; // 累计写入条数，用于计算各分区第一条记录的全局序号
+    private long dropped;    // 已摘除的记录数
+    private long nextSeq;    // 下一个分区的序号
+
+    // 全局有序视图：每项为 分区序号 << 32 | 分区内位置；null表示从未排序（按写入顺序）。数组创建后不再修改，快照可以直接引用
+    private long[] sortedView;
+    private int sortedSize;
+    private long sortedThrough; // 排序时的totalAdded，全局序号不小于它的记录按写入顺序排在视图之后
+
+    public PartitionedHistoryStorage(ChronoUnit unit) {
+        this(unit, ZoneId.systemDefault(), System::currentTimeMillis);
+    }
+
+    // unit不能超过一天（LocalDateTime只能按不超过一天的单位取整）
+    public PartitionedHistoryStorage(ChronoUnit unit, ZoneId zone, LongSupplier clock) {
+        if (unit.getDuration().compareTo(ChronoUnit.DAYS.getDuration()) > 0) {
+            throw new IllegalArgumentException("分区单位不能超过一天：" + unit);
+        }
+        this.unit = unit;
+        this.zone = zone;
+        this.clock = clock;
+    }
+
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+
+    // 时钟回拨时仍写入当前分区
+    @Override
+    public void add(Visitor visitor) {
+        long now = clock.getAsLong();
+        if (current == null || now >= current.endMillis) {
+            roll(now);
+        }
+        current.records.add(visitor);
+        size++;
+        totalAdded++;
+    }
+
+    private void roll(long now) {
+        LocalDateTime start = LocalDateTime.ofInstant(Instant.ofEpochMilli(now), zone).truncatedTo(unit);
+        long startMillis = start.atZone(zone).toInstant().toEpochMilli();
+        long endMillis = start.plus(1, unit).atZone(zone).toInstant().toEpochMilli(); // 按日历计算，跨夏令时也正确
+        current = new Partition(startMillis, endMillis, totalAdded, nextSeq++);
+        partitions.add(current);
+    }
+
+    /**
+     * 摘除结束时刻不晚于cutoffMillis的分区（从最旧的开始），返回被摘除的分区
+     * 只移动分区列表中的引用，不复制记录
+     */
+    public List<Partition> expireBefore(long cutoffMillis) {
+        int count = 0;
+        while (count < partitions.size() && partitions.get(count).endMillis <= cutoffMillis) {
+            count++;
+        }
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        List<Partition> expired = new ArrayList<>(partitions.subList(0, count));
+        partitions.subList(0, count).clear();
+        for (Partition partition : expired) {
+            size -= partition.size();
+            dropped += partition.size();
+        }
+        if (partitions.isEmpty()) {
+            current = null;
+        }
+        if (sortedView != null) {
+            long firstSeq = partitions.isEmpty() ? Long.MAX_VALUE : partitions.get(0).seq;
+            long[] kept = new long[sortedSize];
+            int n = 0;
+            for (int i = 0; i < sortedSize; i++) {
+                if (sortedView[i] >>> 32 >= firstSeq) {
+                    kept[n++] = sortedView[i];
+                }
+            }
+            sortedView = Arrays.copyOf(kept, n);
+            sortedSize = n;
+        }
+        return expired;
+    }
+
+    // 是否排序过：排序之后记录不再按分区排列，摘除的分区分散在各个位置
+    public boolean isSorted() {
+        return sortedView != null;
+    }
+
+    public List<Partition> getPartitions() {
+        return Collections.unmodifiableList(new ArrayList<>(partitions));
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        // 各分区按块增长，无需预留
+    }
+
+    @Override
+    public Visitor get(int index) {
+        Objects.checkIndex(index, size);
+        if (sortedView != null && index < sortedSize) {
+            long ref = sortedView[index];
+            return partitions.get((int) ((ref >>> 32) - partitions.get(0).seq)).records.get((int) ref);
+        }
+        long global = sortedView == null ? dropped + index : tailStart() + index - sortedSize;
+        Partition partition = partitionOf(global);
+        return partition.records.get((int) (global - partition.firstIndex));
+    }
+
+    // 排序之后写入、仍未摘除的第一条记录的全局序号
+    private long tailStart() {
+        return Math.max(sortedThrough, partitions.get(0).firstIndex);
+    }
+
+    // 按第一条记录的全局序号二分查找
+    private Partition partitionOf(long globalIndex) {
+        int low = 0;
+        int high = partitions.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (partitions.get(mid).firstIndex <= globalIndex) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return partitions.get(low);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 全局稳定排序：各分区内排序后k路归并，O(n log k)；相等的记录前面分区的优先，与整体稳定排序的结果一致
+     */
+    @Override
+    public void sort(Comparator<Visitor> comparator) {
+        int k = partitions.size();
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, k), (a, b) -> {
+            int c = comparator.compare(partitions.get(a[0]).records.get(a[1]), partitions.get(b[0]).records.get(b[1]));
+            return c != 0 ? c : Integer.compare(a[0], b[0]);
+        });
+        for (int i = 0; i < k; i++) {
+            Partition partition = partitions.get(i);
+            partition.records.sort(comparator);
+            if (partition.size() > 0) {
+                heads.add(new int[] {i, 0});
+            }
+        }
+        long[] view = new long[size];
+        int n = 0;
+        int[] head;
+        while ((head = heads.poll()) != null) {
+            Partition partition = partitions.get(head[0]);
+            view[n++] = partition.seq << 32 | head[1];
+            if (++head[1] < partition.size()) {
+                heads.add(head);
+            }
+        }
+        sortedView = view;
+        sortedSize = n;
+        sortedThrough = totalAdded;
+    }
+
+    // 未排序时各分区快照按顺序拼接；排序后先读全局有序视图，再读之后写入的记录
+    @Override
+    public Snapshot snapshot() {
+        if (sortedView != null) {
+            return sortedSnapshot();
+        }
+        Snapshot[] parts = new Snapshot[partitions.size()];
+        int[] starts = new int[parts.length];
+        int total = 0;
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = partitions.get(i).records.snapshot();
+            starts[i] = total;
+            total += parts[i].size();
+        }
+        int n = total;
+        return new Snapshot() {
+            @Override
+            public int size() {
+                return n;
+            }
+
+            @Override
+            public Visitor get(int index) {
+                Objects.checkIndex(index, n);
+                int part = partOf(index);
+                return parts[part].get(index - starts[part]);
+            }
+
+            @Override
+            public int read(int from, Visitor[] dest, int count) {
+                int total = Math.max(0, Math.min(count, n - from));
+                if (total == 0) {
+                    return 0;
+                }
+                int part = partOf(from);
+                int offset = from - starts[part];
+                for (int i = 0; i < total; i++) {
+                    if (offset == parts[part].size()) {
+                        part++;
+                        offset = 0;
+                    }
+                    dest[i] = parts[part].get(offset++);
+                }
+                return total;
+            }
+
+            // 分区在写入第一条记录时才创建，不存在空分区，各分区起点互不相同
+            private int partOf(int index) {
+                int part = Arrays.binarySearch(starts, index);
+                return part >= 0 ? part : -part - 2;
+            }
+        };
+    }
+
+    private Snapshot sortedSnapshot() {
+        int partCount = partitions.size();
+        Snapshot[] parts = new Snapshot[partCount];
+        long[] firstIndexes = new long[partCount];
+        for (int i = 0; i < partCount; i++) {
+            parts[i] = partitions.get(i).records.snapshot();
+            firstIndexes[i] = partitions.get(i).firstIndex;
+        }
+        long[] view = sortedView;
+        int viewSize = sortedSize;
+        long firstSeq = partCount == 0 ? 0 : partitions.get(0).seq;
+        long tail = partCount == 0 ? 0 : tailStart();
+        int n = size;
+        return new Snapshot() {
+            @Override
+            public int size() {
+                return n;
+            }
+
+            @Override
+            public Visitor get(int index) {
+                Objects.checkIndex(index, n);
+                if (index < viewSize) {
+                    long ref = view[index];
+                    return parts[(int) ((ref >>> 32) - firstSeq)].get((int) ref);
+                }
+                long global = tail + index - viewSize;
+                int part = Arrays.binarySearch(firstIndexes, global);
+                part = part >= 0 ? part : -part - 2;
+                return parts[part].get((int) (global - firstIndexes[part]));
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Visitor> iterator() {
+        Snapshot snapshot = snapshot();
+        return new Iterator<Visitor>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.size();
+            }
+
+            @Override
+            public Visitor next() {
+                if (next >= snapshot.size()) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot.get(next++);
+            }
+        };
+    }
+
+    /**
+     * 一个时间分区：[startMillis, endMillis)内写入的记录
+     */
+    public static final class Partition implements Iterable<Visitor> {
+        private final long startMillis;
+        private final long endMillis;
+        private final long firstIndex;
+        private final long seq;
+        private final ObjectHistoryStorage records = new ObjectHistoryStorage();
+
+        private Partition(long startMillis, long endMillis, long firstIndex, long seq) {
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.firstIndex = firstIndex;
+            this.seq = seq;
+        }
+
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        public long getEndMillis() {
+            return endMillis;
+        }
+
+        public int size() {
+            return records.size();
+        }
+
+        @Override
+        public Iterator<Visitor> iterator() {
+            return records.iterator();
+        }
+    }
+}
@@ -46,6 +46,11 @@ public abstract class Person {
     // 重写toString方法，便于打印人员信息
     @Override
     public String toString() {
-        return "姓名：" + name + "，年龄：" + age + "，联系电话：" + phoneNumber;
+        return appendTo(new StringBuilder(64)).toString();
+    }
+
+    // 把toString的内容追加到sb，批量打印时复用同一个StringBuilder
+    public StringBuilder appendTo(StringBuilder sb) {
+        return sb.append("姓名：").append(name).append("，年龄：").append(age).append("，联系电话：").append(phoneNumber);
     }
 }
\ No newline at end of file
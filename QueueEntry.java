@@ -0,0 +1,39 @@
+/**
+ * 等待队列中的一项：游客、进入实体队列的时间（System.nanoTime，用于统计等待时长），
+ * 以及所在通道和在该通道中的入队序号（用于O(1)估算前面还有多少人）
+ */
+public class QueueEntry {
+    private final Visitor visitor;
+    private final long enqueueNanos;
+    private final boolean fastLane;
+    private final long laneSequence;
+
+    // IndexedLane的链表节点和槽位，只由所在通道修改
+    IndexedLane lane;
+    int slot;
+    QueueEntry prev;
+    QueueEntry next;
+
+    public QueueEntry(Visitor visitor, long enqueueNanos, boolean fastLane, long laneSequence) {
+        this.visitor = visitor;
+        this.enqueueNanos = enqueueNanos;
+        this.fastLane = fastLane;
+        this.laneSequence = laneSequence;
+    }
+
+    public Visitor getVisitor() {
+        return visitor;
+    }
+
+    public long getEnqueueNanos() {
+        return enqueueNanos;
+    }
+
+    public boolean isFastLane() {
+        return fastLane;
+    }
+
+    public long getLaneSequence() {
+        return laneSequence;
+    }
+}
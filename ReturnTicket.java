@@ -0,0 +1,37 @@
+/**
+ * 回场票：实体队列已满时发给游客，记录票号和预计可回到队列的周期
+ */
+public class ReturnTicket {
+    private final long ticketNumber;
+    private final Visitor visitor;
+    private final int issuedAtCycle;
+    private final int estimatedReturnCycle;
+
+    public ReturnTicket(long ticketNumber, Visitor visitor, int issuedAtCycle, int estimatedReturnCycle) {
+        this.ticketNumber = ticketNumber;
+        this.visitor = visitor;
+        this.issuedAtCycle = issuedAtCycle;
+        this.estimatedReturnCycle = estimatedReturnCycle;
+    }
+
+    public long getTicketNumber() {
+        return ticketNumber;
+    }
+
+    public Visitor getVisitor() {
+        return visitor;
+    }
+
+    public int getIssuedAtCycle() {
+        return issuedAtCycle;
+    }
+
+    public int getEstimatedReturnCycle() {
+        return estimatedReturnCycle;
+    }
+
+    @Override
+    public String toString() {
+        return "回场票#" + ticketNumber + "（游客：" + visitor.getName() + "，预计第" + estimatedReturnCycle + "个周期后回到队列）";
+    }
+}
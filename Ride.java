@@ -1,5 +1,21 @@
 import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
 
 /**
  * 游乐设施类，实现RideInterface接口
@@ -11,30 +27,92 @@ public class Ride implements RideInterface {
     private String rideType;
     private Employee operator; // 必须为Employee类型
 
-    // Part3：等待队列（FIFO）
-    private Queue<Visitor> waitingQueue;
+    // 设施编号：进程内唯一，全园索引只保存编号而不引用设施对象
+    private static final AtomicInteger RIDE_IDS = new AtomicInteger();
+    private final int rideId = RIDE_IDS.getAndIncrement();
 
-    // Part4A：历史记录（LinkedList）
-    private LinkedList<Visitor> rideHistory;
+    // Part3：等待队列（FIFO，可开启快速通行优先）；并发模式下为无锁队列
+    private WaitingQueue waitingQueue;
+    private final boolean concurrent;
+
+    // 队列容量与准入控制（默认不限容量）
+    private volatile AdmissionPolicy admissionPolicy = AdmissionPolicy.REJECT;
+    private volatile long blockTimeoutMillis = 1000;
+    private final Queue<ReturnTicket> virtualQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger virtualQueueSize = new AtomicInteger();
+    private final AtomicLong ticketSequence = new AtomicLong();
+
+    // Part4A：历史记录（保持插入顺序，并按visitorId建立哈希索引）
+    private RideHistory rideHistory;
 
     // Part5：运行相关变量
     private int maxRider; // 单周期最大载客量
-    private int numOfCycles; // 运行次数
+    private volatile int numOfCycles; // 运行次数
+
+    private static final int IMPORT_BATCH_SIZE = 8192;
+
+    // 分页读取和打印时每页的条数
+    private static final int PAGE_SIZE = 1024;
+
+    // ridersAgedBetween使用的有序视图名称
+    private static final String AGE_VIEW = "年龄";
+
+    // 事件监听器：默认不输出任何内容，演示菜单使用ConsoleRideListener
+    private volatile RideEventListener listener = RideEventListener.NO_OP;
+
+    // 游客注册表：设置后入队、添加历史记录和导入的游客都换成同一ID的共用对象
+    private volatile VisitorRegistry visitorRegistry;
+
+    // 全园游客乘坐索引：由Park设置，上车时直接写入，不经过事件监听器，更换监听器不会影响索引
+    private volatile VisitorRideIndex visitorIndex;
+
+    // 历史记录锁：运行周期、历史记录读写都在此锁内完成，保证一个周期的上车过程是原子的
+    private final Object historyLock = new Object();
+
+    // 运行指标：记录不加锁，可随时读取快照
+    private final RideMetrics metrics = new RideMetrics();
+
+    // 历史记录保留策略（开启分区后生效）：保留时长为null表示不删除，归档目录为null表示直接删除
+    private volatile Duration historyRetention;
+    private volatile Path archiveDirectory;
+    private volatile LongSupplier historyClock = System::currentTimeMillis;
+    private final Queue<PartitionedHistoryStorage.Partition> pendingArchives = new ConcurrentLinkedQueue<>();
+    private final Object archiveLock = new Object();
+    private static final DateTimeFormatter ARCHIVE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmm");
+
+    // 等待时间估算：运行周期时更新，查询不加锁
+    private final WaitEstimator waitEstimator;
+
+    // 事件日志：开启后每次修改队列、历史记录和配置都追加一条事件，重启时从快照和其后的事件恢复
+    private volatile RideJournal journal;
+    private final Object journalSnapshotLock = new Object();
 
     // 构造函数
     public Ride() {
-        this.waitingQueue = new LinkedList<>();
-        this.rideHistory = new LinkedList<>();
+        this.concurrent = false;
+        this.waitingQueue = new WaitingQueue(false);
+        this.rideHistory = new RideHistory();
         this.numOfCycles = 0;
+        this.waitEstimator = new WaitEstimator(maxRider);
     }
 
     public Ride(String rideName, String rideType, Employee operator, int maxRider) {
+        this(rideName, rideType, operator, maxRider, false);
+    }
+
+    /**
+     * concurrent为true时启用并发模式：多个闸机线程可同时调用addVisitorToQueue，
+     * 入队为无锁操作（MPMC），runOneCycle在锁内一次性转移最多maxRider名游客
+     */
+    public Ride(String rideName, String rideType, Employee operator, int maxRider, boolean concurrent) {
         this.rideName = rideName;
         this.rideType = rideType;
         this.operator = operator;
         this.maxRider = Math.max(1, maxRider); // 确保至少1人
-        this.waitingQueue = new LinkedList<>();
-        this.rideHistory = new LinkedList<>();
+        this.concurrent = concurrent;
+        this.waitingQueue = new WaitingQueue(concurrent);
+        this.waitEstimator = new WaitEstimator(this.maxRider);
+        this.rideHistory = new RideHistory();
         this.numOfCycles = 0;
     }
 
@@ -43,6 +121,10 @@ public class Ride implements RideInterface {
         return rideName;
     }
 
+    public int getRideId() {
+        return rideId;
+    }
+
     public void setRideName(String rideName) {
         this.rideName = rideName;
     }
@@ -61,6 +143,10 @@ public class Ride implements RideInterface {
 
     public void setOperator(Employee operator) {
         this.operator = operator;
+        RideJournal j = journal;
+        if (j != null) {
+            j.operator(operator);
+        }
     }
 
     public int getMaxRider() {
@@ -69,45 +155,482 @@ public class Ride implements RideInterface {
 
     public void setMaxRider(int maxRider) {
         this.maxRider = Math.max(1, maxRider); // 确保至少1人
+        RideJournal j = journal;
+        if (j != null) {
+            j.maxRider(this.maxRider);
+        }
     }
 
     public int getNumOfCycles() {
         return numOfCycles;
     }
 
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    public RideEventListener getEventListener() {
+        return listener;
+    }
+
+    // 设置事件监听器，传入null时恢复为静默
+    public void setEventListener(RideEventListener listener) {
+        this.listener = listener == null ? RideEventListener.NO_OP : listener;
+    }
+
+    // 设置游客注册表（可多个设施共用），传入null时不再去重
+    public void setVisitorRegistry(VisitorRegistry visitorRegistry) {
+        this.visitorRegistry = visitorRegistry;
+    }
+
+    public VisitorRegistry getVisitorRegistry() {
+        return visitorRegistry;
+    }
+
+    // 设置全园游客乘坐索引，传入null时不再写入
+    void setVisitorIndex(VisitorRideIndex visitorIndex) {
+        this.visitorIndex = visitorIndex;
+    }
+
+    VisitorRideIndex getVisitorIndex() {
+        return visitorIndex;
+    }
+
+    private Visitor canonical(Visitor visitor) {
+        VisitorRegistry registry = visitorRegistry;
+        return registry == null ? visitor : registry.intern(visitor);
+    }
+
+    // 开启快速通行优先上车，例如(2, 1)表示每上2名快速通行游客再上1名普通游客
+    public void enableFastPassPriority(int fastPassPerRound, int standbyPerRound) {
+        waitingQueue.enablePriority(fastPassPerRound, standbyPerRound);
+        journalPriority();
+    }
+
+    public void disableFastPassPriority() {
+        waitingQueue.disablePriority();
+        journalPriority();
+    }
+
+    // 记录生效后的配置（enablePriority可能调整非法的比例）
+    private void journalPriority() {
+        RideJournal j = journal;
+        if (j != null) {
+            WaitingQueue queue = waitingQueue;
+            j.priority(queue.isPriority(), queue.getFastPassPerRound(), queue.getStandbyPerRound());
+        }
+    }
+
+    public boolean isFastPassPriority() {
+        return waitingQueue.isPriority();
+    }
+
+    /**
+     * 设置等待队列容量和队列已满时的准入策略
+     * 容量不足时：REJECT立即拒绝；BLOCK等待blockTimeoutMillis后拒绝；VIRTUAL_QUEUE发放回场票
+     */
+    public void setQueueCapacity(int capacity, AdmissionPolicy policy) {
+        this.admissionPolicy = policy == null ? AdmissionPolicy.REJECT : policy;
+        waitingQueue.setCapacity(capacity);
+    }
+
+    public int getQueueCapacity() {
+        return waitingQueue.getCapacity();
+    }
+
+    public AdmissionPolicy getAdmissionPolicy() {
+        return admissionPolicy;
+    }
+
+    public void setBlockTimeoutMillis(long blockTimeoutMillis) {
+        this.blockTimeoutMillis = Math.max(0, blockTimeoutMillis);
+    }
+
+    // 因队列已满被拒绝的游客总数
+    public long getRejectedCount() {
+        return metrics.getRejected();
+    }
+
+    public RideMetrics getMetrics() {
+        return metrics;
+    }
+
+    // 非阻塞读取当前指标，可以在其他线程运行周期时轮询
+    public RideMetrics.Snapshot getMetricsSnapshot() {
+        return metrics.snapshot();
+    }
+
+    public WaitEstimator getWaitEstimator() {
+        return waitEstimator;
+    }
+
+    // 现在排到队尾（普通通道）的预计等待毫秒数；尚无周期数据时返回-1
+    public long getEstimatedWaitMillis() {
+        return getEstimatedWaitMillis(false);
+    }
+
+    // 现在排到队尾的预计等待毫秒数；fastPass为true时按快速通道估算（未开启优先时与普通通道相同）
+    public long getEstimatedWaitMillis(boolean fastPass) {
+        WaitingQueue queue = waitingQueue;
+        boolean fastLane = fastPass && queue.isPriority();
+        long laneAhead = fastLane ? queue.fastLaneSize() : queue.standbyLaneSize();
+        return estimate(queue, fastLane, laneAhead);
+    }
+
+    // 队列中某游客的预计等待毫秒数；游客不在队列中或尚无周期数据时返回-1
+    public long getEstimatedWaitMillis(String visitorId) {
+        WaitingQueue queue = waitingQueue;
+        QueueEntry entry = queue.find(visitorId);
+        if (entry == null) {
+            return -1;
+        }
+        return estimate(queue, entry.isFastLane(), queue.aheadInLane(entry));
+    }
+
+    private long estimate(WaitingQueue queue, boolean fastLane, long laneAhead) {
+        long cycles = WaitEstimator.cyclesBefore(fastLane, laneAhead, queue.fastLaneSize(), queue.standbyLaneSize(),
+                queue.isPriority(), queue.getFastPassPerRound(), queue.getStandbyPerRound(),
+                waitEstimator.getRidersPerCycle());
+        return waitEstimator.estimateMillis(cycles, System.nanoTime());
+    }
+
+    // 历史最大队列长度
+    public int getQueueHighWaterMark() {
+        return waitingQueue.getHighWaterMark();
+    }
+
+    // 持回场票等待转入实体队列的人数
+    public int getVirtualQueueSize() {
+        return virtualQueueSize.get();
+    }
+
     // Part3：队列操作方法实现
     @Override
     public void addVisitorToQueue(Visitor visitor) {
+        offerVisitor(visitor);
+    }
+
+    /**
+     * 按准入策略把游客加入等待队列
+     * 返回true表示已进入实体队列或拿到回场票，false表示被拒绝
+     */
+    public boolean offerVisitor(Visitor visitor) {
         if (visitor == null) {
-            System.out.println("错误：游客对象不能为空，添加队列失败！");
+            listener.operationFailed(this, RideFailure.NULL_VISITOR_QUEUE, null);
+            return false;
+        }
+        visitor = canonical(visitor);
+        AdmissionPolicy policy = admissionPolicy;
+        // 已有人持票等待时，新游客也要排在虚拟队列之后，不能插队
+        if (policy != AdmissionPolicy.VIRTUAL_QUEUE || virtualQueueSize.get() == 0) {
+            if (offerJournaled(visitor)) {
+                metrics.recordEnqueued();
+                listener.visitorQueued(this, visitor);
+                return true;
+            }
+        }
+        switch (policy) {
+            case BLOCK:
+                try {
+                    if (offerBlocking(visitor)) {
+                        metrics.recordEnqueued();
+                        listener.visitorQueued(this, visitor);
+                        return true;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                break;
+            case VIRTUAL_QUEUE:
+                issueReturnTicket(visitor);
+                return true;
+            default:
+                break;
+        }
+        metrics.recordRejected();
+        listener.visitorRejected(this, visitor);
+        return false;
+    }
+
+    /**
+     * 批量入队：一次预留整批名额，整批只发出一个visitorsQueued事件；
+     * null游客逐个报告失败并跳过，队列名额不足时剩余游客按准入策略逐个处理
+     */
+    @Override
+    public int addVisitorsToQueue(Collection<Visitor> visitors) {
+        if (visitors == null) {
+            listener.operationFailed(this, RideFailure.NULL_VISITOR_QUEUE, null);
+            return 0;
+        }
+        List<Visitor> batch = new ArrayList<>(visitors.size());
+        for (Visitor visitor : visitors) {
+            if (visitor == null) {
+                listener.operationFailed(this, RideFailure.NULL_VISITOR_QUEUE, null);
+            } else {
+                batch.add(canonical(visitor));
+            }
+        }
+        // 有人持回场票时，整批都要排在虚拟队列之后
+        int queued = 0;
+        if (admissionPolicy != AdmissionPolicy.VIRTUAL_QUEUE || virtualQueueSize.get() == 0) {
+            RideJournal j = journal;
+            if (j == null) {
+                queued = waitingQueue.offerAll(batch);
+            } else {
+                synchronized (j) {
+                    queued = waitingQueue.offerAll(batch);
+                    if (queued > 0) {
+                        j.enqueueAll(queued == batch.size() ? batch : batch.subList(0, queued));
+                    }
+                }
+            }
+        }
+        if (queued > 0) {
+            List<Visitor> accepted = queued == batch.size() ? batch : batch.subList(0, queued);
+            metrics.recordEnqueued(queued);
+            listener.visitorsQueued(this, accepted);
+        }
+        int total = queued;
+        for (int i = queued; i < batch.size(); i++) {
+            if (offerVisitor(batch.get(i))) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    private void issueReturnTicket(Visitor visitor) {
+        int position = virtualQueueSize.incrementAndGet();
+        int perCycle = Math.max(1, maxRider); // 无参构造的设施maxRider为0
+        int cyclesToWait = (position + perCycle - 1) / perCycle;
+        ReturnTicket ticket = new ReturnTicket(ticketSequence.incrementAndGet(), visitor,
+                numOfCycles, numOfCycles + cyclesToWait);
+        virtualQueue.offer(ticket);
+        listener.returnTicketIssued(this, ticket);
+        promoteReturnTickets(); // 发票期间可能已腾出空位
+    }
+
+    // 实体队列有空位时，按票号顺序把持票游客转入
+    private void promoteReturnTickets() {
+        if (virtualQueueSize.get() == 0) {
             return;
         }
-        waitingQueue.offer(visitor);
-        System.out.println("成功添加游客【" + visitor.getName() + "】到【" + rideName + "】的等待队列");
+        synchronized (virtualQueue) {
+            ReturnTicket ticket;
+            while ((ticket = virtualQueue.peek()) != null && offerJournaled(ticket.getVisitor())) {
+                virtualQueue.poll();
+                virtualQueueSize.decrementAndGet();
+                metrics.recordEnqueued();
+                listener.visitorQueued(this, ticket.getVisitor());
+            }
+        }
+    }
+
+    /**
+     * 开启事件日志时，队列修改和对应的日志记录在日志锁内一起完成；周期的出队和CYCLE记录也在同一把锁内，
+     * 其他线程的入队、离队记录不会插在两者之间，重放时每个周期取出的仍是原来那批游客
+     */
+    private boolean offerJournaled(Visitor visitor) {
+        RideJournal j = journal;
+        if (j == null) {
+            return waitingQueue.offer(visitor);
+        }
+        synchronized (j) {
+            if (!waitingQueue.offer(visitor)) {
+                return false;
+            }
+            j.enqueue(visitor);
+            return true;
+        }
+    }
+
+    // 等待空位时不持有日志锁：先在锁外预留名额，再在日志锁内入队并记录
+    private boolean offerBlocking(Visitor visitor) throws InterruptedException {
+        RideJournal j = journal;
+        if (j == null) {
+            return waitingQueue.offer(visitor, blockTimeoutMillis);
+        }
+        WaitingQueue queue = waitingQueue;
+        if (!queue.awaitReservation(blockTimeoutMillis)) {
+            return false;
+        }
+        synchronized (j) {
+            queue.enqueueReserved(visitor);
+            j.enqueue(visitor);
+        }
+        return true;
     }
 
     @Override
     public void removeVisitorFromQueue() {
-        if (waitingQueue.isEmpty()) {
-            System.out.println("错误：【" + rideName + "】的等待队列为空，移除失败！");
+        // 直接poll并判空，避免并发模式下isEmpty与poll之间被其他线程取走
+        QueueEntry removed;
+        RideJournal j = journal;
+        if (j == null) {
+            removed = waitingQueue.poll();
+        } else {
+            synchronized (j) {
+                removed = waitingQueue.poll();
+                if (removed != null) {
+                    j.removeHead(1);
+                }
+            }
+        }
+        if (removed == null) {
+            listener.operationFailed(this, RideFailure.QUEUE_EMPTY_REMOVE, null);
             return;
         }
-        Visitor removed = waitingQueue.poll();
-        System.out.println("成功从【" + rideName + "】的等待队列移除游客：" + removed.getName());
+        metrics.recordRemoved();
+        listener.visitorRemovedFromQueue(this, removed.getVisitor());
+        promoteReturnTickets();
+    }
+
+    /**
+     * 游客在等待队列中的位置（按printQueue的顺序，0为队首）；不在队列中时返回-1
+     * 开启快速通行优先时实际上车顺序按比例交替，预计等待时间见getEstimatedWaitMillis
+     */
+    @Override
+    public int positionOf(String visitorId) {
+        WaitingQueue queue = waitingQueue;
+        QueueEntry entry = queue.find(visitorId);
+        long inLane = entry == null ? -1 : queue.positionInLane(entry);
+        if (inLane < 0) {
+            return -1;
+        }
+        long position = inLane + (entry.isFastLane() ? 0 : queue.fastLaneSize());
+        return (int) Math.min(position, Integer.MAX_VALUE);
+    }
+
+    // 游客中途离队（不论排在哪里）；非并发模式为O(log n)
+    @Override
+    public boolean removeVisitor(String visitorId) {
+        QueueEntry removed;
+        RideJournal j = journal;
+        if (j == null) {
+            removed = waitingQueue.remove(visitorId);
+        } else {
+            synchronized (j) {
+                removed = waitingQueue.remove(visitorId);
+                if (removed != null) {
+                    j.removeById(visitorId);
+                }
+            }
+        }
+        if (removed == null) {
+            listener.operationFailed(this, RideFailure.VISITOR_NOT_IN_QUEUE, visitorId);
+            return false;
+        }
+        metrics.recordRemoved();
+        listener.visitorRemovedFromQueue(this, removed.getVisitor());
+        promoteReturnTickets();
+        return true;
+    }
+
+    /**
+     * 排队中的游客购买快速通行证后转入快速通道队尾（保留原入队时刻），需要已开启快速通行优先。
+     * 所在通道只记录在本设施的队列项上，不修改共用的Visitor对象，其他设施和历史记录不受影响
+     */
+    @Override
+    public boolean moveToFastPass(String visitorId) {
+        if (!waitingQueue.isPriority()) {
+            listener.operationFailed(this, RideFailure.PRIORITY_DISABLED, null);
+            return false;
+        }
+        QueueEntry entry;
+        RideJournal j = journal;
+        if (j == null) {
+            entry = waitingQueue.moveToFastLane(visitorId);
+        } else {
+            synchronized (j) {
+                entry = waitingQueue.moveToFastLane(visitorId);
+                if (entry != null) {
+                    j.moveToFastPass(visitorId);
+                }
+            }
+        }
+        if (entry == null) {
+            listener.operationFailed(this, RideFailure.VISITOR_NOT_IN_QUEUE, visitorId);
+            return false;
+        }
+        listener.visitorMovedToFastPass(this, entry.getVisitor());
+        return true;
+    }
+
+    /**
+     * 按removeVisitorFromQueue的顺序从队首最多取出max名游客交给consumer，
+     * 只在取完后发出一个visitorsDrained事件并转入一次持票游客
+     */
+    @Override
+    public int drain(int max, Consumer<Visitor> consumer) {
+        if (consumer == null || max <= 0) {
+            return 0;
+        }
+        List<Visitor> drained = listener == RideEventListener.NO_OP ? null : new ArrayList<>();
+        int count;
+        RideJournal j = journal;
+        if (j == null) {
+            count = drainQueue(max, consumer, drained);
+        } else {
+            synchronized (j) { // consumer在日志锁内调用，取出的游客和REMOVE_HEAD记录之间不会插入其他记录
+                count = drainQueue(max, consumer, drained);
+                if (count > 0) {
+                    j.removeHead(count);
+                }
+            }
+        }
+        if (count > 0) {
+            metrics.recordRemoved(count);
+            if (drained != null) {
+                listener.visitorsDrained(this, drained);
+            }
+            promoteReturnTickets();
+        }
+        return count;
+    }
+
+    private int drainQueue(int max, Consumer<Visitor> consumer, List<Visitor> drained) {
+        int count = 0;
+        QueueEntry entry;
+        while (count < max && (entry = waitingQueue.poll()) != null) {
+            Visitor visitor = entry.getVisitor();
+            consumer.accept(visitor);
+            if (drained != null) {
+                drained.add(visitor);
+            }
+            count++;
+        }
+        return count;
     }
 
     @Override
     public void printQueue() {
+        printQueue(0, Integer.MAX_VALUE);
+    }
+
+    // 只打印从第offset名（从0开始）起的最多limit名游客，按页成批输出
+    public void printQueue(int offset, int limit) {
         System.out.println("\n【" + rideName + "】等待队列信息（当前队列长度：" + waitingQueue.size() + "）：");
         if (waitingQueue.isEmpty()) {
             System.out.println("队列无等待游客");
             return;
         }
-        int index = 1;
+        StringBuilder sb = new StringBuilder();
+        int index = 0;
+        int printed = 0;
         for (Visitor visitor : waitingQueue) {
-            System.out.println(index + ". " + visitor);
-            index++;
+            if (printed >= limit) {
+                break;
+            }
+            if (index++ < offset) {
+                continue;
+            }
+            visitor.appendTo(sb.append(index).append(". ")).append(System.lineSeparator());
+            if (++printed % PAGE_SIZE == 0) {
+                System.out.print(sb);
+                sb.setLength(0);
+            }
         }
+        System.out.print(sb);
         System.out.println();
     }
 
@@ -115,65 +638,541 @@ public class Ride implements RideInterface {
     @Override
     public void addVisitorToHistory(Visitor visitor) {
         if (visitor == null) {
-            System.out.println("错误：游客对象不能为空，添加历史记录失败！");
+            listener.operationFailed(this, RideFailure.NULL_VISITOR_HISTORY, null);
             return;
         }
-        rideHistory.add(visitor);
-        System.out.println("成功添加游客【" + visitor.getName() + "】到【" + rideName + "】的历史记录");
+        visitor = canonical(visitor);
+        synchronized (historyLock) {
+            rideHistory.add(visitor);
+            rideHistory.flush();
+            RideJournal j = journal;
+            if (j != null) {
+                j.historyAdd(visitor);
+            }
+        }
+        listener.visitorAddedToHistory(this, visitor);
     }
 
     @Override
     public boolean checkVisitorFromHistory(Visitor visitor) {
         if (visitor == null) {
-            System.out.println("错误：游客对象不能为空，查询失败！");
+            listener.operationFailed(this, RideFailure.NULL_VISITOR_CHECK, null);
             return false;
         }
-        boolean exists = rideHistory.contains(visitor);
-        if (exists) {
-            System.out.println("查询结果：游客【" + visitor.getName() + "】曾乘坐过【" + rideName + "】");
-        } else {
-            System.out.println("查询结果：游客【" + visitor.getName() + "】未乘坐过【" + rideName + "】");
+        boolean exists;
+        synchronized (historyLock) {
+            exists = rideHistory.contains(visitor);
         }
+        listener.historyChecked(this, visitor, exists);
         return exists;
     }
 
+    // 批量查询：给定游客ID是否全部乘坐过本设施
+    public boolean containsAll(Collection<String> visitorIds) {
+        if (visitorIds == null) {
+            listener.operationFailed(this, RideFailure.NULL_VISITOR_IDS, null);
+            return false;
+        }
+        synchronized (historyLock) {
+            return rideHistory.containsAll(visitorIds);
+        }
+    }
+
+    // 批量查询：给定游客ID中乘坐过本设施的人数
+    public int countRiders(Collection<String> visitorIds) {
+        if (visitorIds == null) {
+            listener.operationFailed(this, RideFailure.NULL_VISITOR_IDS, null);
+            return 0;
+        }
+        synchronized (historyLock) {
+            return rideHistory.countRiders(visitorIds);
+        }
+    }
+
     @Override
     public int numberOfVisitors() {
-        int count = rideHistory.size();
-        System.out.println("【" + rideName + "】的历史乘坐人数：" + count);
+        int count = getHistorySize();
+        listener.visitorsCounted(this, count);
         return count;
     }
 
     @Override
     public void printRideHistory() {
-        System.out.println("\n【" + rideName + "】历史乘坐记录（总人数：" + rideHistory.size() + "）：");
-        if (rideHistory.isEmpty()) {
+        printRideHistory(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 打印从第offset条（从0开始）起的最多limit条历史记录
+     * 基于游标按页读取和输出，不在打印期间持有历史记录锁，运行周期可以同时追加
+     */
+    public void printRideHistory(int offset, int limit) {
+        HistoryCursor cursor = openHistoryCursor(PAGE_SIZE);
+        System.out.println("\n【" + rideName + "】历史乘坐记录（总人数：" + cursor.size() + "）：");
+        if (cursor.size() == 0) {
             System.out.println("暂无历史乘坐记录");
             return;
         }
+        cursor.seek(offset);
         // 必须使用Iterator遍历（否则无分）
-        Iterator<Visitor> iterator = rideHistory.iterator();
-        int index = 1;
-        while (iterator.hasNext()) {
-            Visitor visitor = iterator.next();
-            System.out.println(index + ". " + visitor);
-            index++;
+        Iterator<Visitor> iterator = cursor;
+        StringBuilder sb = new StringBuilder();
+        int printed = 0;
+        while (printed < limit && iterator.hasNext()) {
+            int index = cursor.position() + 1;
+            iterator.next().appendTo(sb.append(index).append(". ")).append(System.lineSeparator());
+            if (++printed % PAGE_SIZE == 0) {
+                System.out.print(sb);
+                sb.setLength(0);
+            }
         }
+        System.out.print(sb);
         System.out.println();
     }
 
+    // 读取从offset开始的最多limit条历史记录；只在取快照时短暂持有历史记录锁
+    public List<Visitor> historyPage(int offset, int limit) {
+        HistoryStorage.Snapshot snapshot = snapshotHistory();
+        int from = Math.max(0, offset);
+        int count = Math.max(0, Math.min(limit, snapshot.size() - from));
+        Visitor[] page = new Visitor[count];
+        snapshot.read(from, page, count);
+        return Arrays.asList(page);
+    }
+
+    // 当前历史记录的惰性流：打开时固定条数，按页读取
+    public Stream<Visitor> historyStream() {
+        return openHistoryCursor(PAGE_SIZE).stream();
+    }
+
+    public HistoryCursor openHistoryCursor(int pageSize) {
+        return new HistoryCursor(snapshotHistory(), pageSize);
+    }
+
+    /**
+     * 取历史记录的快照：默认存储的快照无需加锁读取；
+     * 其他存储按页在锁内读取，期间历史记录被排序或重建时抛出ConcurrentModificationException
+     */
+    private HistoryStorage.Snapshot snapshotHistory() {
+        synchronized (historyLock) {
+            HistoryStorage.Snapshot snapshot = rideHistory.getStorage().snapshot();
+            if (snapshot != null) {
+                return snapshot;
+            }
+            int size = rideHistory.size();
+            long version = rideHistory.getVersion();
+            return new HistoryStorage.Snapshot() {
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Visitor get(int index) {
+                    Objects.checkIndex(index, size);
+                    synchronized (historyLock) {
+                        checkVersion();
+                        return rideHistory.get(index);
+                    }
+                }
+
+                @Override
+                public int read(int from, Visitor[] dest, int count) {
+                    int n = Math.max(0, Math.min(count, size - from));
+                    synchronized (historyLock) {
+                        checkVersion();
+                        for (int i = 0; i < n; i++) {
+                            dest[i] = rideHistory.get(from + i);
+                        }
+                    }
+                    return n;
+                }
+
+                private void checkVersion() {
+                    if (rideHistory.getVersion() != version) {
+                        throw new ConcurrentModificationException("历史记录已被排序或重建，快照失效");
+                    }
+                }
+            };
+        }
+    }
+
     // Part4B：历史记录排序方法
     public void sortRideHistory(Comparator<Visitor> comparator) {
         if (comparator == null) {
-            System.out.println("错误：比较器不能为空，排序失败！");
+            listener.operationFailed(this, RideFailure.NULL_COMPARATOR, null);
             return;
         }
-        if (rideHistory.isEmpty()) {
-            System.out.println("错误：历史记录为空，排序失败！");
+        synchronized (historyLock) {
+            if (rideHistory.isEmpty()) {
+                listener.operationFailed(this, RideFailure.HISTORY_EMPTY_SORT, null);
+                return;
+            }
+            rideHistory.sort(comparator);
+        }
+        journalStateChanged(); // 排序无法作为事件重放，改写快照
+        listener.historySorted(this);
+    }
+
+    /**
+     * 添加按比较器维护的有序视图：不改变历史记录的原有顺序，之后每次上车增量更新。
+     * 返回的视图可以在锁外并发读取，适合看板反复刷新
+     */
+    public SortedHistoryView addSortedView(String name, Comparator<Visitor> comparator) {
+        if (comparator == null) {
+            listener.operationFailed(this, RideFailure.NULL_COMPARATOR, null);
+            return null;
+        }
+        synchronized (historyLock) {
+            return rideHistory.view(name, comparator);
+        }
+    }
+
+    /**
+     * 切换为列式历史存储（已有记录按原顺序迁移），适合千万级记录的设施：
+     * 堆内只保留基本类型数组和去重后的字符串，遍历、导出时才创建Visitor对象。
+     * 有序视图仍保存Visitor引用，使用视图时会抵消一部分节省
+     */
+    public void useColumnarHistory() {
+        synchronized (historyLock) {
+            if (!(rideHistory.getStorage() instanceof ColumnarHistoryStorage)) {
+                rideHistory.migrateTo(new ColumnarHistoryStorage());
+            }
+        }
+    }
+
+    /**
+     * 开启按时间分区的历史记录（unit为HOURS、DAYS等不超过一天的单位），已有记录归入当前分区。
+     * 每次运行周期后自动删除早于retention的分区（O(分区数)，与记录数无关）；archiveDir不为null时
+     * 先以CSV导出格式写入“history-分区开始时间.csv”（每个设施应使用单独的目录），可以再用importRideHistoryFromDirectory导回。
+     * 删除分区后numberOfVisitors只统计保留的记录，累计上车人数见getMetrics()。
+     * 之后切换为列式存储或日志存储会取消分区
+     */
+    public void enableHistoryPartitioning(ChronoUnit unit, Duration retention, String archiveDir) {
+        enableHistoryPartitioning(unit, retention, archiveDir, System::currentTimeMillis);
+    }
+
+    // clock为毫秒时钟，模拟时可以传入模拟时间
+    public void enableHistoryPartitioning(ChronoUnit unit, Duration retention, String archiveDir, LongSupplier clock) {
+        PartitionedHistoryStorage storage;
+        try {
+            storage = new PartitionedHistoryStorage(unit, ZoneId.systemDefault(), clock);
+        } catch (IllegalArgumentException e) {
+            listener.operationFailed(this, RideFailure.INVALID_PARTITION_UNIT, String.valueOf(unit));
+            return;
+        }
+        synchronized (historyLock) {
+            historyClock = clock;
+            metrics.setClock(clock);
+            historyRetention = retention;
+            archiveDirectory = archiveDir == null || archiveDir.trim().isEmpty() ? null : Paths.get(archiveDir);
+            rideHistory.migrateTo(storage);
+        }
+    }
+
+    // 当前保留的分区（未开启分区时为空列表）
+    public List<PartitionedHistoryStorage.Partition> getHistoryPartitions() {
+        synchronized (historyLock) {
+            HistoryStorage storage = rideHistory.getStorage();
+            return storage instanceof PartitionedHistoryStorage
+                    ? ((PartitionedHistoryStorage) storage).getPartitions() : Collections.emptyList();
+        }
+    }
+
+    // 最近windowMillis毫秒内上车的人数（滚动计数，不扫描历史记录）
+    public long getRidersInLast(long windowMillis) {
+        return metrics.getRidersInLast(windowMillis);
+    }
+
+    /**
+     * 按保留策略删除过期分区并归档，返回删除的分区数；运行周期后会自动调用。
+     * 只在摘除分区时持有历史记录锁，归档写文件在锁外进行，归档失败的分区留到下次重试
+     */
+    public int applyHistoryRetention() {
+        Duration retention = historyRetention;
+        List<PartitionedHistoryStorage.Partition> expired = Collections.emptyList();
+        if (retention != null) {
+            synchronized (historyLock) {
+                expired = rideHistory.expirePartitions(historyClock.getAsLong() - retention.toMillis());
+            }
+            if (!expired.isEmpty()) {
+                journalStateChanged();
+            }
+        }
+        Path dir = archiveDirectory;
+        if (dir != null) {
+            pendingArchives.addAll(expired);
+            archivePendingPartitions(dir);
+        }
+        return expired.size();
+    }
+
+    private void archivePendingPartitions(Path dir) {
+        synchronized (archiveLock) {
+            PartitionedHistoryStorage.Partition partition;
+            while ((partition = pendingArchives.peek()) != null) {
+                String start = ARCHIVE_TIME.format(Instant.ofEpochMilli(partition.getStartMillis()).atZone(ZoneId.systemDefault()));
+                Path file = dir.resolve("history-" + start + ".csv"); // 文件名不含设施名，非UTF-8文件系统也能创建
+                try {
+                    Files.createDirectories(dir);
+                    try (CsvHistoryWriter writer = new CsvHistoryWriter(file, false)) {
+                        for (Visitor visitor : partition) {
+                            writer.write(visitor);
+                        }
+                        writer.sync();
+                    }
+                } catch (IOException e) {
+                    listener.operationFailed(this, RideFailure.ARCHIVE_FAILED, e.getMessage());
+                    return;
+                }
+                pendingArchives.poll();
+                listener.historyExported(this, file.toString(), "归档文件", partition.size());
+            }
+        }
+    }
+
+    /**
+     * 启用持久化历史记录：打开（或创建）内存映射日志文件，恢复其中的记录作为历史记录，
+     * 当前内存中的记录追加到日志之后；此后每个周期和每次添加历史记录都直接写入日志，
+     * 按flushPolicy落盘。返回从日志恢复的记录数，失败时返回-1
+     */
+    public int openHistoryLog(String filePath, MappedHistoryStorage.FlushPolicy flushPolicy) {
+        if (filePath == null || filePath.trim().isEmpty()) {
+            listener.operationFailed(this, RideFailure.HISTORY_LOG_FAILED, "文件路径不能为空");
+            return -1;
+        }
+        int recovered;
+        synchronized (historyLock) {
+            if (rideHistory.getStorage() instanceof MappedHistoryStorage) {
+                listener.operationFailed(this, RideFailure.HISTORY_LOG_FAILED, "已经打开了历史记录日志");
+                return -1;
+            }
+            try {
+                MappedHistoryStorage log = MappedHistoryStorage.open(Paths.get(filePath), flushPolicy);
+                rideHistory.migrateTo(log);
+                log.force();
+                recovered = log.getRecoveredRecords();
+            } catch (IOException | RuntimeException e) {
+                listener.operationFailed(this, RideFailure.HISTORY_LOG_FAILED, e.getMessage());
+                return -1;
+            }
+        }
+        if (recovered > 0) {
+            journalStateChanged(); // 从历史记录日志恢复的记录不在事件日志中
+        }
+        return recovered;
+    }
+
+    // 关闭持久化日志：记录转回内存中的列式存储，日志文件落盘并截断到有效长度
+    public void closeHistoryLog() {
+        synchronized (historyLock) {
+            if (!(rideHistory.getStorage() instanceof MappedHistoryStorage)) {
+                return;
+            }
+            MappedHistoryStorage log = (MappedHistoryStorage) rideHistory.getStorage();
+            rideHistory.migrateTo(new ColumnarHistoryStorage());
+            try {
+                log.close();
+            } catch (IOException e) {
+                listener.operationFailed(this, RideFailure.HISTORY_LOG_FAILED, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 开启事件日志（事件溯源）：目录中已有快照时，先加载最新的快照并重放其后的事件，
+     * 用恢复的状态替换当前的等待队列、历史记录、周期数、载客量、操作员和快速通行配置
+     * （历史记录恢复为默认存储，之后可以再切换列式或分区存储）；目录为空时以当前状态为起点。
+     * 随后写入一个新快照，之后每次入队、离队、运行周期、添加历史记录和修改上述配置都追加到日志，
+     * 运行周期后按flushPolicy落盘，累计事件数达到快照间隔时自动写快照并删除旧的日志。
+     * 返回重放的事件数，失败时返回-1。启动时调用，恢复期间不应有其他线程操作本设施。
+     * 回场票（VIRTUAL_QUEUE准入策略下的虚拟队列）不写入日志，恢复后不保留，持票游客需要重新排队
+     */
+    public long enableJournal(String dirPath, MappedHistoryStorage.FlushPolicy flushPolicy) {
+        if (dirPath == null || dirPath.trim().isEmpty()) {
+            listener.operationFailed(this, RideFailure.JOURNAL_FAILED, "目录不能为空");
+            return -1;
+        }
+        if (journal != null) {
+            listener.operationFailed(this, RideFailure.JOURNAL_FAILED, "已经开启了事件日志");
+            return -1;
+        }
+        Path dir = Paths.get(dirPath);
+        RideJournal.Recovery recovery;
+        synchronized (historyLock) {
+            try {
+                recovery = RideJournal.recover(dir, this);
+                journal = RideJournal.open(dir, recovery.getNextSegment(), flushPolicy);
+            } catch (IOException | RuntimeException e) {
+                listener.operationFailed(this, RideFailure.JOURNAL_FAILED, e.getMessage());
+                return -1;
+            }
+        }
+        if (recovery.getDamagedSegment() >= 0) {
+            // 只恢复到损坏处为止；随后的快照以恢复出的状态为起点，损坏和未重放的日志已改名隔离，不会被删除
+            listener.operationFailed(this, RideFailure.JOURNAL_FAILED, "事件日志journal-" + recovery.getDamagedSegment()
+                    + ".log中途损坏，之后的" + recovery.getSkippedSegments() + "个日志未重放，已改名为*.log.damaged保留");
+        }
+        // 新日志从空文件开始，先写快照作为起点，之后的恢复不再依赖旧文件
+        return journalSnapshot() ? recovery.getEvents() : -1;
+    }
+
+    /**
+     * 立即写快照：在历史记录锁内复制队列、取得历史记录快照并切换到新日志文件，
+     * 写文件在锁外进行；快照提交后删除更早的快照和日志。未开启事件日志时返回false
+     */
+    public boolean journalSnapshot() {
+        synchronized (journalSnapshotLock) {
+            RideJournal j = journal;
+            if (j == null) {
+                return false;
+            }
+            RideJournal.State state = new RideJournal.State();
+            int segment;
+            try {
+                synchronized (historyLock) {
+                    synchronized (j) { // 与追加事件互斥，快照恰好对应新日志文件的起点
+                        WaitingQueue queue = waitingQueue;
+                        state.numOfCycles = numOfCycles;
+                        state.maxRider = maxRider;
+                        state.operator = operator;
+                        state.priority = queue.isPriority();
+                        state.fastPassPerRound = queue.getFastPassPerRound();
+                        state.standbyPerRound = queue.getStandbyPerRound();
+                        state.fastLane = queue.laneVisitors(true);
+                        state.standbyLane = queue.laneVisitors(false);
+                        state.history = snapshotHistory();
+                        segment = j.rotate();
+                    }
+                }
+                RideJournal.writeSnapshot(j.getDirectory(), segment, state);
+                return true;
+            } catch (IOException | RuntimeException e) {
+                listener.operationFailed(this, RideFailure.JOURNAL_FAILED, e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    // 每累计多少条事件自动写一次快照（默认100万），快照越频繁恢复越快
+    public void setJournalSnapshotInterval(long events) {
+        RideJournal j = journal;
+        if (j != null) {
+            j.setSnapshotInterval(events);
+        }
+    }
+
+    // 关闭事件日志：当前日志落盘，之后的修改不再记录
+    public void closeJournal() {
+        RideJournal j = journal;
+        if (j == null) {
             return;
         }
-        Collections.sort(rideHistory, comparator);
-        System.out.println("成功对【" + rideName + "】的历史记录进行排序");
+        journal = null;
+        try {
+            j.close();
+        } catch (IOException e) {
+            listener.operationFailed(this, RideFailure.JOURNAL_FAILED, e.getMessage());
+        }
+    }
+
+    // 无法作为事件重放的整体修改（排序、删除过期分区、从历史记录日志恢复）之后写快照
+    private void journalStateChanged() {
+        if (journal != null) {
+            journalSnapshot();
+        }
+    }
+
+    // 运行周期后按落盘策略force日志，事件数达到间隔时写快照
+    private void flushJournal() {
+        RideJournal j = journal;
+        if (j == null) {
+            return;
+        }
+        j.flush();
+        if (j.isSnapshotDue()) {
+            journalSnapshot();
+        }
+    }
+
+    // 以下方法只在enableJournal恢复时调用：调用方持有historyLock，事件日志尚未开启，不发出事件、不更新指标
+
+    void restoreJournalState(RideJournal.State state) {
+        WaitingQueue queue = new WaitingQueue(concurrent);
+        queue.setCapacity(waitingQueue.getCapacity());
+        if (state.priority) {
+            queue.enablePriority(state.fastPassPerRound, state.standbyPerRound);
+        }
+        for (Visitor visitor : state.fastLane) {
+            queue.restore(canonical(visitor), true);
+        }
+        for (Visitor visitor : state.standbyLane) {
+            queue.restore(canonical(visitor), false);
+        }
+        List<Visitor> rows = new ArrayList<>(state.historyRows.size());
+        for (Visitor visitor : state.historyRows) {
+            rows.add(canonical(visitor));
+        }
+        RideHistory history = new RideHistory();
+        history.addAll(rows);
+        waitingQueue = queue;
+        rideHistory = history;
+        numOfCycles = state.numOfCycles;
+        maxRider = Math.max(1, state.maxRider);
+        operator = state.operator;
+    }
+
+    void replayEnqueue(Visitor visitor) {
+        waitingQueue.restore(canonical(visitor));
+    }
+
+    void replayRemoveHead(int count) {
+        int removed = 0;
+        while (removed < count && waitingQueue.poll() != null) {
+            removed++;
+        }
+    }
+
+    void replayRemoveVisitor(String visitorId) {
+        waitingQueue.remove(visitorId);
+    }
+
+    void replayMoveToFastPass(String visitorId) {
+        waitingQueue.moveToFastLane(visitorId);
+    }
+
+    void replayHistoryAdd(Visitor visitor) {
+        rideHistory.add(canonical(visitor));
+    }
+
+    // 按与boardOneCycle相同的上车规则转移riders名游客
+    void replayCycle(int riders) {
+        waitingQueue.startCycle();
+        for (int i = 0; i < riders; i++) {
+            QueueEntry entry = waitingQueue.pollForBoarding();
+            if (entry == null) {
+                break;
+            }
+            rideHistory.add(entry.getVisitor());
+        }
+        numOfCycles++;
+    }
+
+    public SortedHistoryView getSortedView(String name) {
+        synchronized (historyLock) {
+            return rideHistory.getView(name);
+        }
+    }
+
+    // 年龄在[minAge, maxAge]之间的乘客，按年龄、姓名排序，O(log n + k)
+    public List<Visitor> ridersAgedBetween(int minAge, int maxAge) {
+        if (minAge > maxAge) {
+            return new ArrayList<>();
+        }
+        SortedHistoryView byAge = addSortedView(AGE_VIEW, new VisitorComparator());
+        // 空姓名排在同龄游客之前，作为区间边界
+        Visitor from = new Visitor("", minAge, null, null, false);
+        Visitor to = maxAge == Integer.MAX_VALUE ? null : new Visitor("", maxAge + 1, null, null, false);
+        return byAge.range(from, to);
     }
 
     // Part5：运行一个设施周期
@@ -181,40 +1180,116 @@ public class Ride implements RideInterface {
     public void runOneCycle() {
         // 校验条件：无操作员
         if (operator == null) {
-            System.out.println("错误：【" + rideName + "】未分配操作员，无法运行！");
+            listener.operationFailed(this, RideFailure.NO_OPERATOR, null);
             return;
         }
-        // 校验条件：无等待游客
-        if (waitingQueue.isEmpty()) {
-            System.out.println("错误：【" + rideName + "】的等待队列为空，无法运行！");
-            return;
+        // 周期在历史记录锁内执行：并发模式下两个周期不会交错，上车的游客一次性写入历史记录
+        synchronized (historyLock) {
+            // 校验条件：无等待游客
+            if (waitingQueue.isEmpty()) {
+                listener.operationFailed(this, RideFailure.QUEUE_EMPTY_RUN, null);
+                return;
+            }
+            boardOneCycle();
+            rideHistory.flush();
         }
+        promoteReturnTickets();
+        if (historyRetention != null) {
+            applyHistoryRetention();
+        }
+        flushJournal();
+    }
 
-        System.out.println("\n【" + rideName + "】开始运行第" + (numOfCycles + 1) + "个周期（最大载客量：" + maxRider + "）");
-        System.out.println("操作员：" + operator.getName() + "（" + operator.getPosition() + "）");
-        
-        int ridersThisCycle = 0;
+    /**
+     * 连续运行最多n个周期：操作员只校验一次，整批只获取一次历史记录锁、只落盘一次；
+     * 队列为空时提前结束（一个周期都没运行时报告失败）。每个周期的事件与runOneCycle相同
+     */
+    @Override
+    public int runCycles(int n) {
+        if (operator == null) {
+            listener.operationFailed(this, RideFailure.NO_OPERATOR, null);
+            return 0;
+        }
+        int cycles = 0;
+        synchronized (historyLock) {
+            while (cycles < n && !waitingQueue.isEmpty()) {
+                boardOneCycle();
+                cycles++;
+                promoteReturnTickets(); // 持票游客可以赶上后面的周期
+            }
+            rideHistory.flush();
+        }
+        if (cycles == 0 && n > 0) {
+            listener.operationFailed(this, RideFailure.QUEUE_EMPTY_RUN, null);
+        } else if (historyRetention != null) {
+            applyHistoryRetention();
+        }
+        flushJournal();
+        return cycles;
+    }
 
-        // 按maxRider数量从队列转移到历史记录
-        while (!waitingQueue.isEmpty() && ridersThisCycle < maxRider) {
-            Visitor visitor = waitingQueue.poll();
-            rideHistory.add(visitor);
-            System.out.println("游客【" + visitor.getName() + "】已上车");
-            ridersThisCycle++;
+    // 运行一个周期的上车过程，调用方持有historyLock并已确认队列非空
+    private void boardOneCycle() {
+        int cycle = numOfCycles + 1;
+        listener.cycleStarted(this, cycle);
+
+        int ridersThisCycle;
+        waitingQueue.startCycle();
+        long boardingNanos = System.nanoTime(); // 同一周期的游客共用一个上车时刻
+        waitEstimator.cycleStarted(boardingNanos);
+
+        RideJournal j = journal;
+        if (j == null) {
+            ridersThisCycle = boardRiders(cycle, boardingNanos);
+        } else {
+            // 出队和CYCLE记录在日志锁内完成，与入队、离队的记录保持实际发生的顺序
+            synchronized (j) {
+                ridersThisCycle = boardRiders(cycle, boardingNanos);
+                j.cycle(ridersThisCycle);
+            }
         }
 
-        numOfCycles++;
-        System.out.println("【" + rideName + "】第" + numOfCycles + "个周期运行结束，本次载客：" + ridersThisCycle + "人");
+        numOfCycles = cycle;
+        waitEstimator.cycleCompleted(ridersThisCycle, waitingQueue.isEmpty());
+        metrics.recordCycle(ridersThisCycle, maxRider, System.nanoTime());
+        listener.cycleCompleted(this, cycle, ridersThisCycle);
+    }
+
+    // 按maxRider数量从队列转移到历史记录（开启快速通行优先时按比例交替上车），返回上车人数
+    private int boardRiders(int cycle, long boardingNanos) {
+        VisitorRideIndex index = visitorIndex;
+        int riders = 0;
+        while (riders < maxRider) {
+            QueueEntry entry = waitingQueue.pollForBoarding();
+            if (entry == null) {
+                break;
+            }
+            Visitor visitor = entry.getVisitor();
+            rideHistory.add(visitor);
+            metrics.recordBoarded(boardingNanos - entry.getEnqueueNanos());
+            if (index != null) {
+                index.visitorBoarded(this, visitor, cycle);
+            }
+            listener.visitorBoarded(this, visitor, cycle);
+            riders++;
+        }
+        return riders;
     }
 
     // Part6：导出历史记录到CSV文件
     public void exportRideHistory(String filePath) {
         if (filePath == null || filePath.trim().isEmpty()) {
-            System.out.println("错误：文件路径不能为空，导出失败！");
+            listener.operationFailed(this, RideFailure.EMPTY_EXPORT_PATH, null);
             return;
         }
+        synchronized (historyLock) {
+            exportRideHistoryLocked(filePath);
+        }
+    }
+
+    private void exportRideHistoryLocked(String filePath) {
         if (rideHistory.isEmpty()) {
-            System.out.println("错误：历史记录为空，无需导出！");
+            listener.operationFailed(this, RideFailure.HISTORY_EMPTY_EXPORT, null);
             return;
         }
 
@@ -224,27 +1299,165 @@ public class Ride implements RideInterface {
                 writer.write(visitor.toCsvString());
                 writer.newLine();
             }
-            System.out.println("成功导出【" + rideName + "】的历史记录到文件：" + filePath);
-            System.out.println("共导出 " + rideHistory.size() + " 条记录");
+            listener.historyExported(this, filePath, "文件", rideHistory.size());
         } catch (IOException e) {
-            System.out.println("错误：导出文件失败！原因：" + e.getMessage());
+            listener.operationFailed(this, RideFailure.EXPORT_FAILED, e.getMessage());
         }
     }
 
+    /**
+     * Part6（流式版本）：用CsvHistoryWriter直接编码为UTF-8字节写出，输出与exportRideHistory逐字节一致，
+     * 适合上千万行的历史记录；gzip为true时写出gzip压缩文件。返回导出的行数，失败时返回-1
+     */
+    public long exportRideHistoryStreaming(String filePath, boolean gzip) {
+        if (filePath == null || filePath.trim().isEmpty()) {
+            listener.operationFailed(this, RideFailure.EMPTY_EXPORT_PATH, null);
+            return -1;
+        }
+        synchronized (historyLock) {
+            if (rideHistory.isEmpty()) {
+                listener.operationFailed(this, RideFailure.HISTORY_EMPTY_EXPORT, null);
+                return -1;
+            }
+            long rows;
+            try (CsvHistoryWriter writer = new CsvHistoryWriter(Paths.get(filePath), gzip)) {
+                for (Visitor visitor : rideHistory) {
+                    writer.write(visitor);
+                }
+                rows = writer.getRows();
+            } catch (IOException e) {
+                // 关闭时写出缓冲区和gzip尾部失败也在这里报告
+                listener.operationFailed(this, RideFailure.EXPORT_FAILED, e.getMessage());
+                return -1;
+            }
+            listener.historyExported(this, filePath, gzip ? "gzip文件" : "文件", rows);
+            return rows;
+        }
+    }
+
+    /**
+     * Part6（增量版本）：只把上次导出之后新增的记录追加到文件末尾，适合每隔几分钟导出一次。
+     * 进度保存在“文件名.checkpoint”中：先写数据并落盘，再原子替换检查点，崩溃后重新导出时
+     * 截掉检查点之后写了一半的内容再续写，不会重复或缺行。历史记录被排序或重建过、检查点属于
+     * 其他设施实例或文件比检查点短时，从头重写并更换epoch。返回本次写出的行数，失败时返回-1
+     */
+    public long exportRideHistoryIncremental(String filePath) {
+        if (filePath == null || filePath.trim().isEmpty()) {
+            listener.operationFailed(this, RideFailure.EMPTY_EXPORT_PATH, null);
+            return -1;
+        }
+        Path file = Paths.get(filePath);
+        Path sidecar = ExportCheckpoint.sidecarOf(file);
+        synchronized (historyLock) {
+            try {
+                ExportCheckpoint previous = ExportCheckpoint.read(sidecar);
+                boolean resume = previous != null
+                        && previous.getHistoryId() == rideHistory.getHistoryId()
+                        && previous.getHistoryVersion() == rideHistory.getVersion()
+                        && previous.getRows() <= rideHistory.size()
+                        && Files.isRegularFile(file) && Files.size(file) >= previous.getBytes();
+                long epoch;
+                int fromRow;
+                long fromByte;
+                if (resume) {
+                    epoch = previous.getEpoch();
+                    fromRow = (int) previous.getRows();
+                    fromByte = previous.getBytes();
+                } else {
+                    // 从头重写：先提交一个空检查点，导入方不会把旧进度套用到新内容上
+                    epoch = ThreadLocalRandom.current().nextLong();
+                    fromRow = 0;
+                    fromByte = 0;
+                    new ExportCheckpoint(0, 0, numOfCycles, epoch, rideHistory.getHistoryId(),
+                            rideHistory.getVersion()).write(sidecar);
+                }
+                int size = rideHistory.size();
+                long committedBytes;
+                try (CsvHistoryWriter writer = new CsvHistoryWriter(file, fromByte)) {
+                    for (int i = fromRow; i < size; i++) {
+                        writer.write(rideHistory.get(i));
+                    }
+                    writer.sync();
+                    committedBytes = fromByte + writer.getBytes();
+                }
+                new ExportCheckpoint(size, committedBytes, numOfCycles, epoch, rideHistory.getHistoryId(),
+                        rideHistory.getVersion()).write(sidecar);
+                listener.historyExported(this, filePath, "增量文件", size - fromRow);
+                return size - fromRow;
+            } catch (IOException e) {
+                listener.operationFailed(this, RideFailure.EXPORT_FAILED, e.getMessage());
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Part7（增量版本）：按导出方的检查点只导入已提交的部分，并从上次导入的位置继续。
+     * 导入进度保存在“文件名.imported”中；导出文件被从头重写（epoch变化）时从头导入。
+     * 记录先写入历史记录再保存进度，崩溃时可能重复导入最后一批（至少一次）。失败时返回null
+     */
+    public ImportStats importRideHistoryIncremental(String filePath) {
+        if (filePath == null || filePath.trim().isEmpty()) {
+            listener.operationFailed(this, RideFailure.EMPTY_IMPORT_PATH, null);
+            return null;
+        }
+        Path file = Paths.get(filePath);
+        if (!Files.exists(file)) {
+            listener.operationFailed(this, RideFailure.IMPORT_FILE_NOT_FOUND, filePath);
+            return null;
+        }
+        ExportCheckpoint exported = ExportCheckpoint.read(ExportCheckpoint.sidecarOf(file));
+        if (exported == null) {
+            listener.operationFailed(this, RideFailure.IMPORT_FAILED, "没有找到导出检查点");
+            return null;
+        }
+        Path progressFile = file.resolveSibling(file.getFileName() + ".imported");
+        ExportCheckpoint progress = ExportCheckpoint.read(progressFile);
+        boolean resume = progress != null && progress.getEpoch() == exported.getEpoch()
+                && progress.getBytes() <= exported.getBytes();
+        long fromByte = resume ? progress.getBytes() : 0;
+        long importedRows = resume ? progress.getRows() : 0;
+
+        ImportStats stats = new ImportStats();
+        long begin = System.nanoTime();
+        List<Visitor> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        try {
+            new CsvHistoryReader(visitor -> {
+                batch.add(visitor);
+                if (batch.size() == IMPORT_BATCH_SIZE) {
+                    appendToHistory(batch);
+                    batch.clear();
+                }
+            }, stats).read(file, fromByte, exported.getBytes());
+            appendToHistory(batch);
+            new ExportCheckpoint(importedRows + stats.getRows(), exported.getBytes(), exported.getCycle(),
+                    exported.getEpoch(), 0, 0).write(progressFile);
+        } catch (IOException e) {
+            listener.operationFailed(this, RideFailure.IMPORT_FAILED, e.getMessage());
+            return null;
+        }
+        stats.setElapsedNanos(System.nanoTime() - begin);
+        listener.historyImported(this, filePath, stats);
+        return stats;
+    }
+
     // Part7：从CSV文件导入历史记录
     public void importRideHistory(String filePath) {
         if (filePath == null || filePath.trim().isEmpty()) {
-            System.out.println("错误：文件路径不能为空，导入失败！");
+            listener.operationFailed(this, RideFailure.EMPTY_IMPORT_PATH, null);
             return;
         }
 
         File file = new File(filePath);
         if (!file.exists()) {
-            System.out.println("错误：文件不存在（" + filePath + "），导入失败！");
+            listener.operationFailed(this, RideFailure.IMPORT_FILE_NOT_FOUND, filePath);
             return;
         }
 
-        int importedCount = 0;
+        ImportStats stats = new ImportStats();
+        long begin = System.nanoTime();
+        // 与其他导入方式一样分批经appendToHistory追加：换成共用的Visitor对象、写事件日志并按落盘策略落盘
+        List<Visitor> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
             String line;
             while ((line = reader.readLine()) != null) {
@@ -253,13 +1466,185 @@ public class Ride implements RideInterface {
 
                 Visitor visitor = Visitor.fromCsvString(line);
                 if (visitor != null) {
-                    rideHistory.add(visitor);
-                    importedCount++;
+                    batch.add(visitor);
+                    if (batch.size() == IMPORT_BATCH_SIZE) {
+                        appendToHistory(batch);
+                        batch.clear();
+                    }
+                    stats.recordRow();
                 }
             }
-            System.out.println("成功从文件【" + filePath + "】导入" + importedCount + "名游客到【" + rideName + "】的历史记录");
+            appendToHistory(batch);
+            stats.setElapsedNanos(System.nanoTime() - begin);
+            listener.historyImported(this, filePath, stats);
         } catch (IOException e) {
-            System.out.println("错误：导入文件失败！原因：" + e.getMessage());
+            appendToHistory(batch); // 出错之前读到的行仍然保留
+            listener.operationFailed(this, RideFailure.IMPORT_FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * Part6（二进制版本）：导出为紧凑的列式二进制格式（见BinaryHistoryCodec），
+     * 体积远小于CSV，导入时无需逐行解析
+     */
+    public void exportRideHistoryBinary(String filePath) {
+        if (filePath == null || filePath.trim().isEmpty()) {
+            listener.operationFailed(this, RideFailure.EMPTY_EXPORT_PATH, null);
+            return;
+        }
+        synchronized (historyLock) {
+            if (rideHistory.isEmpty()) {
+                listener.operationFailed(this, RideFailure.HISTORY_EMPTY_EXPORT, null);
+                return;
+            }
+            try {
+                int count = BinaryHistoryCodec.write(rideHistory, Paths.get(filePath));
+                listener.historyExported(this, filePath, "二进制文件", count);
+            } catch (IOException e) {
+                listener.operationFailed(this, RideFailure.EXPORT_FAILED, e.getMessage());
+            }
+        }
+    }
+
+    // Part7（二进制版本）：导入exportRideHistoryBinary生成的文件，校验失败时不导入任何记录
+    public ImportStats importRideHistoryBinary(String filePath) {
+        if (filePath == null || filePath.trim().isEmpty()) {
+            listener.operationFailed(this, RideFailure.EMPTY_IMPORT_PATH, null);
+            return null;
+        }
+        Path path = Paths.get(filePath);
+        if (!Files.exists(path)) {
+            listener.operationFailed(this, RideFailure.IMPORT_FILE_NOT_FOUND, filePath);
+            return null;
+        }
+        ImportStats stats = new ImportStats();
+        long begin = System.nanoTime();
+        List<Visitor> visitors = new ArrayList<>();
+        try {
+            BinaryHistoryCodec.read(path, visitors, stats);
+        } catch (IOException e) {
+            listener.operationFailed(this, RideFailure.IMPORT_FAILED, e.getMessage());
+            return null;
+        }
+        appendToHistory(visitors);
+        stats.setElapsedNanos(System.nanoTime() - begin);
+        listener.historyImported(this, filePath, stats);
+        return stats;
+    }
+
+    /**
+     * Part7（流式版本）：用CsvHistoryReader按字节解析CSV，适合上千万行的归档文件
+     * 非法行只计数不逐行打印，返回导入统计（失败时返回null）
+     */
+    public ImportStats importRideHistoryStreaming(String filePath) {
+        if (filePath == null || filePath.trim().isEmpty()) {
+            listener.operationFailed(this, RideFailure.EMPTY_IMPORT_PATH, null);
+            return null;
+        }
+        Path path = Paths.get(filePath);
+        if (!Files.exists(path)) {
+            listener.operationFailed(this, RideFailure.IMPORT_FILE_NOT_FOUND, filePath);
+            return null;
+        }
+
+        ImportStats stats = new ImportStats();
+        long begin = System.nanoTime();
+        // 解析结果分批写入历史记录，避免整个导入期间一直持有历史记录锁
+        List<Visitor> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        try {
+            new CsvHistoryReader(visitor -> {
+                batch.add(visitor);
+                if (batch.size() == IMPORT_BATCH_SIZE) {
+                    appendToHistory(batch);
+                    batch.clear();
+                }
+            }, stats).read(path);
+            appendToHistory(batch);
+        } catch (IOException e) {
+            listener.operationFailed(this, RideFailure.IMPORT_FAILED, e.getMessage());
+            return null;
+        }
+        stats.setElapsedNanos(System.nanoTime() - begin);
+        listener.historyImported(this, filePath, stats);
+        return stats;
+    }
+
+    /**
+     * 并行导入多个CSV文件（例如每个设施每天一个导出文件）
+     * 文件在ForkJoin线程池上并行解析，大文件按行边界切分；
+     * 结果按给定文件顺序写入历史记录，与逐个调用importRideHistory的结果一致。
+     * 所有分片解析成功后才写入历史记录，任一文件读取失败时不写入任何记录，调用方可以直接重试。
+     * 返回汇总统计（行数、拒绝行数、字节数、耗时），失败时返回null
+     */
+    public ImportStats importRideHistory(Collection<Path> files) {
+        if (files == null || files.isEmpty()) {
+            listener.operationFailed(this, RideFailure.EMPTY_IMPORT_FILES, null);
+            return null;
+        }
+        for (Path file : files) {
+            if (file == null || !Files.isRegularFile(file)) {
+                listener.operationFailed(this, RideFailure.IMPORT_FILE_NOT_FOUND, String.valueOf(file));
+                return null;
+            }
+        }
+        try {
+            List<List<Visitor>> staged = new ArrayList<>();
+            ImportStats stats = new ParallelHistoryImporter().importFiles(new ArrayList<>(files), staged::add);
+            for (List<Visitor> chunk : staged) {
+                appendToHistory(chunk);
+            }
+            listener.historyImported(this, "共" + files.size() + "个文件", stats);
+            return stats;
+        } catch (IOException e) {
+            listener.operationFailed(this, RideFailure.IMPORT_FAILED, e.getMessage());
+            return null;
+        }
+    }
+
+    // 导入目录下所有.csv文件，按文件名排序以保证结果确定
+    public ImportStats importRideHistoryFromDirectory(String dirPath) {
+        if (dirPath == null || dirPath.trim().isEmpty()) {
+            listener.operationFailed(this, RideFailure.EMPTY_IMPORT_DIRECTORY, null);
+            return null;
+        }
+        Path dir = Paths.get(dirPath);
+        if (!Files.isDirectory(dir)) {
+            listener.operationFailed(this, RideFailure.IMPORT_DIRECTORY_NOT_FOUND, dirPath);
+            return null;
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.csv")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        } catch (IOException e) {
+            listener.operationFailed(this, RideFailure.IMPORT_DIRECTORY_FAILED, e.getMessage());
+            return null;
+        }
+        if (files.isEmpty()) {
+            listener.operationFailed(this, RideFailure.IMPORT_DIRECTORY_NO_CSV, dirPath);
+            return null;
+        }
+        Collections.sort(files);
+        return importRideHistory(files);
+    }
+
+    private void appendToHistory(List<Visitor> visitors) {
+        VisitorRegistry registry = visitorRegistry;
+        if (registry != null) {
+            List<Visitor> interned = new ArrayList<>(visitors.size());
+            for (Visitor visitor : visitors) {
+                interned.add(registry.intern(visitor));
+            }
+            visitors = interned;
+        }
+        synchronized (historyLock) {
+            rideHistory.addAll(visitors);
+            rideHistory.flush();
+            RideJournal j = journal;
+            if (j != null) {
+                j.historyAddAll(visitors);
+            }
         }
     }
     
@@ -270,6 +1655,8 @@ public class Ride implements RideInterface {
     
     // 获取历史记录大小
     public int getHistorySize() {
-        return rideHistory.size();
+        synchronized (historyLock) {
+            return rideHistory.size();
+        }
     }
 }
\ No newline at end of file
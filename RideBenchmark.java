@@ -0,0 +1,595 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Ride性能基准测试（无交互，直接运行main）
+ * 用法：java RideBenchmark [contention|priority|import|parallel|binary|park|columnar|durable|batch|simulate|intern|journal]
+ */
+public class RideBenchmark {
+    private static final PrintStream CONSOLE = System.out;
+
+    public static void main(String[] args) throws Exception {
+        String which = args.length > 0 ? args[0] : "all";
+        if (which.equals("all") || which.equals("contention")) {
+            contention();
+        }
+        if (which.equals("all") || which.equals("priority")) {
+            priority();
+        }
+        if (which.equals("all") || which.equals("import")) {
+            csvImport();
+        }
+        if (which.equals("all") || which.equals("parallel")) {
+            parallelImport();
+        }
+        if (which.equals("all") || which.equals("binary")) {
+            binaryFormat();
+        }
+        if (which.equals("all") || which.equals("park")) {
+            park();
+        }
+        if (which.equals("all") || which.equals("columnar")) {
+            columnar();
+        }
+        if (which.equals("all") || which.equals("durable")) {
+            durable();
+        }
+        if (which.equals("all") || which.equals("batch")) {
+            batch();
+        }
+        if (which.equals("all") || which.equals("simulate")) {
+            simulate();
+        }
+        if (which.equals("all") || which.equals("intern")) {
+            intern();
+        }
+        if (which.equals("all") || which.equals("journal")) {
+            journal();
+        }
+    }
+
+    /**
+     * 并发入队吞吐量：1~64个生产者线程同时向同一个并发模式的Ride入队
+     */
+    static void contention() throws InterruptedException {
+        final int perThreadOps = 20_000;
+        Employee operator = new Employee("基准", 30, "00000000000", "EMP-BENCH", "基准测试");
+        CONSOLE.println("=== 并发入队吞吐量（每线程" + perThreadOps + "次） ===");
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            Ride ride = new Ride("并发基准", "基准类", operator, 32, true);
+            Visitor[][] visitors = new Visitor[threads][perThreadOps];
+            for (int t = 0; t < threads; t++) {
+                for (int i = 0; i < perThreadOps; i++) {
+                    visitors[t][i] = visitor(t * perThreadOps + i);
+                }
+            }
+            long elapsed = silently(() -> runProducers(ride, visitors));
+            long total = (long) threads * perThreadOps;
+            if (ride.getQueueSize() != total) {
+                throw new IllegalStateException("入队数量不一致：" + ride.getQueueSize() + " != " + total);
+            }
+            CONSOLE.printf("线程数 %2d：%,12.0f 次/秒%n", threads, total * 1e9 / elapsed);
+        }
+    }
+
+    private static long runProducers(Ride ride, Visitor[][] visitors) {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] producers = new Thread[visitors.length];
+        for (int t = 0; t < visitors.length; t++) {
+            Visitor[] batch = visitors[t];
+            producers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (Visitor visitor : batch) {
+                    ride.addVisitorToQueue(visitor);
+                }
+            });
+            producers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread producer : producers) {
+            try {
+                producer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return System.nanoTime() - begin;
+    }
+
+    /**
+     * 快速通行优先上车与FIFO上车对比：先入队n名游客，再运行周期直到队列排空
+     */
+    static void priority() {
+        Employee operator = new Employee("基准", 30, "00000000000", "EMP-BENCH", "基准测试");
+        CONSOLE.println("=== 快速通行优先上车 vs FIFO（每周期32人） ===");
+        for (int n : new int[] {10_000, 50_000, 200_000}) {
+            Visitor[] visitors = new Visitor[n];
+            for (int i = 0; i < n; i++) {
+                visitors[i] = visitor(i);
+            }
+            for (int round = 0; round < 3; round++) { // 前两轮为预热
+                long fifo = silently(() -> enqueueAndDrain(new Ride("FIFO基准", "基准类", operator, 32), visitors));
+                long prio = silently(() -> {
+                    Ride ride = new Ride("优先基准", "基准类", operator, 32);
+                    ride.enableFastPassPriority(2, 1);
+                    return enqueueAndDrain(ride, visitors);
+                });
+                if (round == 2) {
+                    CONSOLE.printf("n=%,8d  FIFO：%8.1f ns/人  快速通行优先：%8.1f ns/人%n",
+                            n, (double) fifo / n, (double) prio / n);
+                }
+            }
+        }
+    }
+
+    private static long enqueueAndDrain(Ride ride, Visitor[] visitors) {
+        long begin = System.nanoTime();
+        for (Visitor visitor : visitors) {
+            ride.addVisitorToQueue(visitor);
+        }
+        while (ride.getQueueSize() > 0) {
+            ride.runOneCycle();
+        }
+        return System.nanoTime() - begin;
+    }
+
+    /**
+     * CSV导入速度：原有BufferedReader+split路径 vs 流式字节解析路径
+     */
+    static void csvImport() throws IOException {
+        int rows = 2_000_000;
+        Path file = Files.createTempFile("ride-history-bench", ".csv");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for (int i = 0; i < rows; i++) {
+                    writer.write(visitor(i).toCsvString());
+                    writer.newLine();
+                }
+            }
+            Employee operator = new Employee("基准", 30, "00000000000", "EMP-BENCH", "基准测试");
+            CONSOLE.println("=== CSV导入（" + rows + "行，" + Files.size(file) / (1 << 20) + "MB） ===");
+            for (int round = 0; round < 3; round++) { // 前两轮为预热
+                long legacy = silently(() -> {
+                    long begin = System.nanoTime();
+                    new Ride("导入基准", "基准类", operator, 1).importRideHistory(file.toString());
+                    return System.nanoTime() - begin;
+                });
+                ImportStats stats = silently(() ->
+                        new Ride("导入基准", "基准类", operator, 1).importRideHistoryStreaming(file.toString()));
+                if (round == 2) {
+                    CONSOLE.printf("原有路径：%,12.0f 行/秒%n", rows * 1e9 / legacy);
+                    CONSOLE.printf("流式路径：%,12.0f 行/秒%n", stats.rowsPerSecond());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * 多文件导入：逐个文件流式导入 vs 并行分片导入
+     */
+    static void parallelImport() throws IOException {
+        int files = 8;
+        int rowsPerFile = 250_000;
+        List<Path> paths = new ArrayList<>();
+        try {
+            for (int f = 0; f < files; f++) {
+                Path file = Files.createTempFile("ride-history-bench-" + f, ".csv");
+                paths.add(file);
+                try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                    for (int i = 0; i < rowsPerFile; i++) {
+                        writer.write(visitor(f * rowsPerFile + i).toCsvString());
+                        writer.newLine();
+                    }
+                }
+            }
+            Employee operator = new Employee("基准", 30, "00000000000", "EMP-BENCH", "基准测试");
+            CONSOLE.println("=== 多文件导入（" + files + "个文件 × " + rowsPerFile + "行，"
+                    + Runtime.getRuntime().availableProcessors() + "核） ===");
+            for (int round = 0; round < 3; round++) { // 前两轮为预热
+                long sequential = silently(() -> {
+                    Ride ride = new Ride("导入基准", "基准类", operator, 1);
+                    long begin = System.nanoTime();
+                    for (Path file : paths) {
+                        ride.importRideHistoryStreaming(file.toString());
+                    }
+                    return System.nanoTime() - begin;
+                });
+                ImportStats parallel = silently(() ->
+                        new Ride("导入基准", "基准类", operator, 1).importRideHistory(paths));
+                if (round == 2) {
+                    CONSOLE.printf("逐个导入：%,12.0f 行/秒%n", (double) files * rowsPerFile * 1e9 / sequential);
+                    CONSOLE.printf("并行导入：%,12.0f 行/秒（%s）%n", parallel.rowsPerSecond(), parallel);
+                }
+            }
+        } finally {
+            for (Path file : paths) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * CSV与二进制格式对比：文件大小、导出耗时、导入耗时（含往返一致性校验）
+     * 模拟复购场景：20万名游客平均每人乘坐5次
+     */
+    static void binaryFormat() throws IOException {
+        int rows = 1_000_000;
+        int distinctVisitors = 200_000;
+        Employee operator = new Employee("基准", 30, "00000000000", "EMP-BENCH", "基准测试");
+        Ride source = new Ride("格式基准", "基准类", operator, 1);
+        Visitor[] guests = new Visitor[distinctVisitors];
+        for (int i = 0; i < distinctVisitors; i++) {
+            guests[i] = visitor(i);
+        }
+        Random random = new Random(42);
+        List<Visitor> history = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            history.add(guests[random.nextInt(distinctVisitors)]);
+        }
+        silently(() -> {
+            history.forEach(source::addVisitorToHistory);
+            return null;
+        });
+
+        Path csv = Files.createTempFile("ride-history-bench", ".csv");
+        Path bin = Files.createTempFile("ride-history-bench", ".rhb");
+        try {
+            CONSOLE.println("=== CSV vs 二进制格式（" + rows + "行，" + distinctVisitors + "名不同游客） ===");
+            for (int round = 0; round < 3; round++) { // 前两轮为预热
+                long csvExport = timed(() -> source.exportRideHistory(csv.toString()));
+                long binExport = timed(() -> source.exportRideHistoryBinary(bin.toString()));
+                Ride fromCsv = new Ride("格式基准", "基准类", operator, 1);
+                Ride fromBin = new Ride("格式基准", "基准类", operator, 1);
+                long csvImport = timed(() -> fromCsv.importRideHistoryStreaming(csv.toString()));
+                long binImport = timed(() -> fromBin.importRideHistoryBinary(bin.toString()));
+                if (round == 2) {
+                    CONSOLE.printf("大小：CSV %,d 字节，二进制 %,d 字节（%.1f倍）%n",
+                            Files.size(csv), Files.size(bin), (double) Files.size(csv) / Files.size(bin));
+                    CONSOLE.printf("导出：CSV %,d 毫秒，二进制 %,d 毫秒%n", csvExport / 1_000_000, binExport / 1_000_000);
+                    CONSOLE.printf("导入：CSV(流式) %,d 毫秒，二进制 %,d 毫秒%n", csvImport / 1_000_000, binImport / 1_000_000);
+                    CONSOLE.println("往返一致：" + sameRows(fromCsv, fromBin));
+                }
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(bin);
+        }
+    }
+
+    /**
+     * 全园调度：500个设施共10万名排队游客，由少量调度线程按周期时长运行直到全部上车
+     */
+    static void park() throws InterruptedException {
+        final int rideCount = 500;
+        final int visitorsPerRide = 200;
+        final int maxRider = 20;
+        final long cycleMillis = 20;
+        Employee operator = new Employee("基准", 30, "00000000000", "EMP-BENCH", "基准测试");
+        CONSOLE.println("=== 全园调度（" + rideCount + "个设施，" + rideCount * visitorsPerRide + "名游客，周期"
+                + cycleMillis + "ms，每周期" + maxRider + "人） ===");
+        for (int threads = 1; threads <= 4; threads *= 2) {
+            Park park = new Park(threads);
+            List<Ride> rides = new ArrayList<>();
+            for (int r = 0; r < rideCount; r++) {
+                Ride ride = new Ride("设施" + r, "基准类", operator, maxRider, true);
+                for (int i = 0; i < visitorsPerRide; i++) {
+                    ride.addVisitorToQueue(visitor(r * visitorsPerRide + i));
+                }
+                rides.add(ride);
+                park.addRide(ride, cycleMillis);
+            }
+            long begin = System.nanoTime();
+            park.start();
+            long expected = (long) rideCount * visitorsPerRide;
+            while (park.getTotalBoarded() < expected) {
+                Thread.sleep(5);
+            }
+            long elapsed = System.nanoTime() - begin;
+            park.shutdown();
+            long ideal = TimeUnit.MILLISECONDS.toNanos(cycleMillis * ((visitorsPerRide + maxRider - 1) / maxRider));
+            CONSOLE.printf("调度线程 %d：全部上车用时 %,d 毫秒（理想 %,d 毫秒），%s%n",
+                    threads, elapsed / 1_000_000, ideal / 1_000_000, park);
+        }
+    }
+
+    /**
+     * 对象存储 vs 列式存储：相同的历史记录（逐行导入，每行都是独立对象）占用的堆内存和遍历耗时
+     */
+    static void columnar() {
+        final int rows = 2_000_000;
+        final int distinctVisitors = 50_000;
+        CONSOLE.println("=== 对象存储 vs 列式存储（" + rows + "行，" + distinctVisitors + "名不同游客） ===");
+        for (boolean columnar : new boolean[]{false, true}) {
+            long before = usedHeap();
+            RideHistory history = columnar ? new RideHistory(new ColumnarHistoryStorage()) : new RideHistory();
+            List<Visitor> batch = new ArrayList<>();
+            for (int i = 0; i < rows; i++) {
+                Visitor template = visitor(i % distinctVisitors);
+                // 复制字符串，模拟从文件逐行解析出的独立对象
+                batch.add(new Visitor(new String(template.getName()), template.getAge(),
+                        new String(template.getPhoneNumber()), new String(template.getVisitorId()),
+                        template.isHasFastPass()));
+                if (batch.size() == 8192) {
+                    history.addAll(batch);
+                    batch.clear();
+                }
+            }
+            history.addAll(batch);
+            batch.clear();
+            long used = usedHeap() - before;
+            long scan = timed(() -> {
+                long ages = 0;
+                for (Visitor visitor : history) {
+                    ages += visitor.getAge();
+                }
+                if (ages == 0) {
+                    throw new IllegalStateException();
+                }
+            });
+            CONSOLE.printf("%s：堆内存约 %,d MB，遍历 %,d 毫秒，历史人数 %d%n", columnar ? "列式存储" : "对象存储",
+                    used >> 20, scan / 1_000_000, history.size());
+        }
+    }
+
+    /**
+     * 持久化历史日志：不同落盘策略下周期的写入速度，以及重启时打开日志恢复记录的耗时
+     */
+    static void durable() throws IOException {
+        final int visitors = 200_000;
+        final int maxRider = 40;
+        Employee operator = new Employee("基准", 30, "00000000000", "EMP-BENCH", "基准测试");
+        CONSOLE.println("=== 持久化历史日志（" + visitors + "名游客，每周期" + maxRider + "人） ===");
+        for (MappedHistoryStorage.FlushPolicy policy : MappedHistoryStorage.FlushPolicy.values()) {
+            Path log = Files.createTempFile("ride-history-bench", ".log");
+            Files.delete(log);
+            try {
+                Ride ride = new Ride("持久化基准", "基准类", operator, maxRider);
+                ride.openHistoryLog(log.toString(), policy);
+                for (int i = 0; i < visitors; i++) {
+                    ride.addVisitorToQueue(visitor(i));
+                }
+                long run = timed(() -> {
+                    while (ride.getQueueSize() > 0) {
+                        ride.runOneCycle();
+                    }
+                });
+                ride.closeHistoryLog();
+                Ride restarted = new Ride("持久化基准", "基准类", operator, maxRider);
+                long[] recovered = new long[1];
+                long reopen = timed(() -> recovered[0] = restarted.openHistoryLog(log.toString(), policy));
+                restarted.closeHistoryLog();
+                CONSOLE.printf("%s：运行周期 %,d 毫秒（%,.0f 人/秒），重新打开 %,d 毫秒，恢复 %,d 条%n", policy,
+                        run / 1_000_000, visitors * 1e9 / run, reopen / 1_000_000, recovered[0]);
+            } finally {
+                Files.deleteIfExists(log);
+            }
+        }
+    }
+
+    /**
+     * 批量接口 vs 逐个调用：每名游客的入队、移除和上车耗时（旅行团每批40人）
+     */
+    static void batch() {
+        final int groups = 25_000;
+        final int groupSize = 40;
+        final int total = groups * groupSize;
+        Employee operator = new Employee("基准", 30, "00000000000", "EMP-BENCH", "基准测试");
+        List<List<Visitor>> tourGroups = new ArrayList<>();
+        for (int g = 0; g < groups; g++) {
+            List<Visitor> group = new ArrayList<>(groupSize);
+            for (int i = 0; i < groupSize; i++) {
+                group.add(visitor(g * groupSize + i));
+            }
+            tourGroups.add(group);
+        }
+        CONSOLE.println("=== 批量接口 vs 逐个调用（" + total + "名游客，每批" + groupSize + "人） ===");
+        for (int round = 0; round < 3; round++) {
+            Ride single = new Ride("批量基准", "基准类", operator, groupSize, true);
+            Ride batched = new Ride("批量基准", "基准类", operator, groupSize, true);
+            long singleEnqueue = timed(() -> {
+                for (List<Visitor> group : tourGroups) {
+                    for (Visitor visitor : group) {
+                        single.addVisitorToQueue(visitor);
+                    }
+                }
+            });
+            long batchEnqueue = timed(() -> {
+                for (List<Visitor> group : tourGroups) {
+                    batched.addVisitorsToQueue(group);
+                }
+            });
+            long singleCycles = timed(() -> {
+                for (int i = 0; i < groups / 2; i++) {
+                    single.runOneCycle();
+                }
+            });
+            long batchCycles = timed(() -> batched.runCycles(groups / 2));
+            long singleRemove = timed(() -> {
+                while (single.getQueueSize() > 0) {
+                    single.removeVisitorFromQueue();
+                }
+            });
+            long[] drained = new long[1];
+            long batchDrain = timed(() -> {
+                while (batched.drain(groupSize, visitor -> drained[0]++) > 0) {
+                    // 每次取出一批
+                }
+            });
+            if (single.getHistorySize() != batched.getHistorySize() || drained[0] != total / 2) {
+                throw new IllegalStateException("批量接口结果不一致");
+            }
+            int boarded = single.getHistorySize();
+            CONSOLE.printf("第%d轮 入队：逐个 %.1f ns/人，批量 %.1f ns/人；上车：逐个 %.1f ns/人，批量 %.1f ns/人；"
+                            + "移除：逐个 %.1f ns/人，批量 %.1f ns/人%n", round + 1,
+                    (double) singleEnqueue / total, (double) batchEnqueue / total,
+                    (double) singleCycles / boarded, (double) batchCycles / boarded,
+                    (double) singleRemove / (total - boarded), (double) batchDrain / (total - boarded));
+        }
+    }
+
+    /**
+     * 离散事件模拟：12小时园区日，20个设施，上午和午后各一个高峰；单次运行和并行Monte Carlo
+     */
+    static void simulate() throws InterruptedException {
+        SimulationConfig config = new SimulationConfig();
+        config.setArrivalsPerMinute(40);
+        config.addPeak(60, 180, 2.5);
+        config.addPeak(240, 360, 2.0);
+        for (int i = 0; i < 20; i++) {
+            config.addRide("模拟设施" + i, 12 + (i % 5) * 8, 3 + i % 4, 1 + i % 3);
+        }
+        ParkSimulator simulator = new ParkSimulator(config);
+        CONSOLE.println("=== 离散事件模拟（" + config.getRides().size() + "个设施，12小时） ===");
+        SimulationResult single = simulator.run(1);
+        CONSOLE.printf("单次运行：%,d 毫秒，到达 %,d 人%n", single.getElapsedNanos() / 1_000_000, single.getArrivals());
+        SimulationResult combined = simulator.runMonteCarlo(64, 1);
+        CONSOLE.print(combined);
+    }
+
+    /**
+     * 游客注册表：5万名游客在10个设施上共乘坐100万次，每次都是上游推送的新副本；
+     * 对比不去重和使用注册表时各设施历史记录占用的堆内存
+     */
+    static void intern() {
+        final int guests = 50_000;
+        final int rideCount = 10;
+        final int events = 1_000_000;
+        Employee operator = new Employee("基准", 30, "00000000000", "EMP-BENCH", "基准测试");
+        CONSOLE.println("=== 游客注册表（" + guests + "名游客，" + rideCount + "个设施，" + events + "次乘坐） ===");
+        for (boolean interned : new boolean[]{false, true}) {
+            long before = usedHeap();
+            VisitorRegistry registry = interned ? new VisitorRegistry() : null;
+            List<Ride> rides = new ArrayList<>();
+            for (int r = 0; r < rideCount; r++) {
+                Ride ride = new Ride("设施" + r, "基准类", operator, 32);
+                ride.setVisitorRegistry(registry);
+                rides.add(ride);
+            }
+            Random random = new Random(7);
+            long elapsed = timed(() -> {
+                for (int i = 0; i < events; i++) {
+                    Visitor template = visitor(random.nextInt(guests));
+                    Visitor copy = new Visitor(new String(template.getName()), template.getAge(),
+                            new String(template.getPhoneNumber()), new String(template.getVisitorId()),
+                            template.isHasFastPass());
+                    rides.get(random.nextInt(rideCount)).addVisitorToHistory(copy);
+                }
+            });
+            long used = usedHeap() - before;
+            CONSOLE.printf("%s：堆内存约 %,d MB，写入 %,d 毫秒%s%n", interned ? "使用注册表" : "不去重", used >> 20,
+                    elapsed / 1_000_000, interned ? "；" + registry : "");
+            rides.clear();
+        }
+    }
+
+    /**
+     * 事件日志：开启日志后的运行开销，以及重启时只重放日志与从快照恢复的耗时
+     */
+    static void journal() throws IOException {
+        final int visitors = 500_000;
+        final int maxRider = 40;
+        Employee operator = new Employee("基准", 30, "00000000000", "EMP-BENCH", "基准测试");
+        CONSOLE.println("=== 事件日志（" + visitors + "名游客入队，每入队" + maxRider * 2 + "人运行一个周期） ===");
+        for (boolean snapshotBeforeRestart : new boolean[]{false, true}) {
+            Path dir = Files.createTempDirectory("ride-journal-bench");
+            try {
+                Ride ride = new Ride("日志基准", "基准类", operator, maxRider);
+                ride.enableJournal(dir.toString(), MappedHistoryStorage.FlushPolicy.GROUP_COMMIT);
+                ride.setJournalSnapshotInterval(Long.MAX_VALUE);
+                long run = timed(() -> {
+                    for (int i = 0; i < visitors; i++) {
+                        ride.addVisitorToQueue(visitor(i));
+                        if (i % (maxRider * 2) == maxRider * 2 - 1) {
+                            ride.runOneCycle();
+                        }
+                    }
+                });
+                if (snapshotBeforeRestart) {
+                    ride.journalSnapshot();
+                }
+                ride.closeJournal();
+                Ride restarted = new Ride("日志基准", "基准类", operator, maxRider);
+                long[] events = new long[1];
+                long recover = timed(() -> events[0] = restarted.enableJournal(dir.toString(),
+                        MappedHistoryStorage.FlushPolicy.GROUP_COMMIT));
+                restarted.closeJournal();
+                if (restarted.getQueueSize() != ride.getQueueSize() || restarted.getHistorySize() != ride.getHistorySize()) {
+                    throw new IllegalStateException("恢复后的状态不一致");
+                }
+                CONSOLE.printf("%s：运行 %,d 毫秒，重启恢复 %,d 毫秒（重放 %,d 条事件，队列 %,d 人，历史 %,d 条）%n",
+                        snapshotBeforeRestart ? "重启前写快照" : "只重放日志", run / 1_000_000, recover / 1_000_000,
+                        events[0], restarted.getQueueSize(), restarted.getHistorySize());
+            } finally {
+                try (Stream<Path> files = Files.list(dir)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+                Files.deleteIfExists(dir);
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static boolean sameRows(Ride a, Ride b) throws IOException {
+        Path left = Files.createTempFile("ride-history-bench", ".csv");
+        Path right = Files.createTempFile("ride-history-bench", ".csv");
+        try {
+            timed(() -> a.exportRideHistory(left.toString()));
+            timed(() -> b.exportRideHistory(right.toString()));
+            return Files.mismatch(left, right) == -1;
+        } finally {
+            Files.deleteIfExists(left);
+            Files.deleteIfExists(right);
+        }
+    }
+
+    private static long timed(Runnable action) {
+        System.gc(); // 减少上一步留下的垃圾对计时的干扰
+        return silently(() -> {
+            long begin = System.nanoTime();
+            action.run();
+            return System.nanoTime() - begin;
+        });
+    }
+
+    static Visitor visitor(int i) {
+        return new Visitor("游客" + i, 5 + i % 60, "139" + String.format("%08d", i), "VIS" + i, i % 3 == 0);
+    }
+
+    // 屏蔽Ride的控制台输出，只统计耗时
+    static <T> T silently(Supplier<T> action) {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            return action.get();
+        } finally {
+            System.setOut(CONSOLE);
+        }
+    }
+}
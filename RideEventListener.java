@@ -0,0 +1,59 @@
+import java.util.List;
+
+/**
+ * Ride事件监听器
+ * Ride的每个操作都通过监听器报告结果，而不是直接打印到控制台。
+ * 所有方法都有空的默认实现；Ride默认使用NO_OP，热路径上不做任何字符串拼接或I/O。
+ * 需要控制台文字时使用ConsoleRideListener，需要结构化日志时使用AsyncRideLogger
+ */
+public interface RideEventListener {
+    RideEventListener NO_OP = new RideEventListener() {};
+
+    default void visitorQueued(Ride ride, Visitor visitor) {}
+
+    // 队列已满且准入策略拒绝了该游客
+    default void visitorRejected(Ride ride, Visitor visitor) {}
+
+    // 队列已满，游客拿到回场票进入虚拟队列
+    default void returnTicketIssued(Ride ride, ReturnTicket ticket) {}
+
+    default void visitorRemovedFromQueue(Ride ride, Visitor visitor) {}
+
+    // 排队中的游客转入快速通道
+    default void visitorMovedToFastPass(Ride ride, Visitor visitor) {}
+
+    // 批量操作的事件默认逐个转发；控制台监听器改为每批输出一行
+    default void visitorsQueued(Ride ride, List<Visitor> visitors) {
+        for (Visitor visitor : visitors) {
+            visitorQueued(ride, visitor);
+        }
+    }
+
+    default void visitorsDrained(Ride ride, List<Visitor> visitors) {
+        for (Visitor visitor : visitors) {
+            visitorRemovedFromQueue(ride, visitor);
+        }
+    }
+
+    default void visitorAddedToHistory(Ride ride, Visitor visitor) {}
+
+    default void historyChecked(Ride ride, Visitor visitor, boolean found) {}
+
+    default void visitorsCounted(Ride ride, int count) {}
+
+    default void historySorted(Ride ride) {}
+
+    default void cycleStarted(Ride ride, int cycle) {}
+
+    default void visitorBoarded(Ride ride, Visitor visitor, int cycle) {}
+
+    default void cycleCompleted(Ride ride, int cycle, int riders) {}
+
+    // kind为文件类型描述，例如“文件”“二进制文件”
+    default void historyExported(Ride ride, String filePath, String kind, long count) {}
+
+    default void historyImported(Ride ride, String source, ImportStats stats) {}
+
+    // detail为附加信息（文件路径、异常原因等），可以为null
+    default void operationFailed(Ride ride, RideFailure failure, String detail) {}
+}
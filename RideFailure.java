@@ -0,0 +1,46 @@
+/**
+ * Ride操作失败的原因
+ * 模板中%1$s为设施名称，%2$s为附加信息（文件路径、异常原因等）；
+ * 只有控制台监听器需要文字时才格式化，静默模式下失败路径不拼接字符串
+ */
+public enum RideFailure {
+    NULL_VISITOR_QUEUE("游客对象不能为空，添加队列失败！"),
+    QUEUE_EMPTY_REMOVE("【%1$s】的等待队列为空，移除失败！"),
+    NULL_VISITOR_HISTORY("游客对象不能为空，添加历史记录失败！"),
+    NULL_VISITOR_CHECK("游客对象不能为空，查询失败！"),
+    NULL_VISITOR_IDS("游客ID集合不能为空，查询失败！"),
+    NULL_COMPARATOR("比较器不能为空，排序失败！"),
+    HISTORY_EMPTY_SORT("历史记录为空，排序失败！"),
+    NO_OPERATOR("【%1$s】未分配操作员，无法运行！"),
+    QUEUE_EMPTY_RUN("【%1$s】的等待队列为空，无法运行！"),
+    EMPTY_EXPORT_PATH("文件路径不能为空，导出失败！"),
+    HISTORY_EMPTY_EXPORT("历史记录为空，无需导出！"),
+    EXPORT_FAILED("导出文件失败！原因：%2$s"),
+    EMPTY_IMPORT_PATH("文件路径不能为空，导入失败！"),
+    IMPORT_FILE_NOT_FOUND("文件不存在（%2$s），导入失败！"),
+    IMPORT_FAILED("导入文件失败！原因：%2$s"),
+    EMPTY_IMPORT_FILES("文件列表不能为空，导入失败！"),
+    EMPTY_IMPORT_DIRECTORY("目录路径不能为空，导入失败！"),
+    IMPORT_DIRECTORY_NOT_FOUND("目录不存在（%2$s），导入失败！"),
+    IMPORT_DIRECTORY_FAILED("读取目录失败！原因：%2$s"),
+    IMPORT_DIRECTORY_NO_CSV("目录中没有CSV文件（%2$s），导入失败！"),
+    HISTORY_LOG_FAILED("历史记录日志操作失败！原因：%2$s"),
+    VISITOR_NOT_IN_QUEUE("游客（%2$s）不在【%1$s】的等待队列中，操作失败！"),
+    PRIORITY_DISABLED("【%1$s】未开启快速通行优先，无法转入快速通道！"),
+    INVALID_PARTITION_UNIT("分区单位不能超过一天（%2$s），开启分区失败！"),
+    ARCHIVE_FAILED("归档历史分区失败，下次清理时重试！原因：%2$s"),
+    JOURNAL_FAILED("事件日志操作失败！原因：%2$s"),
+    INVALID_CYCLE_MILLIS("周期时长必须大于0（%2$s），【%1$s】注册失败！"),
+    NOT_CONCURRENT("【%1$s】不是并发模式，不能由调度器在其他线程运行，注册失败！");
+
+    private final String template;
+
+    RideFailure(String template) {
+        this.template = template;
+    }
+
+    // 生成与原控制台输出一致的中文描述（不含“错误：”前缀）
+    public String describe(String rideName, String detail) {
+        return String.format(template, rideName, detail);
+    }
+}
@@ -0,0 +1,250 @@
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 游乐设施历史记录存储
+ * 按插入顺序保存游客，同时维护以visitorId为键的哈希索引，
+ * 使“是否乘坐过”的查询为O(1)，不再线性扫描整个列表
+ */
+public class RideHistory implements Iterable<Visitor> {
+    // 按插入顺序保存的历史记录（默认保存对象，也可以换成列式存储）
+    private HistoryStorage entries;
+
+    // visitorId -> 乘坐次数（同一游客可多次乘坐）；存储中已有的记录在第一次查询时才建立索引，
+    // 打开大的持久化日志不需要逐条解码
+    private final HashMap<String, Integer> ridesById = new HashMap<>();
+    private boolean indexed = true;
+
+    // 按比较器维护的有序视图，追加记录时增量更新
+    private final Map<String, SortedHistoryView> views = new LinkedHashMap<>();
+    private long sequence;
+
+    // 历史记录的身份和版本：只追加时版本不变；排序或重建等改变已有记录顺序的操作使版本加1，
+    // 增量导出据此判断上次的检查点是否仍然有效
+    private final long historyId = ThreadLocalRandom.current().nextLong();
+    private long version;
+
+    public RideHistory() {
+        this(new ObjectHistoryStorage());
+    }
+
+    // storage中已有的记录（例如从日志恢复的）在第一次查询时建立索引
+    public RideHistory(HistoryStorage storage) {
+        this.entries = storage;
+        if (storage.size() > 0) {
+            indexed = false;
+            sequence = storage.size();
+        }
+    }
+
+    public HistoryStorage getStorage() {
+        return entries;
+    }
+
+    /**
+     * 把现有记录按原顺序迁移到新的存储，索引和有序视图保持不变；
+     * 新存储中已有记录时，现有记录追加在其后，并重建索引和视图
+     */
+    public void migrateTo(HistoryStorage storage) {
+        boolean hadRecords = storage.size() > 0;
+        storage.ensureCapacity(storage.size() + entries.size());
+        for (Visitor visitor : entries) {
+            storage.add(visitor);
+        }
+        entries = storage;
+        if (hadRecords || storage instanceof PartitionedHistoryStorage) {
+            reindex(); // 分区存储要求视图中的插入序号与位置一致
+        }
+    }
+
+    private void reindex() {
+        version++;
+        ridesById.clear();
+        indexed = false;
+        sequence = entries.size();
+        rebuildViews();
+    }
+
+    private void rebuildViews() {
+        List<SortedHistoryView> rebuilt = new ArrayList<>(views.values());
+        views.clear();
+        for (SortedHistoryView view : rebuilt) {
+            view(view.getName(), view.getComparator());
+        }
+    }
+
+    private void ensureIndexed() {
+        if (!indexed) {
+            for (Visitor visitor : entries) {
+                ridesById.merge(visitor.getVisitorId(), 1, Integer::sum);
+            }
+            indexed = true;
+        }
+    }
+
+    // 让持久化存储按其落盘策略落盘
+    public void flush() {
+        entries.flush();
+    }
+
+    // 追加一条历史记录并同步索引
+    public void add(Visitor visitor) {
+        entries.add(visitor);
+        if (indexed) {
+            ridesById.merge(visitor.getVisitorId(), 1, Integer::sum);
+        }
+        long seq = sequence++;
+        for (SortedHistoryView view : views.values()) {
+            view.add(visitor, seq);
+        }
+    }
+
+    // 批量追加，保持给定顺序
+    public void addAll(List<Visitor> visitors) {
+        entries.ensureCapacity(entries.size() + visitors.size());
+        for (Visitor visitor : visitors) {
+            add(visitor);
+        }
+    }
+
+    // 游客是否出现在历史记录中（与Visitor.equals一致，按visitorId判断）
+    public boolean contains(Visitor visitor) {
+        return visitor != null && containsId(visitor.getVisitorId());
+    }
+
+    public boolean containsId(String visitorId) {
+        ensureIndexed();
+        return ridesById.containsKey(visitorId);
+    }
+
+    // 某游客的乘坐次数
+    public int rideCount(String visitorId) {
+        ensureIndexed();
+        Integer count = ridesById.get(visitorId);
+        return count == null ? 0 : count;
+    }
+
+    // 批量查询：给定ID是否全部乘坐过
+    public boolean containsAll(Collection<String> visitorIds) {
+        ensureIndexed();
+        for (String visitorId : visitorIds) {
+            if (!ridesById.containsKey(visitorId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 批量查询：给定ID中乘坐过的人数（重复ID只计一次）
+    public int countRiders(Collection<String> visitorIds) {
+        ensureIndexed();
+        Set<String> distinct = visitorIds instanceof Set ? (Set<String>) visitorIds : new HashSet<>(visitorIds);
+        int count = 0;
+        for (String visitorId : distinct) {
+            if (ridesById.containsKey(visitorId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 创建（或取得已有的）有序视图：已有记录一次性建入，之后随add增量维护
+     * 插入序号按当前存储顺序重新编号，所以同一比较器下相等的记录按当前顺序排列
+     */
+    public SortedHistoryView view(String name, Comparator<Visitor> comparator) {
+        SortedHistoryView view = views.get(name);
+        if (view == null) {
+            view = new SortedHistoryView(name, comparator);
+            long seq = sequence - entries.size();
+            for (Visitor visitor : entries) {
+                view.add(visitor, seq++);
+            }
+            views.put(name, view);
+        }
+        return view;
+    }
+
+    public SortedHistoryView getView(String name) {
+        return views.get(name);
+    }
+
+    // 按比较器重排记录；索引和有序视图只与成员有关，排序后无需重建
+    public void sort(Comparator<Visitor> comparator) {
+        entries.sort(comparator);
+        if (entries instanceof PartitionedHistoryStorage) {
+            reindex(); // 分区存储删除过期分区时按位置推算视图中的插入序号，排序后重新编号
+        } else {
+            version++;
+        }
+    }
+
+    /**
+     * 分区存储：删除结束时刻不晚于cutoffMillis的分区，同步扣减索引并从有序视图中删除，返回被删除的分区；
+     * 其他存储返回空列表。删除后记录位置前移，版本加1
+     */
+    public List<PartitionedHistoryStorage.Partition> expirePartitions(long cutoffMillis) {
+        if (!(entries instanceof PartitionedHistoryStorage)) {
+            return Collections.emptyList();
+        }
+        PartitionedHistoryStorage partitioned = (PartitionedHistoryStorage) entries;
+        boolean sorted = partitioned.isSorted();
+        long seq = sequence - entries.size(); // 第一条记录在视图中的插入序号
+        List<PartitionedHistoryStorage.Partition> expired = partitioned.expireBefore(cutoffMillis);
+        if (sorted && !expired.isEmpty()) {
+            // 全局排序后被删除的记录分散在各个位置，无法按位置推算插入序号：扣减索引后按新位置重建视图
+            if (indexed) {
+                for (PartitionedHistoryStorage.Partition partition : expired) {
+                    for (Visitor visitor : partition) {
+                        ridesById.computeIfPresent(visitor.getVisitorId(), (id, count) -> count == 1 ? null : count - 1);
+                    }
+                }
+            }
+            sequence = entries.size();
+            rebuildViews();
+            version++;
+            return expired;
+        }
+        for (PartitionedHistoryStorage.Partition partition : expired) {
+            for (Visitor visitor : partition) {
+                if (indexed) {
+                    ridesById.computeIfPresent(visitor.getVisitorId(), (id, count) -> count == 1 ? null : count - 1);
+                }
+                for (SortedHistoryView view : views.values()) {
+                    view.remove(visitor, seq);
+                }
+                seq++;
+            }
+        }
+        if (!expired.isEmpty()) {
+            version++;
+        }
+        return expired;
+    }
+
+    public long getHistoryId() {
+        return historyId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Visitor get(int index) {
+        return entries.get(index);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.size() == 0;
+    }
+
+    // 只读迭代器，避免绕过索引直接删除记录（列式存储在遍历时才创建Visitor）
+    @Override
+    public Iterator<Visitor> iterator() {
+        return entries.iterator();
+    }
+}
@@ -1,3 +1,6 @@
+import java.util.Collection;
+import java.util.function.Consumer;
+
 /**
  * 游乐设施接口，定义核心行为规范
  */
@@ -7,6 +10,17 @@ public interface RideInterface {
     void removeVisitorFromQueue();
     void printQueue();
 
+    // 批量入队（例如旅行团、预约同步），返回成功入队的人数
+    int addVisitorsToQueue(Collection<Visitor> visitors);
+
+    // 从队首最多取出max名游客交给consumer，返回取出的人数
+    int drain(int max, Consumer<Visitor> consumer);
+
+    // 按visitorId查询排队位置（0为队首，不在队列中返回-1）、中途离队、转入快速通道
+    int positionOf(String visitorId);
+    boolean removeVisitor(String visitorId);
+    boolean moveToFastPass(String visitorId);
+
     // 历史记录操作方法
     void addVisitorToHistory(Visitor visitor);
     boolean checkVisitorFromHistory(Visitor visitor);
@@ -15,4 +29,7 @@ public interface RideInterface {
 
     // 设施运行方法
     void runOneCycle();
+
+    // 连续运行最多n个周期（队列为空时提前结束），返回实际运行的周期数
+    int runCycles(int n);
 }
\ No newline at end of file
@@ -0,0 +1,679 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * 设施事件日志（事件溯源）：只追加的二进制日志 + 定期快照
+ * 目录结构：
+ *   snapshot-k.meta         快照元数据（周期数、载客量、操作员、快速通行配置、各部分条数），最后原子写入，作为快照的提交标志
+ *   snapshot-k.history.bin  快照时的历史记录（BinaryHistoryCodec格式，也可用importRideHistoryBinary单独导入）
+ *   snapshot-k.queue.bin    快照时的等待队列（同一格式，先快速通道后普通通道）
+ *   journal-k.log           快照k之后的事件；单个文件写满时续写journal-(k+1).log
+ * 日志文件：魔数"RJL1" | 版本号(1字节) | 3字节保留，之后每条事件为 负载长度(int) | CRC32(int) | 负载，
+ * 负载为 类型(1字节) + 参数；字符串为 长度(int，-1表示null) + UTF-8字节。
+ * 与MappedHistoryStorage一样写入内存映射文件，先写负载和校验和、最后写长度，进程崩溃不丢事件；
+ * FlushPolicy控制何时force到磁盘。恢复时加载编号最大的完整快照，再按顺序重放其后的日志，
+ * 遇到长度为0、越界或校验失败的记录即视为该文件末尾
+ */
+public class RideJournal implements AutoCloseable {
+    private static final byte[] MAGIC = {'R', 'J', 'L', '1'};
+    private static final byte[] SNAPSHOT_MAGIC = {'R', 'J', 'S', '1'};
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final long INITIAL_MAPPING = 1L << 20;
+    private static final long MAX_SEGMENT = 1L << 30;
+
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d+)\\.meta");
+    private static final Pattern JOURNAL_FILE = Pattern.compile("journal-(\\d+)\\.log");
+    // 无法重放的日志改名隔离，写快照时不会删除
+    private static final String DAMAGED_SUFFIX = ".damaged";
+
+    // 事件类型
+    private static final byte ENQUEUE = 1;
+    private static final byte REMOVE_HEAD = 2;
+    private static final byte REMOVE_ID = 3;
+    private static final byte MOVE_TO_FAST_PASS = 4;
+    private static final byte HISTORY_ADD = 5;
+    private static final byte CYCLE = 6;
+    private static final byte MAX_RIDER = 7;
+    private static final byte OPERATOR = 8;
+    private static final byte PRIORITY = 9;
+
+    private final Path directory;
+    private final MappedHistoryStorage.FlushPolicy flushPolicy;
+    private volatile int groupEvents = 4096;
+    private volatile long groupMillis = 100;
+    private volatile long snapshotInterval = 1_000_000;
+
+    private int segment;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+
+    private long events;
+    private long eventsSinceSnapshot;
+    private int pendingEvents;
+    private long lastForceNanos = System.nanoTime();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer scratch = ByteBuffer.allocate(256);
+
+    private RideJournal(Path directory, MappedHistoryStorage.FlushPolicy flushPolicy) {
+        this.directory = directory;
+        this.flushPolicy = flushPolicy;
+    }
+
+    // 在directory中新建编号为segment的日志文件（已存在时覆盖）
+    public static RideJournal open(Path directory, int segment, MappedHistoryStorage.FlushPolicy flushPolicy)
+            throws IOException {
+        Files.createDirectories(directory);
+        RideJournal journal = new RideJournal(directory, flushPolicy);
+        journal.openSegment(segment);
+        return journal;
+    }
+
+    private void openSegment(int segment) throws IOException {
+        FileChannel channel = FileChannel.open(journalFile(directory, segment), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_MAPPING);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        buffer.put(0, MAGIC);
+        buffer.put(MAGIC.length, (byte) VERSION);
+        this.channel = channel;
+        this.segment = segment;
+        writePosition = HEADER_SIZE;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getSegment() {
+        return segment;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public void setGroupCommit(int groupEvents, long groupMillis) {
+        this.groupEvents = Math.max(1, groupEvents);
+        this.groupMillis = Math.max(0, groupMillis);
+    }
+
+    // 每追加多少条事件后写一次快照（由Ride在运行周期后检查）
+    public void setSnapshotInterval(long events) {
+        this.snapshotInterval = Math.max(1, events);
+    }
+
+    public synchronized boolean isSnapshotDue() {
+        return eventsSinceSnapshot >= snapshotInterval;
+    }
+
+    // ---------- 追加事件（调用方串行或并发均可，日志内部加锁） ----------
+
+    public synchronized void enqueue(Visitor visitor) {
+        begin(ENQUEUE);
+        putVisitor(visitor);
+        commit();
+    }
+
+    public synchronized void enqueueAll(List<Visitor> visitors) {
+        for (Visitor visitor : visitors) {
+            begin(ENQUEUE);
+            putVisitor(visitor);
+            commit();
+        }
+    }
+
+    // 从队首移出count名游客（removeVisitorFromQueue、drain）
+    public synchronized void removeHead(int count) {
+        begin(REMOVE_HEAD);
+        scratch.putInt(count);
+        commit();
+    }
+
+    public synchronized void removeById(String visitorId) {
+        begin(REMOVE_ID);
+        putString(visitorId);
+        commit();
+    }
+
+    public synchronized void moveToFastPass(String visitorId) {
+        begin(MOVE_TO_FAST_PASS);
+        putString(visitorId);
+        commit();
+    }
+
+    public synchronized void historyAdd(Visitor visitor) {
+        begin(HISTORY_ADD);
+        putVisitor(visitor);
+        commit();
+    }
+
+    public synchronized void historyAddAll(List<Visitor> visitors) {
+        for (Visitor visitor : visitors) {
+            begin(HISTORY_ADD);
+            putVisitor(visitor);
+            commit();
+        }
+    }
+
+    // 运行了一个周期，riders名游客按上车规则从队列进入历史记录
+    public synchronized void cycle(int riders) {
+        begin(CYCLE);
+        scratch.putInt(riders);
+        commit();
+    }
+
+    public synchronized void maxRider(int maxRider) {
+        begin(MAX_RIDER);
+        scratch.putInt(maxRider);
+        commit();
+    }
+
+    public synchronized void operator(Employee operator) {
+        begin(OPERATOR);
+        scratch.put((byte) (operator == null ? 0 : 1));
+        if (operator != null) {
+            scratch.putInt(operator.getAge());
+            putString(operator.getName());
+            putString(operator.getPhoneNumber());
+            putString(operator.getEmployeeId());
+            putString(operator.getPosition());
+        }
+        commit();
+    }
+
+    public synchronized void priority(boolean enabled, int fastPassPerRound, int standbyPerRound) {
+        begin(PRIORITY);
+        scratch.put((byte) (enabled ? 1 : 0)).putInt(fastPassPerRound).putInt(standbyPerRound);
+        commit();
+    }
+
+    // 负载先写入可复用的scratch，commit时一次性复制到映射内存；定长字段都在字符串之前，初始容量足够
+    private void begin(byte type) {
+        scratch.clear();
+        scratch.put(type);
+    }
+
+    private void putVisitor(Visitor visitor) {
+        scratch.put((byte) (visitor.isHasFastPass() ? 1 : 0));
+        scratch.putInt(visitor.getAge());
+        putString(visitor.getName());
+        putString(visitor.getPhoneNumber());
+        putString(visitor.getVisitorId());
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        int needed = 4 + (bytes == null ? 0 : bytes.length);
+        if (scratch.remaining() < needed) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + needed));
+            scratch.flip();
+            scratch = grown.put(scratch);
+        }
+        scratch.putInt(bytes == null ? -1 : bytes.length);
+        if (bytes != null) {
+            scratch.put(bytes);
+        }
+    }
+
+    private void commit() {
+        int length = scratch.position();
+        ensureMapped((long) writePosition + RECORD_HEADER_SIZE + length);
+        int position = writePosition;
+        buffer.put(position + RECORD_HEADER_SIZE, scratch.array(), 0, length);
+        crc.reset();
+        crc.update(scratch.array(), 0, length);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putInt(position, length);
+        writePosition = position + RECORD_HEADER_SIZE + length;
+        events++;
+        eventsSinceSnapshot++;
+        pendingEvents++;
+    }
+
+    // 映射空间不足时扩大映射；文件达到上限时续写下一个日志文件
+    private void ensureMapped(long required) {
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        try {
+            if (required > MAX_SEGMENT) {
+                closeSegment();
+                openSegment(segment + 1);
+                return;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.min(MAX_SEGMENT, Math.max(required, (long) buffer.capacity() * 2)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 按落盘策略force到磁盘（Ride在每个周期结束时调用）
+    public synchronized void flush() {
+        if (pendingEvents == 0) {
+            return;
+        }
+        if (flushPolicy == MappedHistoryStorage.FlushPolicy.GROUP_COMMIT && pendingEvents < groupEvents
+                && System.nanoTime() - lastForceNanos < groupMillis * 1_000_000) {
+            return;
+        }
+        force();
+    }
+
+    public synchronized void force() {
+        buffer.force();
+        pendingEvents = 0;
+        lastForceNanos = System.nanoTime();
+    }
+
+    /**
+     * 结束当前日志文件并开始下一个，返回新文件的编号；调用方在同一临界区内采集快照状态，
+     * 之后的事件都写入新文件，快照写完后以该编号提交
+     */
+    public synchronized int rotate() throws IOException {
+        closeSegment();
+        openSegment(segment + 1);
+        eventsSinceSnapshot = 0;
+        return segment;
+    }
+
+    private void closeSegment() throws IOException {
+        buffer.force();
+        buffer = null;
+        pendingEvents = 0;
+        try {
+            channel.truncate(writePosition);
+        } catch (IOException e) {
+            // 部分平台不允许截断仍被映射的文件；尾部的零区在重放时会被忽略
+        }
+        channel.close();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (buffer != null) {
+            closeSegment();
+        }
+    }
+
+    // ---------- 快照 ----------
+
+    /**
+     * 设施在某一时刻的状态，用于写快照和恢复
+     */
+    public static final class State {
+        int numOfCycles;
+        int maxRider;
+        Employee operator;
+        boolean priority;
+        int fastPassPerRound;
+        int standbyPerRound;
+        List<Visitor> fastLane = Collections.emptyList();
+        List<Visitor> standbyLane = Collections.emptyList();
+        HistoryStorage.Snapshot history;
+        List<Visitor> historyRows = Collections.emptyList(); // 恢复时读出的历史记录
+    }
+
+    /**
+     * 写快照k：先写历史记录和等待队列并落盘，最后原子替换元数据文件作为提交标志，
+     * 然后删除编号更小的快照和日志文件
+     */
+    public static void writeSnapshot(Path directory, int k, State state) throws IOException {
+        Path historyFile = directory.resolve("snapshot-" + k + ".history.bin");
+        Path queueFile = directory.resolve("snapshot-" + k + ".queue.bin");
+        HistoryStorage.Snapshot history = state.history;
+        BinaryHistoryCodec.write(() -> new HistoryCursor(history, 4096), historyFile);
+        List<Visitor> queue = new ArrayList<>(state.fastLane.size() + state.standbyLane.size());
+        queue.addAll(state.fastLane);
+        queue.addAll(state.standbyLane);
+        BinaryHistoryCodec.write(queue, queueFile);
+        forceFile(historyFile);
+        forceFile(queueFile);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(SNAPSHOT_MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(state.numOfCycles);
+        out.writeInt(state.maxRider);
+        out.writeBoolean(state.operator != null);
+        if (state.operator != null) {
+            out.writeInt(state.operator.getAge());
+            writeString(out, state.operator.getName());
+            writeString(out, state.operator.getPhoneNumber());
+            writeString(out, state.operator.getEmployeeId());
+            writeString(out, state.operator.getPosition());
+        }
+        out.writeBoolean(state.priority);
+        out.writeInt(state.fastPassPerRound);
+        out.writeInt(state.standbyPerRound);
+        out.writeInt(state.fastLane.size());
+        out.writeInt(state.standbyLane.size());
+        out.writeInt(history.size());
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes.toByteArray());
+        out.writeInt((int) checksum.getValue());
+        out.flush();
+
+        Path meta = directory.resolve("snapshot-" + k + ".meta");
+        Path temp = directory.resolve("snapshot-" + k + ".meta.tmp");
+        Files.write(temp, bytes.toByteArray());
+        forceFile(temp);
+        Files.move(temp, meta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        deleteBefore(directory, k);
+    }
+
+    // 与日志中的字符串格式相同
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes == null ? -1 : bytes.length);
+        if (bytes != null) {
+            out.write(bytes);
+        }
+    }
+
+    private static void forceFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    private static void deleteBefore(Path directory, int k) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int dot = name.indexOf('.');
+                if (!name.startsWith("snapshot-") && !name.startsWith("journal-") || dot < 0
+                        || name.endsWith(DAMAGED_SUFFIX)) {
+                    continue;
+                }
+                String number = name.substring(name.indexOf('-') + 1, dot);
+                if (number.chars().allMatch(Character::isDigit) && Integer.parseInt(number) < k) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // ---------- 恢复 ----------
+
+    /**
+     * 恢复结果：使用的快照编号（没有快照时为-1）、重放的事件数、下一个可用的日志编号，
+     * 以及中途损坏的日志编号（没有时为-1）和因此未重放的后续日志数
+     */
+    public static final class Recovery {
+        private int snapshot = -1;
+        private long events;
+        private int nextSegment;
+        private int damagedSegment = -1;
+        private int skippedSegments;
+
+        public int getSnapshot() {
+            return snapshot;
+        }
+
+        public long getEvents() {
+            return events;
+        }
+
+        public int getNextSegment() {
+            return nextSegment;
+        }
+
+        public int getDamagedSegment() {
+            return damagedSegment;
+        }
+
+        public int getSkippedSegments() {
+            return skippedSegments;
+        }
+    }
+
+    /**
+     * 读取目录中的快照和日志，依次交给ride恢复；目录为空时什么也不做。
+     * 某个日志在文件末尾之前遇到残缺或校验失败的记录时停在该处，后续日志不再重放（其中的事件接不上缺失的部分），
+     * 结果中记录损坏的日志编号，损坏的日志和未重放的日志改名为journal-N.log.damaged保留下来；
+     * 最后一个日志崩溃时留下的残缺尾部属于正常情况，不算损坏
+     */
+    public static Recovery recover(Path directory, Ride ride) throws IOException {
+        Files.createDirectories(directory);
+        TreeSet<Integer> snapshots = new TreeSet<>();
+        TreeSet<Integer> segments = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Matcher matcher = SNAPSHOT_FILE.matcher(name);
+                if (matcher.matches()) {
+                    snapshots.add(Integer.parseInt(matcher.group(1)));
+                }
+                matcher = JOURNAL_FILE.matcher(name);
+                if (matcher.matches()) {
+                    segments.add(Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        Recovery recovery = new Recovery();
+        if (!snapshots.isEmpty()) {
+            recovery.snapshot = snapshots.last();
+            ride.restoreJournalState(readSnapshot(directory, recovery.snapshot));
+        }
+        int first = recovery.snapshot >= 0 ? recovery.snapshot : (segments.isEmpty() ? 0 : segments.first());
+        for (int k : segments.tailSet(first)) {
+            SortedSet<Integer> later = segments.tailSet(k, false);
+            if (!replay(journalFile(directory, k), ride, recovery, !later.isEmpty())) {
+                recovery.damagedSegment = k;
+                recovery.skippedSegments = later.size();
+                for (int damaged : segments.tailSet(k)) {
+                    Path file = journalFile(directory, damaged);
+                    Files.move(file, file.resolveSibling(file.getFileName() + DAMAGED_SUFFIX),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+                break;
+            }
+        }
+        int last = Math.max(recovery.snapshot, segments.isEmpty() ? -1 : segments.last());
+        recovery.nextSegment = last + 1;
+        return recovery;
+    }
+
+    private static State readSnapshot(Path directory, int k) throws IOException {
+        byte[] bytes = Files.readAllBytes(directory.resolve("snapshot-" + k + ".meta"));
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes, 0, Math.max(0, bytes.length - 4));
+        if (bytes.length < SNAPSHOT_MAGIC.length + 5 || bytes[0] != SNAPSHOT_MAGIC[0] || bytes[1] != SNAPSHOT_MAGIC[1]
+                || bytes[2] != SNAPSHOT_MAGIC[2] || bytes[3] != SNAPSHOT_MAGIC[3]
+                || in.getInt(bytes.length - 4) != (int) checksum.getValue()) {
+            throw new IOException("快照元数据损坏：snapshot-" + k + ".meta");
+        }
+        in.position(SNAPSHOT_MAGIC.length);
+        if (in.get() != VERSION) {
+            throw new IOException("不支持的快照版本：snapshot-" + k + ".meta");
+        }
+        State state = new State();
+        state.numOfCycles = in.getInt();
+        state.maxRider = in.getInt();
+        if (in.get() != 0) {
+            int age = in.getInt();
+            state.operator = new Employee(readString(in), age, readString(in), readString(in), readString(in));
+        }
+        state.priority = in.get() != 0;
+        state.fastPassPerRound = in.getInt();
+        state.standbyPerRound = in.getInt();
+        int fastCount = in.getInt();
+        int standbyCount = in.getInt();
+        int historyCount = in.getInt();
+
+        List<Visitor> queue = new ArrayList<>(fastCount + standbyCount);
+        BinaryHistoryCodec.read(directory.resolve("snapshot-" + k + ".queue.bin"), queue, new ImportStats());
+        List<Visitor> history = new ArrayList<>(historyCount);
+        BinaryHistoryCodec.read(directory.resolve("snapshot-" + k + ".history.bin"), history, new ImportStats());
+        if (queue.size() != fastCount + standbyCount || history.size() != historyCount) {
+            throw new IOException("快照内容与元数据不一致：snapshot-" + k);
+        }
+        state.fastLane = queue.subList(0, fastCount);
+        state.standbyLane = queue.subList(fastCount, queue.size());
+        state.historyRows = history;
+        return state;
+    }
+
+    /**
+     * 重放一个日志文件，事件数累加到recovery；遇到残缺或校验失败的记录时停止。
+     * checkTail为true时（后面还有日志）检查停止处之后是否只剩零区，不是则说明日志中途损坏，返回false
+     */
+    private static boolean replay(Path file, Ride ride, Recovery recovery, boolean checkTail) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                return !checkTail || fileSize == 0;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (buffer.get(i) != MAGIC[i]) {
+                    throw new IOException("文件头不匹配，不是事件日志文件：" + file);
+                }
+            }
+            if (buffer.get(MAGIC.length) != VERSION) {
+                throw new IOException("不支持的事件日志版本：" + file);
+            }
+            // 每条记录整块复制到可复用的数组中校验和解码，不为每条记录创建缓冲区视图
+            CRC32 crc = new CRC32();
+            byte[] record = new byte[256];
+            ByteBuffer in = ByteBuffer.wrap(record);
+            int position = HEADER_SIZE;
+            while (position + RECORD_HEADER_SIZE <= fileSize) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || position + RECORD_HEADER_SIZE + (long) length > fileSize) {
+                    break;
+                }
+                if (length > record.length) {
+                    record = new byte[Math.max(length, record.length * 2)];
+                    in = ByteBuffer.wrap(record);
+                }
+                buffer.get(position + RECORD_HEADER_SIZE, record, 0, length);
+                crc.reset();
+                crc.update(record, 0, length);
+                if (buffer.getInt(position + 4) != (int) crc.getValue()) {
+                    break;
+                }
+                in.clear();
+                apply(in, ride);
+                position += RECORD_HEADER_SIZE + length;
+                recovery.events++;
+            }
+            return !checkTail || isZero(buffer, position, (int) fileSize);
+        }
+    }
+
+    // [from, to)全为零字节（正常关闭的日志已截断，未截断时尾部是映射留下的零区）
+    private static boolean isZero(MappedByteBuffer buffer, int from, int to) {
+        int position = from;
+        for (; position + Long.BYTES <= to; position += Long.BYTES) {
+            if (buffer.getLong(position) != 0) {
+                return false;
+            }
+        }
+        for (; position < to; position++) {
+            if (buffer.get(position) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void apply(ByteBuffer in, Ride ride) {
+        switch (in.get()) {
+            case ENQUEUE:
+                ride.replayEnqueue(readVisitor(in));
+                break;
+            case REMOVE_HEAD:
+                ride.replayRemoveHead(in.getInt());
+                break;
+            case REMOVE_ID:
+                ride.replayRemoveVisitor(readString(in));
+                break;
+            case MOVE_TO_FAST_PASS:
+                ride.replayMoveToFastPass(readString(in));
+                break;
+            case HISTORY_ADD:
+                ride.replayHistoryAdd(readVisitor(in));
+                break;
+            case CYCLE:
+                ride.replayCycle(in.getInt());
+                break;
+            case MAX_RIDER:
+                ride.setMaxRider(in.getInt());
+                break;
+            case OPERATOR:
+                Employee operator = null;
+                if (in.get() != 0) {
+                    int age = in.getInt();
+                    operator = new Employee(readString(in), age, readString(in), readString(in), readString(in));
+                }
+                ride.setOperator(operator);
+                break;
+            case PRIORITY:
+                boolean enabled = in.get() != 0;
+                int fastPassPerRound = in.getInt();
+                int standbyPerRound = in.getInt();
+                if (enabled) {
+                    ride.enableFastPassPriority(fastPassPerRound, standbyPerRound);
+                } else {
+                    ride.disableFastPassPriority();
+                }
+                break;
+            default:
+                // 未知类型（新版本写入的事件）跳过
+                break;
+        }
+    }
+
+    private static Visitor readVisitor(ByteBuffer in) {
+        boolean fastPass = in.get() != 0;
+        int age = in.getInt();
+        return new Visitor(readString(in), age, readString(in), readString(in), fastPass);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    private static Path journalFile(Path directory, int segment) {
+        return directory.resolve("journal-" + segment + ".log");
+    }
+}
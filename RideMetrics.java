@@ -0,0 +1,229 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 设施运行指标
+ * 计数使用LongAdder（分段计数，闸机线程之间不争用同一个缓存行），等待时长写入WaitTimeHistogram；
+ * 所有记录方法都不加锁，snapshot()可以在运行周期的同时从任意线程调用，不会阻塞runOneCycle
+ */
+public class RideMetrics {
+    // 计算每分钟周期数时参考最近的周期数
+    private static final int CYCLE_WINDOW = 64;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder removed = new LongAdder();
+    private final LongAdder boarded = new LongAdder();
+    private final LongAdder cycles = new LongAdder();
+    private final WaitTimeHistogram waitTimes = new WaitTimeHistogram();
+
+    // 上车人数的滚动窗口：最近一小时按分钟分桶，最近一天按小时分桶
+    private final RollingCounter ridersByMinute = new RollingCounter(60_000L, 60);
+    private final RollingCounter ridersByHour = new RollingCounter(3_600_000L, 24);
+    // 滚动窗口的毫秒时钟，与分区历史记录使用同一个时钟（默认系统时间）
+    private volatile LongSupplier clock = System::currentTimeMillis;
+
+    // 只由持有historyLock的周期线程写入，读取方通过volatile看到最新值
+    private final AtomicLongArray cycleEndNanos = new AtomicLongArray(CYCLE_WINDOW);
+    private volatile long cycleCount;
+    private volatile double lastLoadFactor;
+    private volatile double loadFactorSum;
+
+    // 开启历史记录分区时换成分区使用的时钟，模拟时间下窗口统计与分区保持一致
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    void recordEnqueued() {
+        enqueued.increment();
+    }
+
+    void recordEnqueued(int count) {
+        enqueued.add(count);
+    }
+
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    void recordRemoved() {
+        removed.increment();
+    }
+
+    void recordRemoved(int count) {
+        removed.add(count);
+    }
+
+    // waitNanos为游客从入队到上车的时长
+    void recordBoarded(long waitNanos) {
+        boarded.increment();
+        waitTimes.record(waitNanos);
+    }
+
+    // 周期结束时调用：riders为本周期载客数，capacity为maxRider
+    void recordCycle(int riders, int capacity, long endNanos) {
+        double loadFactor = capacity <= 0 ? 0 : (double) riders / capacity; // 无参构造的设施maxRider为0
+        long count = cycleCount;
+        cycleEndNanos.set((int) (count % CYCLE_WINDOW), endNanos);
+        lastLoadFactor = loadFactor;
+        loadFactorSum += loadFactor;
+        cycles.increment();
+        cycleCount = count + 1;
+        long nowMillis = clock.getAsLong();
+        ridersByMinute.add(riders, nowMillis);
+        ridersByHour.add(riders, nowMillis);
+    }
+
+    /**
+     * 最近windowMillis毫秒内上车的人数，不扫描历史记录：一小时以内按分钟取整，更长按小时取整（最多一天）
+     */
+    public long getRidersInLast(long windowMillis) {
+        RollingCounter counter = windowMillis <= ridersByMinute.getSpanMillis() ? ridersByMinute : ridersByHour;
+        return counter.sum(windowMillis, clock.getAsLong());
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getBoarded() {
+        return boarded.sum();
+    }
+
+    public WaitTimeHistogram getWaitTimes() {
+        return waitTimes;
+    }
+
+    public Snapshot snapshot() {
+        long count = cycleCount;
+        double loadFactorTotal = loadFactorSum;
+        return new Snapshot(enqueued.sum(), rejected.sum(), removed.sum(), boarded.sum(), cycles.sum(),
+                lastLoadFactor, count == 0 ? 0 : loadFactorTotal / count, cyclesPerMinute(count),
+                waitTimes.getCount(), toMillis(waitTimes.getMean()), toMillis(waitTimes.percentile(50)),
+                toMillis(waitTimes.percentile(90)), toMillis(waitTimes.percentile(99)), toMillis(waitTimes.getMax()));
+    }
+
+    // 用最近CYCLE_WINDOW个周期的结束时间估算速率，少于2个周期时为0
+    private double cyclesPerMinute(long count) {
+        int window = (int) Math.min(count, CYCLE_WINDOW);
+        if (window < 2) {
+            return 0;
+        }
+        long newest = cycleEndNanos.get((int) ((count - 1) % CYCLE_WINDOW));
+        long oldest = cycleEndNanos.get((int) ((count - window) % CYCLE_WINDOW));
+        long elapsed = newest - oldest;
+        return elapsed <= 0 ? 0 : (window - 1) * (double) TimeUnit.MINUTES.toNanos(1) / elapsed;
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * 某一时刻的指标快照（不可变），等待时长单位为毫秒
+     */
+    public static class Snapshot {
+        private final long enqueued;
+        private final long rejected;
+        private final long removed;
+        private final long boarded;
+        private final long cycles;
+        private final double lastLoadFactor;
+        private final double averageLoadFactor;
+        private final double cyclesPerMinute;
+        private final long waitSamples;
+        private final double meanWaitMillis;
+        private final double p50WaitMillis;
+        private final double p90WaitMillis;
+        private final double p99WaitMillis;
+        private final double maxWaitMillis;
+
+        Snapshot(long enqueued, long rejected, long removed, long boarded, long cycles,
+                 double lastLoadFactor, double averageLoadFactor, double cyclesPerMinute, long waitSamples,
+                 double meanWaitMillis, double p50WaitMillis, double p90WaitMillis, double p99WaitMillis,
+                 double maxWaitMillis) {
+            this.enqueued = enqueued;
+            this.rejected = rejected;
+            this.removed = removed;
+            this.boarded = boarded;
+            this.cycles = cycles;
+            this.lastLoadFactor = lastLoadFactor;
+            this.averageLoadFactor = averageLoadFactor;
+            this.cyclesPerMinute = cyclesPerMinute;
+            this.waitSamples = waitSamples;
+            this.meanWaitMillis = meanWaitMillis;
+            this.p50WaitMillis = p50WaitMillis;
+            this.p90WaitMillis = p90WaitMillis;
+            this.p99WaitMillis = p99WaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        public long getEnqueued() {
+            return enqueued;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getRemoved() {
+            return removed;
+        }
+
+        public long getBoarded() {
+            return boarded;
+        }
+
+        public long getCycles() {
+            return cycles;
+        }
+
+        // 最近一个周期的载客率（本周期载客数 / maxRider）
+        public double getLastLoadFactor() {
+            return lastLoadFactor;
+        }
+
+        public double getAverageLoadFactor() {
+            return averageLoadFactor;
+        }
+
+        public double getCyclesPerMinute() {
+            return cyclesPerMinute;
+        }
+
+        public long getWaitSamples() {
+            return waitSamples;
+        }
+
+        public double getMeanWaitMillis() {
+            return meanWaitMillis;
+        }
+
+        public double getP50WaitMillis() {
+            return p50WaitMillis;
+        }
+
+        public double getP90WaitMillis() {
+            return p90WaitMillis;
+        }
+
+        public double getP99WaitMillis() {
+            return p99WaitMillis;
+        }
+
+        public double getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("入队%d人，拒绝%d人，移除%d人，上车%d人，运行%d个周期（%.1f周期/分钟）；"
+                            + "载客率：最近%.0f%%，平均%.0f%%；等待时长(ms)：平均%.2f，P50 %.2f，P90 %.2f，P99 %.2f，最大%.2f",
+                    enqueued, rejected, removed, boarded, cycles, cyclesPerMinute,
+                    lastLoadFactor * 100, averageLoadFactor * 100,
+                    meanWaitMillis, p50WaitMillis, p90WaitMillis, p99WaitMillis, maxWaitMillis);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * 一次乘坐记录：设施、周期序号、上车时间
+ * 设施按编号和名称记录；设施已从园区移除时getRide()返回null
+ */
+public class RideVisit {
+    private final int rideId;
+    private final String rideName;
+    private final Ride ride;
+    private final int cycle;
+    private final long timestampMillis;
+
+    public RideVisit(int rideId, String rideName, Ride ride, int cycle, long timestampMillis) {
+        this.rideId = rideId;
+        this.rideName = rideName;
+        this.ride = ride;
+        this.cycle = cycle;
+        this.timestampMillis = timestampMillis;
+    }
+
+    public int getRideId() {
+        return rideId;
+    }
+
+    public String getRideName() {
+        return rideName;
+    }
+
+    public Ride getRide() {
+        return ride;
+    }
+
+    public int getCycle() {
+        return cycle;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "【" + rideName + "】第" + cycle + "个周期（" + new java.util.Date(timestampMillis) + "）";
+    }
+}
@@ -0,0 +1,56 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 滚动窗口计数器：时间按固定长度分桶，环形数组只保留最近buckets个桶
+ * 记录和查询都只涉及几个桶，与总记录数无关；过期的桶在下次写入同一位置时清零。
+ * 时间由调用方传入（毫秒），记录和查询必须使用同一个时钟。
+ * 只允许一个线程写入（Ride在运行周期时写入），查询可以在任意线程进行
+ */
+public class RollingCounter {
+    private final long bucketMillis;
+    private final int buckets;
+    private final AtomicLongArray counts;
+    private final AtomicLongArray epochs; // 每个位置当前保存的桶编号
+
+    public RollingCounter(long bucketMillis, int buckets) {
+        this.bucketMillis = Math.max(1, bucketMillis);
+        this.buckets = Math.max(1, buckets);
+        this.counts = new AtomicLongArray(this.buckets);
+        this.epochs = new AtomicLongArray(this.buckets);
+        for (int i = 0; i < this.buckets; i++) {
+            epochs.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    void add(long count, long nowMillis) {
+        long epoch = Math.floorDiv(nowMillis, bucketMillis);
+        int slot = (int) Math.floorMod(epoch, (long) buckets);
+        if (epochs.get(slot) != epoch) {
+            counts.set(slot, 0);
+            epochs.set(slot, epoch);
+        }
+        counts.addAndGet(slot, count);
+    }
+
+    /**
+     * 最近windowMillis毫秒内的合计，按桶取整（包含当前未满的桶），最多覆盖全部保留的桶
+     */
+    public long sum(long windowMillis, long nowMillis) {
+        long epoch = Math.floorDiv(nowMillis, bucketMillis);
+        long span = Math.min(buckets, Math.max(1, (windowMillis + bucketMillis - 1) / bucketMillis));
+        long total = 0;
+        for (long e = epoch - span + 1; e <= epoch; e++) {
+            int slot = (int) Math.floorMod(e, (long) buckets);
+            long count = counts.get(slot);
+            if (epochs.get(slot) == e) {
+                total += count;
+            }
+        }
+        return total;
+    }
+
+    // 可查询的最长窗口
+    public long getSpanMillis() {
+        return bucketMillis * buckets;
+    }
+}
@@ -0,0 +1,141 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 园区离散事件模拟的参数
+ * 时间单位为模拟分钟；到达过程为非齐次泊松过程（基础到达率乘以高峰倍数）
+ */
+public class SimulationConfig {
+    private double dayMinutes = 12 * 60;
+    private double arrivalsPerMinute = 20;
+    private double fastPassShare = 0.1;
+    private int fastPassPerRound = 2;
+    private int standbyPerRound = 1;
+    // 游客能接受的等待时长（分钟，指数分布的均值）；预计等待超过耐心时放弃排队，入队后等待超过耐心时中途离队
+    private double meanPatienceMinutes = 45;
+    private final List<RideSpec> rides = new ArrayList<>();
+    private final List<Peak> peaks = new ArrayList<>();
+
+    // 添加一个设施：每周期最多maxRider人，cycleMinutes分钟一个周期，popularity为游客选择它的相对权重
+    public void addRide(String name, int maxRider, double cycleMinutes, double popularity) {
+        rides.add(new RideSpec(name, Math.max(1, maxRider), Math.max(0.01, cycleMinutes), Math.max(0, popularity)));
+    }
+
+    // 在[startMinute, endMinute)期间到达率乘以multiplier，重叠的高峰取最大倍数
+    public void addPeak(double startMinute, double endMinute, double multiplier) {
+        peaks.add(new Peak(startMinute, endMinute, Math.max(0, multiplier)));
+    }
+
+    // 某一时刻的到达率（人/分钟）
+    double arrivalRate(double minute) {
+        double multiplier = 1;
+        boolean inPeak = false;
+        for (Peak peak : peaks) {
+            if (minute >= peak.start && minute < peak.end) {
+                multiplier = inPeak ? Math.max(multiplier, peak.multiplier) : peak.multiplier;
+                inPeak = true;
+            }
+        }
+        return arrivalsPerMinute * multiplier;
+    }
+
+    double maxArrivalRate() {
+        double max = arrivalsPerMinute;
+        for (Peak peak : peaks) {
+            max = Math.max(max, arrivalsPerMinute * peak.multiplier);
+        }
+        return max;
+    }
+
+    public double getDayMinutes() {
+        return dayMinutes;
+    }
+
+    public void setDayMinutes(double dayMinutes) {
+        this.dayMinutes = Math.max(1, dayMinutes);
+    }
+
+    public double getArrivalsPerMinute() {
+        return arrivalsPerMinute;
+    }
+
+    public void setArrivalsPerMinute(double arrivalsPerMinute) {
+        this.arrivalsPerMinute = Math.max(0, arrivalsPerMinute);
+    }
+
+    public double getFastPassShare() {
+        return fastPassShare;
+    }
+
+    public void setFastPassShare(double fastPassShare) {
+        this.fastPassShare = Math.min(1, Math.max(0, fastPassShare));
+    }
+
+    public int getFastPassPerRound() {
+        return fastPassPerRound;
+    }
+
+    public int getStandbyPerRound() {
+        return standbyPerRound;
+    }
+
+    public void setFastPassRatio(int fastPassPerRound, int standbyPerRound) {
+        this.fastPassPerRound = Math.max(1, fastPassPerRound);
+        this.standbyPerRound = Math.max(1, standbyPerRound);
+    }
+
+    public double getMeanPatienceMinutes() {
+        return meanPatienceMinutes;
+    }
+
+    // 传入Double.POSITIVE_INFINITY表示游客从不放弃
+    public void setMeanPatienceMinutes(double meanPatienceMinutes) {
+        this.meanPatienceMinutes = Math.max(0, meanPatienceMinutes);
+    }
+
+    public List<RideSpec> getRides() {
+        return rides;
+    }
+
+    public static class RideSpec {
+        private final String name;
+        private final int maxRider;
+        private final double cycleMinutes;
+        private final double popularity;
+
+        RideSpec(String name, int maxRider, double cycleMinutes, double popularity) {
+            this.name = name;
+            this.maxRider = maxRider;
+            this.cycleMinutes = cycleMinutes;
+            this.popularity = popularity;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMaxRider() {
+            return maxRider;
+        }
+
+        public double getCycleMinutes() {
+            return cycleMinutes;
+        }
+
+        public double getPopularity() {
+            return popularity;
+        }
+    }
+
+    private static class Peak {
+        private final double start;
+        private final double end;
+        private final double multiplier;
+
+        Peak(double start, double end, double multiplier) {
+            this.start = start;
+            this.end = end;
+            this.multiplier = multiplier;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 模拟结果：每个设施的上车、放弃排队、闭园时仍在排队的人数，利用率和等待时长分布
+ * 等待时长以模拟时间的毫秒记录在WaitTimeHistogram中；多次运行的结果可以合并，计数按运行次数取平均显示
+ */
+public class SimulationResult {
+    private final List<RideResult> rides = new ArrayList<>();
+    private final WaitTimeHistogram overallWaits = new WaitTimeHistogram();
+    private int runs = 1;
+    private long arrivals;
+    private long elapsedNanos;
+
+    RideResult addRide(String name, int maxRider) {
+        RideResult result = new RideResult(name, maxRider);
+        rides.add(result);
+        return result;
+    }
+
+    void recordArrival() {
+        arrivals++;
+    }
+
+    void recordWait(RideResult ride, long waitMillis) {
+        ride.boarded++;
+        ride.waits.record(waitMillis);
+        overallWaits.record(waitMillis);
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // 合并另一次运行（设施列表相同）的结果
+    void merge(SimulationResult other) {
+        for (int i = 0; i < rides.size(); i++) {
+            rides.get(i).merge(other.rides.get(i));
+        }
+        overallWaits.add(other.overallWaits);
+        runs += other.runs;
+        arrivals += other.arrivals;
+    }
+
+    public List<RideResult> getRides() {
+        return rides;
+    }
+
+    public WaitTimeHistogram getOverallWaits() {
+        return overallWaits;
+    }
+
+    public int getRuns() {
+        return runs;
+    }
+
+    public long getArrivals() {
+        return arrivals;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("模拟%d次，平均每天到达%.0f人，耗时%,d毫秒；全园等待(分钟)：P50 %.1f，P90 %.1f，P99 %.1f%n",
+                runs, (double) arrivals / runs, elapsedNanos / 1_000_000,
+                minutes(overallWaits.percentile(50)), minutes(overallWaits.percentile(90)),
+                minutes(overallWaits.percentile(99))));
+        for (RideResult ride : rides) {
+            report.append(ride.format(runs)).append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+
+    private static double minutes(long millis) {
+        return millis / 60_000.0;
+    }
+
+    public static class RideResult {
+        private final String name;
+        private final int maxRider;
+        private final WaitTimeHistogram waits = new WaitTimeHistogram();
+        private long boarded;
+        private long balked;
+        private long abandoned;
+        private long unserved;
+        private long cyclesOffered;
+
+        RideResult(String name, int maxRider) {
+            this.name = name;
+            this.maxRider = maxRider;
+        }
+
+        void recordBalk() {
+            balked++;
+        }
+
+        void recordAbandon() {
+            abandoned++;
+        }
+
+        void recordCycleOffered() {
+            cyclesOffered++;
+        }
+
+        void setUnserved(long unserved) {
+            this.unserved = unserved;
+        }
+
+        private void merge(RideResult other) {
+            waits.add(other.waits);
+            boarded += other.boarded;
+            balked += other.balked;
+            abandoned += other.abandoned;
+            unserved += other.unserved;
+            cyclesOffered += other.cyclesOffered;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public WaitTimeHistogram getWaits() {
+            return waits;
+        }
+
+        public long getBoarded() {
+            return boarded;
+        }
+
+        public long getBalked() {
+            return balked;
+        }
+
+        // 入队后等待超过耐心而中途离队的人数
+        public long getAbandoned() {
+            return abandoned;
+        }
+
+        public long getUnserved() {
+            return unserved;
+        }
+
+        // 上车人数 / 开放的总座位数（所有周期 × maxRider），空跑的周期也计入
+        public double getUtilization() {
+            return cyclesOffered == 0 ? 0 : (double) boarded / (cyclesOffered * (long) maxRider);
+        }
+
+        String format(int runs) {
+            return String.format("【%s】上车%.0f人，放弃%.0f人，中途离队%.0f人，闭园仍在排队%.0f人，利用率%.0f%%；"
+                            + "等待(分钟)：平均%.1f，P50 %.1f，P90 %.1f，P99 %.1f，最大%.1f",
+                    name, (double) boarded / runs, (double) balked / runs, (double) abandoned / runs,
+                    (double) unserved / runs,
+                    getUtilization() * 100, waits.getMean() / 60_000.0, minutes(waits.percentile(50)),
+                    minutes(waits.percentile(90)), minutes(waits.percentile(99)), minutes(waits.getMax()));
+        }
+    }
+}
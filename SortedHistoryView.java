@@ -0,0 +1,91 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 历史记录的有序视图
+ * 用跳表按比较器维护一份排序，每追加一条记录只做一次O(log n)插入，
+ * 不改变历史记录本身的插入顺序；比较器相等的记录按插入先后排列（稳定）。
+ * 跳表支持并发读取，看板可以在周期运行时直接遍历或做区间查询。
+ * 注意：记录进入视图后不应再修改参与比较的字段，否则排序位置会失效
+ */
+public class SortedHistoryView implements Iterable<Visitor> {
+    private final String name;
+    private final Comparator<Visitor> comparator;
+    private final ConcurrentSkipListMap<Key, Visitor> index;
+
+    SortedHistoryView(String name, Comparator<Visitor> comparator) {
+        this.name = name;
+        this.comparator = comparator;
+        this.index = new ConcurrentSkipListMap<>(this::compareKeys);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Comparator<Visitor> getComparator() {
+        return comparator;
+    }
+
+    // sequence为记录在历史中的插入序号，用于区分比较器相等的记录
+    void add(Visitor visitor, long sequence) {
+        index.put(new Key(visitor, sequence), visitor);
+    }
+
+    // 删除插入序号为sequence的记录（历史记录删除过期分区时调用）
+    void remove(Visitor visitor, long sequence) {
+        index.remove(new Key(visitor, sequence));
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * 区间查询：返回排序位于[fromInclusive, toExclusive)之间的记录，O(log n + k)
+     * 边界只是比较用的样本游客，不需要出现在历史记录中；为null表示不限
+     */
+    public List<Visitor> range(Visitor fromInclusive, Visitor toExclusive) {
+        NavigableMap<Key, Visitor> slice = index;
+        if (fromInclusive != null) {
+            slice = slice.tailMap(new Key(fromInclusive, Long.MIN_VALUE), true);
+        }
+        if (toExclusive != null) {
+            slice = slice.headMap(new Key(toExclusive, Long.MIN_VALUE), false);
+        }
+        return new ArrayList<>(slice.values());
+    }
+
+    // 按排序返回前limit条记录
+    public List<Visitor> first(int limit) {
+        List<Visitor> result = new ArrayList<>(Math.max(0, Math.min(limit, 1024)));
+        for (Visitor visitor : index.values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(visitor);
+        }
+        return result;
+    }
+
+    // 按排序遍历（弱一致：遍历期间新追加的记录可能可见也可能不可见）
+    @Override
+    public Iterator<Visitor> iterator() {
+        return Collections.unmodifiableCollection(index.values()).iterator();
+    }
+
+    private int compareKeys(Key a, Key b) {
+        int result = comparator.compare(a.visitor, b.visitor);
+        return result != 0 ? result : Long.compare(a.sequence, b.sequence);
+    }
+
+    private static final class Key {
+        private final Visitor visitor;
+        private final long sequence;
+
+        Key(Visitor visitor, long sequence) {
+            this.visitor = visitor;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+import java.util.*;
+
+/**
+ * 字符串字典：把重复出现的字符串映射为从0开始的整数编号
+ * 用于二进制历史记录格式和列式存储，重复的姓名/电话/游客ID只保存一份
+ */
+public class StringDictionary {
+    private final HashMap<String, Integer> codes = new HashMap<>();
+    private final ArrayList<String> values = new ArrayList<>();
+
+    // 返回字符串的编号，不存在时分配新编号（允许null）
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    // 只查询不分配，不存在时返回-1
+    public int find(String value) {
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    public String decode(int code) {
+        return values.get(code);
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
@@ -39,7 +39,12 @@ public class Visitor extends Person {
     // 重写toString方法，包含游客专属信息
     @Override
     public String toString() {
-        return super.toString() + "，游客ID：" + visitorId + "，快速通行证：" + (hasFastPass ? "有" : "无");
+        return appendTo(new StringBuilder(96)).toString();
+    }
+
+    @Override
+    public StringBuilder appendTo(StringBuilder sb) {
+        return super.appendTo(sb).append("，游客ID：").append(visitorId).append("，快速通行证：").append(hasFastPass ? "有" : "无");
     }
 
     // 用于CSV文件读写的辅助方法（返回CSV格式字符串）
@@ -0,0 +1,140 @@
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 游客注册表（驻留池）：同一visitorId在所有设施的队列和历史记录中共用一个Visitor对象
+ * 与Visitor.equals/hashCode一致，按visitorId识别同一游客。
+ * 注册表只弱引用游客：只要还有队列或历史记录引用它，就一直返回同一对象；
+ * 游客离园、所有引用都消失后被GC回收，对应条目在下次调用时清理，注册表本身不会无限增长。
+ * 同一ID的字段与已登记的不同（例如更新了电话）时，以新对象为准替换登记。
+ * 注意：共用后对一个Visitor调用setter会影响所有设施中的这名游客
+ */
+public class VisitorRegistry {
+    private final ConcurrentHashMap<String, CanonicalRef> canonical = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Visitor> cleared = new ReferenceQueue<>();
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder replaced = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    /**
+     * 返回该游客的规范对象：已登记且字段相同时返回已登记的对象，否则登记并返回visitor本身
+     */
+    public Visitor intern(Visitor visitor) {
+        if (visitor == null || visitor.getVisitorId() == null) {
+            return visitor;
+        }
+        expungeCleared();
+        lookups.increment();
+        String visitorId = visitor.getVisitorId();
+        while (true) {
+            CanonicalRef ref = canonical.get(visitorId);
+            Visitor existing = ref == null ? null : ref.get();
+            if (existing == visitor) {
+                return visitor;
+            }
+            if (existing != null && sameFields(existing, visitor)) {
+                hits.increment();
+                bytesSaved.add(estimateBytes(visitor));
+                return existing;
+            }
+            CanonicalRef fresh = new CanonicalRef(visitor, cleared);
+            boolean registered = ref == null ? canonical.putIfAbsent(visitorId, fresh) == null
+                    : canonical.replace(visitorId, ref, fresh);
+            if (registered) {
+                if (existing != null) {
+                    replaced.increment();
+                }
+                return visitor;
+            }
+            // 其他线程同时登记了同一ID，重新比较
+        }
+    }
+
+    // 只查询不登记；游客已离园（对象被回收）时返回null
+    public Visitor lookup(String visitorId) {
+        CanonicalRef ref = canonical.get(visitorId);
+        return ref == null ? null : ref.get();
+    }
+
+    // 当前登记的游客数（包含已回收但尚未清理的条目）
+    public int size() {
+        expungeCleared();
+        return canonical.size();
+    }
+
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    // 命中已登记对象、丢弃重复副本的次数
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getReplaced() {
+        return replaced.sum();
+    }
+
+    // 命中时丢弃的重复副本大小之和（按64位JVM、压缩指针、紧凑字符串估算）
+    public long getBytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    @Override
+    public String toString() {
+        long count = lookups.sum();
+        return String.format("登记游客%d名，查询%d次，命中%d次（%.1f%%），替换%d次，约节省%,d KB",
+                size(), count, hits.sum(), count == 0 ? 0 : hits.sum() * 100.0 / count, replaced.sum(),
+                bytesSaved.sum() >> 10);
+    }
+
+    private void expungeCleared() {
+        CanonicalRef ref;
+        while ((ref = (CanonicalRef) cleared.poll()) != null) {
+            canonical.remove(ref.visitorId, ref);
+        }
+    }
+
+    private static boolean sameFields(Visitor a, Visitor b) {
+        return a.getAge() == b.getAge() && a.isHasFastPass() == b.isHasFastPass()
+                && equal(a.getName(), b.getName()) && equal(a.getPhoneNumber(), b.getPhoneNumber());
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    // Visitor对象32字节，加上三个字符串
+    static long estimateBytes(Visitor visitor) {
+        return 32 + stringBytes(visitor.getName()) + stringBytes(visitor.getPhoneNumber())
+                + stringBytes(visitor.getVisitorId());
+    }
+
+    // String对象24字节，加上byte[]（16字节头 + 内容，8字节对齐）；含非Latin-1字符时每字符2字节
+    private static long stringBytes(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int perChar = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                perChar = 2;
+                break;
+            }
+        }
+        return 24 + ((16L + (long) value.length() * perChar + 7) & ~7L);
+    }
+
+    private static final class CanonicalRef extends WeakReference<Visitor> {
+        private final String visitorId;
+
+        CanonicalRef(Visitor visitor, ReferenceQueue<Visitor> queue) {
+            super(visitor, queue);
+            this.visitorId = visitor.getVisitorId();
+        }
+    }
+}
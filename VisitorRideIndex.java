@@ -0,0 +1,318 @@
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+/**
+ * 全园游客乘坐索引：visitorId -> 乘坐过的(设施, 周期, 时间)
+ * Park注册设施时把索引挂在Ride上（不占用事件监听器），游客上车时追加一条事件；也可以作为监听器单独使用。
+ * 按visitorId的哈希分成STRIPES段，每段一把锁：多个设施在不同线程上同时运行周期时，
+ * 上车的游客多数落在不同的段，互不阻塞。同一游客的事件都在同一段中。
+ * 每段用开放寻址表把游客ID编码为整数（不装箱），事件按列保存在分页的基本类型数组中（每条约20字节，扩容时不复制旧数据），
+ * 同一游客的事件通过previousEvent串成链表，查询只访问该游客自己的事件，与总事件数无关。
+ * 事件中只保存设施编号（Ride.getRideId()），设施对象只被弱引用，removeRide后不再引用
+ */
+public class VisitorRideIndex implements RideEventListener {
+    private static final int STRIPES = 32;
+    private static final int STRIPE_SHIFT = 32 - Integer.numberOfTrailingZeros(STRIPES);
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    // 设施编号 -> 设施名称和弱引用；写时复制，上车时无锁读取
+    private volatile RideInfo[] rideInfos = new RideInfo[16];
+    private final Object rideLock = new Object();
+
+    public VisitorRideIndex() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public void visitorBoarded(Ride ride, Visitor visitor, int cycle) {
+        record(ride, visitor.getVisitorId(), cycle, System.currentTimeMillis());
+    }
+
+    public void record(Ride ride, String visitorId, int cycle, long timestampMillis) {
+        int rideId = ride.getRideId();
+        RideInfo[] infos = rideInfos;
+        if (rideId >= infos.length || infos[rideId] == null) {
+            registerRide(ride);
+        }
+        int hash = hash(visitorId);
+        Stripe stripe = stripeOf(hash);
+        synchronized (stripe) {
+            stripe.record(visitorId, hash, rideId, cycle, timestampMillis);
+        }
+    }
+
+    private void registerRide(Ride ride) {
+        synchronized (rideLock) {
+            int rideId = ride.getRideId();
+            RideInfo[] infos = rideInfos;
+            if (rideId < infos.length && infos[rideId] != null) {
+                return;
+            }
+            RideInfo[] copy = Arrays.copyOf(infos, Math.max(infos.length, Integer.highestOneBit(rideId) * 2));
+            copy[rideId] = new RideInfo(ride.getRideName(), ride);
+            rideInfos = copy;
+        }
+    }
+
+    /**
+     * 设施从园区移除：保留它的乘坐记录（按编号和名称），不再引用设施对象，之后RideVisit.getRide()返回null
+     */
+    public void removeRide(Ride ride) {
+        synchronized (rideLock) {
+            int rideId = ride.getRideId();
+            RideInfo[] infos = rideInfos;
+            if (rideId < infos.length && infos[rideId] != null) {
+                RideInfo[] copy = infos.clone();
+                copy[rideId] = new RideInfo(ride.getRideName(), null);
+                rideInfos = copy;
+            }
+        }
+    }
+
+    private static int hash(String visitorId) {
+        int h = visitorId == null ? 0 : visitorId.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    // 段号取乘以黄金分割数后的高位，与段内哈希表使用的低位无关
+    private Stripe stripeOf(int hash) {
+        return stripes[(hash * 0x9E3779B9) >>> STRIPE_SHIFT];
+    }
+
+    private Ride rideOf(int rideId) {
+        RideInfo info = rideInfos[rideId];
+        return info.ride == null ? null : info.ride.get();
+    }
+
+    private String rideNameOf(int rideId) {
+        Ride ride = rideOf(rideId);
+        return ride != null ? ride.getRideName() : rideInfos[rideId].name;
+    }
+
+    // 游客按时间先后的全部乘坐记录，O(该游客的乘坐次数)
+    public List<RideVisit> visitsOf(String visitorId) {
+        int hash = hash(visitorId);
+        Stripe stripe = stripeOf(hash);
+        int[] rideIds;
+        int[] cycles;
+        long[] times;
+        synchronized (stripe) {
+            int visitor = stripe.find(visitorId, hash);
+            if (visitor < 0) {
+                return new ArrayList<>();
+            }
+            int count = stripe.visitCount[visitor];
+            rideIds = new int[count];
+            cycles = new int[count];
+            times = new long[count];
+            int i = count;
+            for (int event = stripe.latestEvent[visitor]; event >= 0; event = stripe.previous(event)) {
+                int page = event >>> PAGE_BITS;
+                int slot = event & PAGE_MASK;
+                i--;
+                rideIds[i] = stripe.eventRide[page][slot];
+                cycles[i] = stripe.eventCycle[page][slot];
+                times[i] = stripe.eventTime[page][slot];
+            }
+        }
+        List<RideVisit> visits = new ArrayList<>(rideIds.length);
+        for (int i = 0; i < rideIds.length; i++) {
+            visits.add(new RideVisit(rideIds[i], rideNameOf(rideIds[i]), rideOf(rideIds[i]), cycles[i], times[i]));
+        }
+        return visits;
+    }
+
+    // 游客乘坐过的设施（按第一次乘坐的先后，不重复；已移除的设施不在其中）
+    public List<Ride> ridesOf(String visitorId) {
+        int hash = hash(visitorId);
+        Stripe stripe = stripeOf(hash);
+        int[] codes;
+        synchronized (stripe) {
+            int visitor = stripe.find(visitorId, hash);
+            if (visitor < 0) {
+                return new ArrayList<>();
+            }
+            codes = new int[stripe.visitCount[visitor]];
+            int i = codes.length;
+            for (int event = stripe.latestEvent[visitor]; event >= 0; event = stripe.previous(event)) {
+                codes[--i] = stripe.eventRide[event >>> PAGE_BITS][event & PAGE_MASK];
+            }
+        }
+        LinkedHashSet<Ride> result = new LinkedHashSet<>();
+        for (int code : codes) {
+            Ride ride = rideOf(code);
+            if (ride != null) {
+                result.add(ride);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    public boolean hasRidden(String visitorId, Ride ride) {
+        int code = ride.getRideId();
+        int hash = hash(visitorId);
+        Stripe stripe = stripeOf(hash);
+        synchronized (stripe) {
+            int visitor = stripe.find(visitorId, hash);
+            if (visitor < 0) {
+                return false;
+            }
+            for (int event = stripe.latestEvent[visitor]; event >= 0; event = stripe.previous(event)) {
+                if (stripe.eventRide[event >>> PAGE_BITS][event & PAGE_MASK] == code) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public int visitCount(String visitorId) {
+        int hash = hash(visitorId);
+        Stripe stripe = stripeOf(hash);
+        synchronized (stripe) {
+            int visitor = stripe.find(visitorId, hash);
+            return visitor < 0 ? 0 : stripe.visitCount[visitor];
+        }
+    }
+
+    public int getEventCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.eventCount;
+            }
+        }
+        return count;
+    }
+
+    public int getVisitorCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.visitors;
+            }
+        }
+        return count;
+    }
+
+    private static final class RideInfo {
+        private final String name;
+        private final WeakReference<Ride> ride;
+
+        RideInfo(String name, Ride ride) {
+            this.name = name;
+            this.ride = ride == null ? null : new WeakReference<>(ride);
+        }
+    }
+
+    // 一段游客及其事件，所有访问都在该段的锁内
+    private static final class Stripe {
+        // 开放寻址表：槽位保存游客编号+1（0为空），键直接与ids比较
+        private int[] table = new int[64];
+        private String[] ids = new String[32];
+        private int[] hashes = new int[32];
+        // 每名游客最新一条事件的编号（-1表示没有）和乘坐次数，按游客编号索引
+        private int[] latestEvent = new int[32];
+        private int[] visitCount = new int[32];
+        private int visitors;
+
+        // 事件列：设施编号、周期、时间、同一游客的上一条事件
+        private int[][] eventRide = new int[0][];
+        private int[][] eventCycle = new int[0][];
+        private long[][] eventTime = new long[0][];
+        private int[][] previousEvent = new int[0][];
+        private int eventCount;
+
+        void record(String visitorId, int hash, int rideId, int cycle, long timestampMillis) {
+            int visitor = encode(visitorId, hash);
+            int event = eventCount;
+            int page = event >>> PAGE_BITS;
+            if (page == eventRide.length) {
+                addPage();
+            }
+            int slot = event & PAGE_MASK;
+            eventRide[page][slot] = rideId;
+            eventCycle[page][slot] = cycle;
+            eventTime[page][slot] = timestampMillis;
+            previousEvent[page][slot] = latestEvent[visitor];
+            latestEvent[visitor] = event;
+            visitCount[visitor]++;
+            eventCount++;
+        }
+
+        // 只查询不分配，不存在时返回-1
+        int find(String visitorId, int hash) {
+            int mask = table.length - 1;
+            for (int i = hash & mask; table[i] != 0; i = (i + 1) & mask) {
+                int visitor = table[i] - 1;
+                if (hashes[visitor] == hash && Objects.equals(ids[visitor], visitorId)) {
+                    return visitor;
+                }
+            }
+            return -1;
+        }
+
+        // 返回游客编号，不存在时分配新编号
+        private int encode(String visitorId, int hash) {
+            int mask = table.length - 1;
+            int i = hash & mask;
+            for (; table[i] != 0; i = (i + 1) & mask) {
+                int visitor = table[i] - 1;
+                if (hashes[visitor] == hash && Objects.equals(ids[visitor], visitorId)) {
+                    return visitor;
+                }
+            }
+            int visitor = visitors++;
+            if (visitor == ids.length) {
+                int capacity = ids.length * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                hashes = Arrays.copyOf(hashes, capacity);
+                latestEvent = Arrays.copyOf(latestEvent, capacity);
+                visitCount = Arrays.copyOf(visitCount, capacity);
+            }
+            ids[visitor] = visitorId;
+            hashes[visitor] = hash;
+            latestEvent[visitor] = -1;
+            table[i] = visitor + 1;
+            if (visitors * 2 > table.length) {
+                rehash();
+            }
+            return visitor;
+        }
+
+        private void rehash() {
+            int[] larger = new int[table.length * 2];
+            int mask = larger.length - 1;
+            for (int visitor = 0; visitor < visitors; visitor++) {
+                int i = hashes[visitor] & mask;
+                while (larger[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                larger[i] = visitor + 1;
+            }
+            table = larger;
+        }
+
+        private void addPage() {
+            int pages = eventRide.length + 1;
+            eventRide = Arrays.copyOf(eventRide, pages);
+            eventCycle = Arrays.copyOf(eventCycle, pages);
+            eventTime = Arrays.copyOf(eventTime, pages);
+            previousEvent = Arrays.copyOf(previousEvent, pages);
+            eventRide[pages - 1] = new int[PAGE_SIZE];
+            eventCycle[pages - 1] = new int[PAGE_SIZE];
+            eventTime[pages - 1] = new long[PAGE_SIZE];
+            previousEvent[pages - 1] = new int[PAGE_SIZE];
+        }
+
+        int previous(int event) {
+            return previousEvent[event >>> PAGE_BITS][event & PAGE_MASK];
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * 排队等待时间估算器
+ * 用指数加权平均跟踪周期间隔和每周期上车人数，只在运行周期时（单线程、持有historyLock）更新；
+ * 估算只读几个volatile字段和队列的O(1)计数，不加锁、不遍历队列，可以高频查询
+ */
+public class WaitEstimator {
+    // 新观测值的权重
+    private static final double ALPHA = 0.2;
+
+    // 周期间隔（纳秒）的加权平均，0表示尚无观测
+    private volatile double cycleIntervalNanos;
+
+    // 满载周期（上车后队列仍不为空）的每周期上车人数加权平均
+    private volatile double boardsPerCycle;
+
+    // 上一个周期开始的时刻；上一个周期是否把队列排空（排空后到下个周期之间是空闲时间，不计入间隔）
+    private volatile long lastCycleStartNanos;
+    private volatile boolean lastCycleDrained = true;
+
+    public WaitEstimator(int maxRider) {
+        this.boardsPerCycle = Math.max(1, maxRider);
+    }
+
+    // 用计划周期时长作为初始间隔，尚无观测时也能给出估算；已有观测时不覆盖
+    public void setNominalCycleMillis(long cycleMillis) {
+        if (cycleIntervalNanos == 0 && cycleMillis > 0) {
+            cycleIntervalNanos = cycleMillis * 1_000_000.0;
+        }
+    }
+
+    // 周期开始时调用
+    void cycleStarted(long nowNanos) {
+        if (!lastCycleDrained && lastCycleStartNanos != 0) {
+            double interval = nowNanos - lastCycleStartNanos;
+            double current = cycleIntervalNanos;
+            cycleIntervalNanos = current == 0 ? interval : current + ALPHA * (interval - current);
+        }
+        lastCycleStartNanos = nowNanos;
+    }
+
+    // 周期结束时调用；queueDrained表示本周期后队列已空（本周期上车人数受队列长度限制，不计入平均）
+    void cycleCompleted(int riders, boolean queueDrained) {
+        if (!queueDrained && riders > 0) {
+            double current = boardsPerCycle;
+            boardsPerCycle = current + ALPHA * (riders - current);
+        }
+        lastCycleDrained = queueDrained;
+    }
+
+    public double getCycleIntervalMillis() {
+        return cycleIntervalNanos / 1_000_000.0;
+    }
+
+    public double getBoardsPerCycle() {
+        return boardsPerCycle;
+    }
+
+    // 当前估算的每周期上车人数（取整，至少1）
+    public int getRidersPerCycle() {
+        return (int) Math.max(1, Math.floor(boardsPerCycle));
+    }
+
+    /**
+     * 前面还要等cycles个完整周期时的预计等待毫秒数：到下一周期的剩余时间 + cycles × 周期间隔；
+     * 尚无周期间隔时返回-1
+     */
+    public long estimateMillis(long cycles, long nowNanos) {
+        double interval = cycleIntervalNanos;
+        if (interval == 0) {
+            return -1;
+        }
+        long last = lastCycleStartNanos;
+        double untilNext = last == 0 ? interval : Math.max(0, last + interval - nowNanos);
+        return (long) ((untilNext + cycles * interval) / 1_000_000.0);
+    }
+
+    /**
+     * 某通道中前面有laneAhead人的游客，在上车之前还要等几个完整周期
+     * 开启优先时每个周期从头按fastPerRound:standbyPerRound交替，两通道每周期的名额按ridersPerCycle算出；
+     * 一个通道排空后由另一通道补满。关闭优先时快速通道剩余的游客全部先上车
+     */
+    public static long cyclesBefore(boolean fastLane, long laneAhead, long fastSize, long standbySize,
+                                    boolean priority, int fastPerRound, int standbyPerRound, int ridersPerCycle) {
+        if (!priority) {
+            return (fastLane ? laneAhead : fastSize + laneAhead) / ridersPerCycle;
+        }
+        int round = fastPerRound + standbyPerRound;
+        int fastShare = ridersPerCycle / round * fastPerRound + Math.min(ridersPerCycle % round, fastPerRound);
+        int standbyShare = ridersPerCycle - fastShare;
+        int ownShare = fastLane ? fastShare : standbyShare;
+        int otherShare = fastLane ? standbyShare : fastShare;
+        long otherSize = fastLane ? standbySize : fastSize;
+        if (ownShare == 0) {
+            return (otherSize + laneAhead) / ridersPerCycle; // 每周期的名额都被另一通道占满，等其排空
+        }
+        if (otherShare == 0) {
+            return laneAhead / ownShare;
+        }
+        // 另一通道还能占满名额的周期数，之后由本通道补满整个周期
+        long saturated = otherSize / otherShare;
+        if (laneAhead < saturated * ownShare) {
+            return laneAhead / ownShare;
+        }
+        long rest = laneAhead - saturated * ownShare + (otherSize - saturated * otherShare);
+        return saturated + rest / ridersPerCycle;
+    }
+}
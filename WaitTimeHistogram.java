@@ -0,0 +1,101 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 等待时长直方图（HDR风格的对数-线性分桶）
+ * 小于64的值精确计数，更大的值每个2的幂区间均分为32个子桶，相对误差约3%；记录为一次无锁原子自增，不分配对象，
+ * 读取分位数时无需加锁，可以在运行周期的同时轮询
+ */
+public class WaitTimeHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * (SUB_BUCKETS / 2);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private volatile long max;
+
+    // 记录一个非负值（单位由调用方决定，Ride使用纳秒）
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(indexOf(value));
+        total.increment();
+        sum.add(value);
+        long currentMax = max;
+        if (value > currentMax) {
+            synchronized (this) {
+                if (value > max) {
+                    max = value;
+                }
+            }
+        }
+    }
+
+    // 把另一个直方图的计数合并进来（例如汇总多次模拟的结果）
+    public void add(WaitTimeHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        total.add(other.total.sum());
+        sum.add(other.sum.sum());
+        synchronized (this) {
+            max = Math.max(max, other.max);
+        }
+    }
+
+    public long getCount() {
+        return total.sum();
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        long count = total.sum();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * 返回分位数的近似值（所在子桶的上界，不超过最大值），percentile取0~100
+     */
+    public long percentile(double percentile) {
+        long count = total.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1; // value >>> exponent 落在[SUB_BUCKETS/2, SUB_BUCKETS)
+        int subBucket = (int) (value >>> exponent) - SUB_BUCKETS / 2;
+        return SUB_BUCKETS + (exponent - 1) * (SUB_BUCKETS / 2) + subBucket;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = (index - SUB_BUCKETS) / (SUB_BUCKETS / 2) + 1;
+        int subBucket = (index - SUB_BUCKETS) % (SUB_BUCKETS / 2) + SUB_BUCKETS / 2;
+        return ((long) (subBucket + 1) << exponent) - 1;
+    }
+}
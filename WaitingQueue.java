@@ -0,0 +1,384 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 游乐设施等待队列
+ * 默认严格FIFO；开启快速通行优先后，持快速通行证的游客进入单独的快速通道，
+ * 上车时按“每轮fastPassPerRound名快速通道 + standbyPerRound名普通通道”的比例交替，
+ * 某一通道为空时由另一通道补位。两个通道各自FIFO，入队和出队均为O(1)。
+ * 可设置容量上限：入队前先用CAS预留名额，队列已满时立即失败，不分配任何节点
+ * 游客可以按visitorId中途离队或转入快速通道：非并发模式下通道为IndexedLane，位置查询和删除为O(log n)；
+ * 并发模式下通道为无锁队列，中途删除需要O(n)遍历
+ */
+public class WaitingQueue implements Iterable<Visitor> {
+    private final Queue<QueueEntry> fastLane;
+    private final Queue<QueueEntry> standbyLane;
+    private final AtomicInteger size = new AtomicInteger(); // 并发队列的size()为O(n)，单独计数
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+    private volatile int capacity = Integer.MAX_VALUE; // 默认不限容量
+
+    // 各通道的入队/出队计数：差值即通道长度，入队序号减去出队计数即前面的人数
+    private final AtomicLong fastTail = new AtomicLong();
+    private final AtomicLong fastHead = new AtomicLong();
+    private final AtomicLong standbyTail = new AtomicLong();
+    private final AtomicLong standbyHead = new AtomicLong();
+
+    // visitorId -> 队列项，用于按ID查询位置（同一ID重复排队时记录最近的一项）
+    private final Map<String, QueueEntry> entriesById = new ConcurrentHashMap<>();
+
+    // 阻塞等待空位的线程数及其等待的监视器（只有存在等待者时出队方才进入同步块）
+    private final AtomicInteger blockedOffers = new AtomicInteger();
+    private final Object notFull = new Object();
+
+    // 快速通行优先配置
+    private volatile boolean priority;
+    private volatile int fastPassPerRound = 2;
+    private volatile int standbyPerRound = 1;
+
+    // 当前轮次已上车人数（只在运行周期时修改）
+    private int roundPosition;
+
+    public WaitingQueue(boolean concurrent) {
+        this.fastLane = concurrent ? new ConcurrentLinkedQueue<>() : new IndexedLane();
+        this.standbyLane = concurrent ? new ConcurrentLinkedQueue<>() : new IndexedLane();
+    }
+
+    // 开启快速通行优先，例如(2, 1)表示每上2名快速通行游客再上1名普通游客
+    public void enablePriority(int fastPassPerRound, int standbyPerRound) {
+        this.fastPassPerRound = Math.max(1, fastPassPerRound);
+        this.standbyPerRound = Math.max(1, standbyPerRound);
+        this.priority = true;
+    }
+
+    // 关闭后新入队游客全部进入普通通道；快速通道中已有的游客仍优先上车直到排空
+    public void disablePriority() {
+        this.priority = false;
+    }
+
+    public boolean isPriority() {
+        return priority;
+    }
+
+    public int getFastPassPerRound() {
+        return fastPassPerRound;
+    }
+
+    public int getStandbyPerRound() {
+        return standbyPerRound;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // 设置容量上限；已在队列中的游客不受影响，超出部分出队后才会有新名额
+    public void setCapacity(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        signalNotFull();
+    }
+
+    // 历史最大队列长度
+    public int getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    // 有空位时入队并返回true；队列已满时立即返回false
+    public boolean offer(Visitor visitor) {
+        if (!reserve()) {
+            return false;
+        }
+        enqueue(visitor);
+        return true;
+    }
+
+    /**
+     * 批量入队：一次CAS预留尽可能多的名额，整批共用一个入队时刻
+     * 按顺序入队visitors的前k名并返回k（队列剩余名额不足时k小于visitors.size()）
+     */
+    public int offerAll(List<Visitor> visitors) {
+        int granted = reserve(visitors.size());
+        long now = System.nanoTime();
+        for (int i = 0; i < granted; i++) {
+            enqueue(visitors.get(i), now);
+        }
+        return granted;
+    }
+
+    // 队列已满时最多等待timeoutMillis毫秒，超时返回false
+    public boolean offer(Visitor visitor, long timeoutMillis) throws InterruptedException {
+        if (!awaitReservation(timeoutMillis)) {
+            return false;
+        }
+        enqueue(visitor);
+        return true;
+    }
+
+    /**
+     * 预留一个名额，队列已满时最多等待timeoutMillis毫秒，超时返回false；
+     * 预留成功后调用方必须用enqueueReserved入队。用于需要在其他锁内完成入队、又不能持锁等待的调用方
+     */
+    boolean awaitReservation(long timeoutMillis) throws InterruptedException {
+        if (reserve()) {
+            return true;
+        }
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        blockedOffers.incrementAndGet();
+        try {
+            synchronized (notFull) {
+                while (!reserve()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    notFull.wait(Math.max(1, remaining / 1_000_000L));
+                }
+            }
+        } finally {
+            blockedOffers.decrementAndGet();
+        }
+        return true;
+    }
+
+    void enqueueReserved(Visitor visitor) {
+        enqueue(visitor);
+    }
+
+    // 恢复快照或重放日志时使用：按指定通道直接入队，不受容量限制
+    void restore(Visitor visitor, boolean fast) {
+        reserveUnbounded();
+        enqueue(visitor, System.nanoTime(), fast);
+    }
+
+    // 重放日志时使用：按当前优先配置选择通道，不受容量限制
+    void restore(Visitor visitor) {
+        reserveUnbounded();
+        enqueue(visitor, System.nanoTime());
+    }
+
+    private void reserveUnbounded() {
+        int current = size.incrementAndGet();
+        int peak = highWaterMark.get();
+        while (current > peak && !highWaterMark.compareAndSet(peak, current)) {
+            peak = highWaterMark.get();
+        }
+    }
+
+    // 某一通道中游客的副本（按排队顺序），用于写快照
+    List<Visitor> laneVisitors(boolean fast) {
+        List<Visitor> visitors = new ArrayList<>();
+        for (QueueEntry entry : fast ? fastLane : standbyLane) {
+            visitors.add(entry.getVisitor());
+        }
+        return visitors;
+    }
+
+    // 用CAS预留一个名额，同时更新最大队列长度
+    private boolean reserve() {
+        return reserve(1) == 1;
+    }
+
+    // 预留最多count个名额，返回实际预留的数量
+    private int reserve(int count) {
+        while (true) {
+            int current = size.get();
+            int granted = (int) Math.min(count, (long) capacity - current);
+            if (granted <= 0) {
+                return 0;
+            }
+            if (size.compareAndSet(current, current + granted)) {
+                int peak = highWaterMark.get();
+                while (current + granted > peak && !highWaterMark.compareAndSet(peak, current + granted)) {
+                    peak = highWaterMark.get();
+                }
+                return granted;
+            }
+        }
+    }
+
+    private void enqueue(Visitor visitor) {
+        enqueue(visitor, System.nanoTime());
+    }
+
+    private QueueEntry enqueue(Visitor visitor, long enqueueNanos) {
+        return enqueue(visitor, enqueueNanos, priority && visitor.isHasFastPass());
+    }
+
+    private QueueEntry enqueue(Visitor visitor, long enqueueNanos, boolean fast) {
+        QueueEntry entry = new QueueEntry(visitor, enqueueNanos, fast,
+                (fast ? fastTail : standbyTail).getAndIncrement());
+        if (visitor.getVisitorId() != null) {
+            entriesById.put(visitor.getVisitorId(), entry);
+        }
+        (fast ? fastLane : standbyLane).offer(entry);
+        return entry;
+    }
+
+    // 出队后唤醒等待空位的入队线程
+    private void released() {
+        size.decrementAndGet();
+        if (blockedOffers.get() > 0) {
+            signalNotFull();
+        }
+    }
+
+    private void signalNotFull() {
+        synchronized (notFull) {
+            notFull.notifyAll();
+        }
+    }
+
+    // 取出队首游客（快速通道优先），不影响上车比例
+    public QueueEntry poll() {
+        QueueEntry entry = pollLane(true);
+        if (entry == null) {
+            entry = pollLane(false);
+        }
+        if (entry != null) {
+            released();
+        }
+        return entry;
+    }
+
+    private QueueEntry pollLane(boolean fast) {
+        QueueEntry entry = (fast ? fastLane : standbyLane).poll();
+        if (entry != null) {
+            (fast ? fastHead : standbyHead).incrementAndGet();
+            String visitorId = entry.getVisitor().getVisitorId();
+            if (visitorId != null) {
+                entriesById.remove(visitorId, entry);
+            }
+        }
+        return entry;
+    }
+
+    // 每个运行周期开始时调用，使新周期从快速通道开始计算比例
+    public void startCycle() {
+        roundPosition = 0;
+    }
+
+    // 按快速通行比例取出下一名上车游客；调用方需保证同一时刻只有一个周期在运行
+    public QueueEntry pollForBoarding() {
+        if (!priority && fastLane.isEmpty()) {
+            return poll();
+        }
+        int roundLength = fastPassPerRound + standbyPerRound;
+        boolean fastTurn = roundPosition < fastPassPerRound;
+        QueueEntry entry = pollLane(fastTurn);
+        if (entry == null) {
+            entry = pollLane(!fastTurn);
+        }
+        if (entry != null) {
+            released();
+            roundPosition = (roundPosition + 1) % roundLength;
+        }
+        return entry;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    // 快速通道当前人数（O(1)，并发入队时为近似值）
+    public long fastLaneSize() {
+        return Math.max(0, fastTail.get() - fastHead.get());
+    }
+
+    public long standbyLaneSize() {
+        return Math.max(0, standbyTail.get() - standbyHead.get());
+    }
+
+    // 按visitorId查找仍在队列中的游客，不在队列中时返回null
+    public QueueEntry find(String visitorId) {
+        return visitorId == null ? null : entriesById.get(visitorId);
+    }
+
+    /**
+     * 按visitorId把游客移出队列（不论所在位置），返回被移出的项；不在队列中时返回null
+     * 并发模式下中途移出按一次出队计数，排在其前面的游客的位置估算会暂时少1
+     */
+    public QueueEntry remove(String visitorId) {
+        QueueEntry entry = unlink(visitorId);
+        if (entry != null) {
+            released();
+        }
+        return entry;
+    }
+
+    /**
+     * 把普通通道中的游客转入快速通道队尾，保留原入队时刻；已在快速通道时原样返回
+     * 返回游客现在所在的项，不在队列中时返回null
+     */
+    public QueueEntry moveToFastLane(String visitorId) {
+        QueueEntry entry = find(visitorId);
+        if (entry == null || entry.isFastLane()) {
+            return entry;
+        }
+        entry = unlink(visitorId);
+        if (entry == null) {
+            return null; // 已被其他线程取走
+        }
+        return enqueue(entry.getVisitor(), entry.getEnqueueNanos(), true);
+    }
+
+    // 从所在通道删除该游客的项，不改变队列总人数
+    private QueueEntry unlink(String visitorId) {
+        QueueEntry entry = find(visitorId);
+        if (entry == null || !(entry.isFastLane() ? fastLane : standbyLane).remove(entry)) {
+            return null;
+        }
+        (entry.isFastLane() ? fastHead : standbyHead).incrementAndGet();
+        entriesById.remove(visitorId, entry);
+        return entry;
+    }
+
+    // 同一通道中排在该项前面的准确人数，不在通道中时返回-1；并发模式下需要O(n)遍历
+    public long positionInLane(QueueEntry entry) {
+        Queue<QueueEntry> lane = entry.isFastLane() ? fastLane : standbyLane;
+        if (lane instanceof IndexedLane) {
+            return ((IndexedLane) lane).positionOf(entry);
+        }
+        long position = 0;
+        for (QueueEntry e : lane) {
+            if (e == entry) {
+                return position;
+            }
+            position++;
+        }
+        return -1;
+    }
+
+    // 同一通道中排在该项前面的人数；并发模式下为O(1)近似值（中途离队后可能暂时偏差）
+    public long aheadInLane(QueueEntry entry) {
+        Queue<QueueEntry> lane = entry.isFastLane() ? fastLane : standbyLane;
+        if (lane instanceof IndexedLane) {
+            return Math.max(0, ((IndexedLane) lane).positionOf(entry));
+        }
+        long head = (entry.isFastLane() ? fastHead : standbyHead).get();
+        return Math.max(0, entry.getLaneSequence() - head);
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    // 先遍历快速通道，再遍历普通通道
+    @Override
+    public Iterator<Visitor> iterator() {
+        Iterator<QueueEntry> fast = fastLane.iterator();
+        Iterator<QueueEntry> standby = standbyLane.iterator();
+        return new Iterator<Visitor>() {
+            @Override
+            public boolean hasNext() {
+                return fast.hasNext() || standby.hasNext();
+            }
+
+            @Override
+            public Visitor next() {
+                return (fast.hasNext() ? fast.next() : standby.next()).getVisitor();
+            }
+        };
+    }
+}
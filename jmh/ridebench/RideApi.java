@@ -0,0 +1,188 @@
+package ridebench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Comparator;
+
+/**
+ * 访问默认包中的Ride等类
+ * JMH不允许基准测试类放在默认包中，而具名包无法import默认包的类，因此通过MethodHandle调用；
+ * 句柄都是static final常量，JIT会把调用内联，开销与直接调用相同
+ */
+final class RideApi {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+    private static final Class<?> RIDE = load("Ride");
+    private static final Class<?> VISITOR = load("Visitor");
+    private static final Class<?> EMPLOYEE = load("Employee");
+
+    private static final MethodHandle NEW_EMPLOYEE = constructor(EMPLOYEE,
+            String.class, int.class, String.class, String.class, String.class);
+    private static final MethodHandle NEW_VISITOR = constructor(VISITOR,
+            String.class, int.class, String.class, String.class, boolean.class);
+    private static final MethodHandle NEW_RIDE = constructor(RIDE,
+            String.class, String.class, EMPLOYEE, int.class);
+    private static final MethodHandle NEW_COMPARATOR = constructor(load("VisitorComparator"));
+
+    private static final MethodHandle ADD_VISITOR_TO_QUEUE = method("addVisitorToQueue", void.class, VISITOR);
+    private static final MethodHandle ADD_VISITOR_TO_HISTORY = method("addVisitorToHistory", void.class, VISITOR);
+    private static final MethodHandle RUN_ONE_CYCLE = method("runOneCycle", void.class);
+    private static final MethodHandle CHECK_VISITOR = method("checkVisitorFromHistory", boolean.class, VISITOR);
+    private static final MethodHandle SORT = method("sortRideHistory", void.class, Comparator.class);
+    private static final MethodHandle EXPORT = method("exportRideHistory", void.class, String.class);
+    private static final MethodHandle IMPORT = method("importRideHistory", void.class, String.class);
+    private static final MethodHandle QUEUE_SIZE = method("getQueueSize", int.class);
+    private static final MethodHandle HISTORY_SIZE = method("getHistorySize", int.class);
+
+    private RideApi() {
+    }
+
+    // 与RideBenchmark.visitor相同的游客数据
+    static Object visitor(int i) {
+        try {
+            return NEW_VISITOR.invokeExact("游客" + i, 5 + i % 60, "139" + String.format("%08d", i), "VIS" + i, i % 3 == 0);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object newRide(int maxRider) {
+        try {
+            Object operator = NEW_EMPLOYEE.invokeExact("基准", 30, "00000000000", "EMP-BENCH", "基准测试");
+            return NEW_RIDE.invokeExact("基准设施", "基准类", operator, maxRider);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static Comparator<Object> visitorComparator() {
+        try {
+            return (Comparator<Object>) (Object) NEW_COMPARATOR.invokeExact();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void addVisitorToQueue(Object ride, Object visitor) {
+        try {
+            ADD_VISITOR_TO_QUEUE.invokeExact(ride, visitor);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void addVisitorToHistory(Object ride, Object visitor) {
+        try {
+            ADD_VISITOR_TO_HISTORY.invokeExact(ride, visitor);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void runOneCycle(Object ride) {
+        try {
+            RUN_ONE_CYCLE.invokeExact(ride);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static boolean checkVisitorFromHistory(Object ride, Object visitor) {
+        try {
+            return (boolean) CHECK_VISITOR.invokeExact(ride, visitor);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void sortRideHistory(Object ride, Comparator<?> comparator) {
+        try {
+            SORT.invokeExact(ride, comparator);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void exportRideHistory(Object ride, String path) {
+        try {
+            EXPORT.invokeExact(ride, path);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void importRideHistory(Object ride, String path) {
+        try {
+            IMPORT.invokeExact(ride, path);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int getQueueSize(Object ride) {
+        try {
+            return (int) QUEUE_SIZE.invokeExact(ride);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int getHistorySize(Object ride) {
+        try {
+            return (int) HISTORY_SIZE.invokeExact(ride);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    private static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("找不到类：" + name, e);
+        }
+    }
+
+    // 参数和返回值中的默认包类型都改成Object，调用方可以用invokeExact
+    private static MethodHandle constructor(Class<?> type, Class<?>... parameters) {
+        try {
+            MethodHandle handle = LOOKUP.findConstructor(type, MethodType.methodType(void.class, parameters));
+            return handle.asType(erase(handle.type()));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle method(String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            MethodHandle handle = LOOKUP.findVirtual(RIDE, name, MethodType.methodType(returnType, parameters));
+            return handle.asType(erase(handle.type()));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodType erase(MethodType type) {
+        MethodType erased = type;
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (type.parameterType(i).getPackageName().isEmpty()) {
+                erased = erased.changeParameterType(i, Object.class);
+            }
+        }
+        if (type.returnType().getPackageName().isEmpty() && !type.returnType().isPrimitive()) {
+            erased = erased.changeReturnType(Object.class);
+        }
+        return erased;
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IllegalStateException(t);
+    }
+}
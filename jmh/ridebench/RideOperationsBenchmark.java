@@ -0,0 +1,157 @@
+package ridebench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ride主要操作的JMH基准测试，规模为1K、100K、10M名游客（@Param size）
+ * 除checkVisitorFromHistory按单次查询计时外，其余每次调用处理全部size名游客，
+ * 需要新状态的场景在每次调用前重新准备（Level.Invocation，不计入耗时）。
+ * 运行方式见pom.xml中的说明，结果以JSON格式写入target/jmh-result.json
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RideOperationsBenchmark {
+    private static final int MAX_RIDER = 32;
+    private static final int QUERIES = 100_000;
+
+    @State(Scope.Benchmark)
+    public static class Visitors {
+        @Param({"1000", "100000", "10000000"})
+        public int size;
+
+        Object[] visitors;
+        Object[] shuffled;
+        Object[] probes;
+        Object history;
+        Path csv;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            visitors = new Object[size];
+            for (int i = 0; i < size; i++) {
+                visitors[i] = RideApi.visitor(i);
+            }
+            List<Object> list = new ArrayList<>(Arrays.asList(visitors));
+            Collections.shuffle(list, new Random(42));
+            shuffled = list.toArray();
+            Random random = new Random(42);
+            probes = new Object[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                probes[i] = RideApi.visitor(random.nextInt(size * 2)); // 约一半不在历史记录中
+            }
+            history = withHistory(visitors);
+            csv = Files.createTempFile("ride-jmh", ".csv");
+            RideApi.exportRideHistory(history, csv.toString());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    // 每次调用前的空设施
+    @State(Scope.Thread)
+    public static class EmptyRide {
+        Object ride;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            ride = RideApi.newRide(MAX_RIDER);
+        }
+    }
+
+    // 每次调用前的满队列设施
+    @State(Scope.Thread)
+    public static class QueuedRide {
+        Object ride;
+
+        @Setup(Level.Invocation)
+        public void setUp(Visitors data) {
+            ride = RideApi.newRide(MAX_RIDER);
+            for (Object visitor : data.visitors) {
+                RideApi.addVisitorToQueue(ride, visitor);
+            }
+        }
+    }
+
+    // 每次调用前历史记录为乱序的设施
+    @State(Scope.Thread)
+    public static class ShuffledRide {
+        Object ride;
+
+        @Setup(Level.Invocation)
+        public void setUp(Visitors data) {
+            ride = withHistory(data.shuffled);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ProbeCursor {
+        int next;
+    }
+
+    @Benchmark
+    public Object addVisitorToQueue(Visitors data, EmptyRide state) {
+        for (Object visitor : data.visitors) {
+            RideApi.addVisitorToQueue(state.ride, visitor);
+        }
+        return state.ride;
+    }
+
+    @Benchmark
+    public int runOneCycle(QueuedRide state) {
+        while (RideApi.getQueueSize(state.ride) > 0) {
+            RideApi.runOneCycle(state.ride);
+        }
+        return RideApi.getHistorySize(state.ride);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean checkVisitorFromHistory(Visitors data, ProbeCursor cursor) {
+        Object probe = data.probes[cursor.next];
+        cursor.next = cursor.next + 1 == QUERIES ? 0 : cursor.next + 1;
+        return RideApi.checkVisitorFromHistory(data.history, probe);
+    }
+
+    @Benchmark
+    public Object sortRideHistory(ShuffledRide state) {
+        RideApi.sortRideHistory(state.ride, RideApi.visitorComparator());
+        return state.ride;
+    }
+
+    @Benchmark
+    public void exportRideHistory(Visitors data, Blackhole blackhole) throws IOException {
+        RideApi.exportRideHistory(data.history, data.csv.toString());
+        blackhole.consume(Files.size(data.csv));
+    }
+
+    @Benchmark
+    public int importRideHistory(Visitors data, EmptyRide state) {
+        RideApi.importRideHistory(state.ride, data.csv.toString());
+        return RideApi.getHistorySize(state.ride);
+    }
+
+    private static Object withHistory(Object[] visitors) {
+        Object ride = RideApi.newRide(MAX_RIDER);
+        for (Object visitor : visitors) {
+            RideApi.addVisitorToHistory(ride, visitor);
+        }
+        return ride;
+    }
+}
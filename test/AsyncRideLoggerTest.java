@@ -0,0 +1,60 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncRideLoggerTest {
+    private static Ride ride() {
+        return new Ride("过山车", "刺激", new Employee("张三", 30, "1", "E1", "操作员"), 4);
+    }
+
+    @Test
+    void fastPassMoveIsLogged() throws IOException {
+        StringWriter out = new StringWriter();
+        AsyncRideLogger logger = new AsyncRideLogger(out, 64);
+        Ride ride = ride();
+        ride.setEventListener(logger);
+        ride.enableFastPassPriority(2, 1);
+        ride.addVisitorToQueue(new Visitor("游客", 20, "1", "V1", false));
+        assertTrue(ride.moveToFastPass("V1"));
+        logger.close();
+        assertTrue(out.toString().contains("\"type\":\"visitorMovedToFastPass\",\"ride\":\"过山车\",\"visitorId\":\"V1\""),
+                out.toString());
+    }
+
+    @Test
+    void failureIsLoggedWithDetail() throws IOException {
+        StringWriter out = new StringWriter();
+        AsyncRideLogger logger = new AsyncRideLogger(out, 64);
+        Ride ride = ride();
+        logger.operationFailed(ride, RideFailure.INVALID_CYCLE_MILLIS, "-5");
+        logger.close();
+        assertTrue(out.toString().contains("\"failure\":\"INVALID_CYCLE_MILLIS\",\"detail\":\"-5\""), out.toString());
+    }
+
+    @Test
+    void everyEventIsWrittenOrCountedAsDropped() throws Exception {
+        StringWriter out = new StringWriter();
+        AsyncRideLogger logger = new AsyncRideLogger(out, 16);
+        Ride ride = ride();
+        final int perThread = 5000;
+        Thread[] threads = new Thread[3];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    logger.cycleStarted(ride, i + 1);
+                }
+            });
+            threads[t].start();
+        }
+        Thread.sleep(5);
+        logger.close(); // 关闭时发布线程仍在运行，之后的事件计入dropped
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long lines = out.toString().lines().count();
+        assertEquals(perThread * threads.length, lines + logger.getDropped());
+    }
+}
@@ -0,0 +1,124 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryHistoryCodecTest {
+    @TempDir
+    Path dir;
+
+    private static List<String> rows(List<Visitor> visitors) {
+        return visitors.stream().map(Visitor::toString).collect(Collectors.toList());
+    }
+
+    private List<Visitor> roundTrip(List<Visitor> visitors) throws IOException {
+        Path file = dir.resolve("history.rhb");
+        assertEquals(visitors.size(), BinaryHistoryCodec.write(visitors, file));
+        List<Visitor> read = new ArrayList<>();
+        ImportStats stats = new ImportStats();
+        BinaryHistoryCodec.read(file, read, stats);
+        assertEquals(visitors.size(), stats.getRows());
+        return read;
+    }
+
+    @Test
+    void roundTripKeepsOrderAndAllFields() throws IOException {
+        List<Visitor> visitors = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            // 重复的姓名和电话走字典，快速通行标记跨越多个字节
+            visitors.add(new Visitor("游客" + i % 17, i % 90, "139" + i % 5, "V" + i, i % 3 == 0));
+        }
+        assertEquals(rows(visitors), rows(roundTrip(visitors)));
+    }
+
+    @Test
+    void roundTripKeepsNullsCommasAndNegativeAges() throws IOException {
+        List<Visitor> visitors = List.of(
+                new Visitor(null, -5, null, null, true),
+                new Visitor("张,三", Integer.MIN_VALUE, "", "id,1", false),
+                new Visitor("😀", Integer.MAX_VALUE, "电话", "V2", true));
+        List<Visitor> read = roundTrip(visitors);
+        assertEquals(rows(visitors), rows(read));
+        assertNull(read.get(0).getName());
+        assertNull(read.get(0).getVisitorId());
+        assertEquals("", read.get(1).getPhoneNumber());
+    }
+
+    @Test
+    void emptyHistoryRoundTrips() throws IOException {
+        assertTrue(roundTrip(List.of()).isEmpty());
+    }
+
+    @Test
+    void corruptedFileIsRejected() throws IOException {
+        Path file = dir.resolve("history.rhb");
+        BinaryHistoryCodec.write(List.of(new Visitor("李四", 30, "1", "V1", false)), file);
+        byte[] data = Files.readAllBytes(file);
+        data[data.length / 2] ^= 0x5A;
+        Files.write(file, data);
+        assertThrows(IOException.class, () -> BinaryHistoryCodec.read(file, new ArrayList<>(), new ImportStats()));
+    }
+
+    // 文件头 + 给定的正文 + 正确的校验和
+    private Path withValidChecksum(byte... body) throws IOException {
+        byte[] data = new byte[5 + body.length + 4];
+        data[0] = 'R';
+        data[1] = 'H';
+        data[2] = 'B';
+        data[3] = '1';
+        data[4] = 1;
+        System.arraycopy(body, 0, data, 5, body.length);
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        int value = (int) crc.getValue();
+        for (int i = 0; i < 4; i++) {
+            data[data.length - 4 + i] = (byte) (value >>> (24 - 8 * i));
+        }
+        Path file = dir.resolve("forged.rhb");
+        Files.write(file, data);
+        return file;
+    }
+
+    @Test
+    void countsLargerThanTheFileAreRejected() throws IOException {
+        byte[][] bodies = {
+                {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0}, // 记录数Integer.MAX_VALUE
+                {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F, 0}, // 记录数为负
+                {0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07}, // 字典项数过大
+                {0, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07}, // 字符串长度溢出
+        };
+        for (byte[] body : bodies) {
+            Path file = withValidChecksum(body);
+            assertThrows(IOException.class, () -> BinaryHistoryCodec.read(file, new ArrayList<>(), new ImportStats()));
+        }
+    }
+
+    @Test
+    void notABinaryFileIsRejected() throws IOException {
+        Path file = dir.resolve("history.csv");
+        Files.writeString(file, "李四,30,1,V1,false\n");
+        assertThrows(IOException.class, () -> BinaryHistoryCodec.read(file, new ArrayList<>(), new ImportStats()));
+    }
+
+    @Test
+    void rideBinaryExportImportMatchesHistory() {
+        Ride source = new Ride("过山车", "刺激", new Employee("张三", 30, "1", "E1", "操作员"), 4);
+        for (int i = 0; i < 50; i++) {
+            source.addVisitorToHistory(new Visitor("游客" + i, 20 + i, "138" + i, "V" + i, i % 2 == 0));
+        }
+        Path file = dir.resolve("ride.rhb");
+        source.exportRideHistoryBinary(file.toString());
+        Ride target = new Ride();
+        ImportStats stats = target.importRideHistoryBinary(file.toString());
+        assertEquals(50, stats.getRows());
+        assertEquals(rows(source.historyPage(0, 100)), rows(target.historyPage(0, 100)));
+    }
+}
@@ -0,0 +1,32 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FastPassLaneTest {
+    @Test
+    void movingToFastLaneDoesNotChangeTheSharedVisitor() {
+        Visitor shared = new Visitor("张三", 30, "13900000000", "V1", false);
+        Employee operator = new Employee("李四", 35, "13800000000", "E1", "操作员");
+        Ride coaster = new Ride("过山车", "刺激", operator, 1);
+        Ride wheel = new Ride("摩天轮", "观光", null, 1);
+        coaster.enableFastPassPriority(2, 1);
+        wheel.enableFastPassPriority(2, 1);
+        for (int i = 0; i < 3; i++) {
+            coaster.addVisitorToQueue(new Visitor("游客" + i, 20, "", "S" + i, false));
+            wheel.addVisitorToQueue(new Visitor("游客" + i, 20, "", "S" + i, false));
+        }
+        coaster.addVisitorToQueue(shared);
+        wheel.addVisitorToQueue(shared);
+        assertEquals(3, coaster.positionOf("V1"));
+
+        assertTrue(coaster.moveToFastPass("V1"));
+        assertEquals(0, coaster.positionOf("V1"));
+        assertFalse(shared.isHasFastPass());
+        assertEquals(3, wheel.positionOf("V1")); // 另一个设施中仍在普通通道
+
+        coaster.runOneCycle();
+        assertEquals(-1, coaster.positionOf("V1"));
+        assertTrue(coaster.checkVisitorFromHistory(shared));
+        assertFalse(shared.isHasFastPass());
+    }
+}
@@ -0,0 +1,72 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedLaneTest {
+    private static QueueEntry entry(int i) {
+        return new QueueEntry(new Visitor("游客" + i, 20, "", "V" + i, false), i, false, i);
+    }
+
+    @Test
+    void positionsFollowRemovalsFromTheMiddle() {
+        IndexedLane lane = new IndexedLane();
+        List<QueueEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            entries.add(entry(i));
+            lane.offer(entries.get(i));
+        }
+        assertTrue(lane.remove(entries.get(2)));
+        assertFalse(lane.remove(entries.get(2)));
+        assertEquals(-1, lane.positionOf(entries.get(2)));
+        assertEquals(0, lane.positionOf(entries.get(0)));
+        assertEquals(2, lane.positionOf(entries.get(3)));
+        assertEquals(3, lane.positionOf(entries.get(4)));
+        assertSame(entries.get(0), lane.poll());
+        assertEquals(0, lane.positionOf(entries.get(1)));
+        assertEquals(2, lane.positionOf(entries.get(4)));
+        assertEquals(3, lane.size());
+    }
+
+    @Test
+    void randomOperationsMatchAListModel() {
+        // 远多于初始槽位数的入队，覆盖槽位用完后的重新编号
+        Random random = new Random(11);
+        IndexedLane lane = new IndexedLane();
+        List<QueueEntry> model = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            int op = random.nextInt(10);
+            if (op < 5 || model.isEmpty()) {
+                QueueEntry e = entry(i);
+                lane.offer(e);
+                model.add(e);
+            } else if (op < 7) {
+                assertSame(model.remove(0), lane.poll());
+            } else {
+                QueueEntry e = model.remove(random.nextInt(model.size()));
+                assertTrue(lane.remove(e));
+            }
+            if (!model.isEmpty() && i % 97 == 0) {
+                int k = random.nextInt(model.size());
+                assertEquals(k, lane.positionOf(model.get(k)));
+            }
+        }
+        assertEquals(model.size(), lane.size());
+        assertEquals(model, new ArrayList<>(lane));
+        for (int k = 0; k < model.size(); k++) {
+            assertEquals(k, lane.positionOf(model.get(k)));
+        }
+    }
+
+    @Test
+    void entryCannotJoinTwoLanes() {
+        IndexedLane lane = new IndexedLane();
+        QueueEntry e = entry(1);
+        lane.offer(e);
+        assertThrows(IllegalStateException.class, () -> new IndexedLane().offer(e));
+        assertEquals(-1, new IndexedLane().positionOf(e));
+    }
+}
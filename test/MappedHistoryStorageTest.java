@@ -0,0 +1,231 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedHistoryStorageTest {
+    @TempDir
+    Path dir;
+
+    private static Visitor visitor(int i) {
+        return new Visitor("游客" + i, 20 + i % 50, "139" + i, "V" + i, i % 3 == 0);
+    }
+
+    private static List<String> rows(HistoryStorage storage) {
+        List<String> rows = new ArrayList<>();
+        for (Visitor visitor : storage) {
+            rows.add(visitor.toString());
+        }
+        return rows;
+    }
+
+    private static List<String> expected(int from, int to) {
+        List<String> rows = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            rows.add(visitor(i).toString());
+        }
+        return rows;
+    }
+
+    private MappedHistoryStorage open(Path file) throws IOException {
+        return MappedHistoryStorage.open(file, MappedHistoryStorage.FlushPolicy.EVERY_CYCLE);
+    }
+
+    // 写入count条记录后关闭，返回最后一条记录的字节数
+    private long writeAndClose(Path file, int count) throws IOException {
+        try (MappedHistoryStorage log = open(file)) {
+            for (int i = 0; i < count - 1; i++) {
+                log.add(visitor(i));
+            }
+            long before = log.getLogBytes();
+            log.add(visitor(count - 1));
+            return log.getLogBytes() - before;
+        }
+    }
+
+    private static void truncate(Path file, long bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - bytes);
+        }
+    }
+
+    @Test
+    void closeAndReopenKeepsEveryRecord() throws IOException {
+        Path file = dir.resolve("history.log");
+        writeAndClose(file, 100);
+        try (MappedHistoryStorage log = open(file)) {
+            assertEquals(100, log.getRecoveredRecords());
+            assertEquals(0, log.getTruncatedBytes());
+            assertEquals(expected(0, 100), rows(log));
+        }
+    }
+
+    @Test
+    void oneByteTruncationDropsOnlyTheLastRecord() throws IOException {
+        Path file = dir.resolve("history.log");
+        writeAndClose(file, 100);
+        truncate(file, 1);
+        try (MappedHistoryStorage log = open(file)) {
+            assertEquals(99, log.getRecoveredRecords());
+            assertEquals(expected(0, 99), rows(log));
+            log.add(visitor(99));
+        }
+        try (MappedHistoryStorage log = open(file)) {
+            assertEquals(expected(0, 100), rows(log));
+        }
+    }
+
+    @Test
+    void truncationInsideRecordHeaderOrPayloadDropsThatRecord() throws IOException {
+        Path file = dir.resolve("history.log");
+        long lastRecord = writeAndClose(file, 10);
+        // 只剩最后一条记录的长度字段和半个校验和
+        truncate(file, lastRecord - 6);
+        try (MappedHistoryStorage log = open(file)) {
+            assertEquals(expected(0, 9), rows(log));
+            assertTrue(log.getTruncatedBytes() > 0);
+            log.add(visitor(9));
+        }
+        lastRecord = writeAndClose(dir.resolve("other.log"), 10);
+        Path other = dir.resolve("other.log");
+        // 负载写了一半
+        truncate(other, lastRecord / 2);
+        try (MappedHistoryStorage log = open(other)) {
+            assertEquals(expected(0, 9), rows(log));
+        }
+        try (MappedHistoryStorage log = open(file)) {
+            assertEquals(expected(0, 10), rows(log));
+        }
+    }
+
+    @Test
+    void tornRecordWithoutLengthIsClearedBeforeAppending() throws IOException {
+        Path file = dir.resolve("history.log");
+        writeAndClose(file, 20);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // 崩溃时负载和校验和已写入、长度字段还是0
+            ByteBuffer torn = ByteBuffer.allocate(40);
+            torn.putInt(0).putInt(0x12345678);
+            while (torn.hasRemaining()) {
+                torn.put((byte) 0x7F);
+            }
+            torn.flip();
+            channel.write(torn, channel.size());
+        }
+        try (MappedHistoryStorage log = open(file)) {
+            assertEquals(20, log.getRecoveredRecords());
+            assertEquals(40, log.getTruncatedBytes()); // 校验和加负载
+            log.add(new Visitor("甲", 1, "", "X", false));
+        }
+        try (MappedHistoryStorage log = open(file)) {
+            assertEquals(21, log.size());
+            assertEquals("X", log.get(20).getVisitorId());
+        }
+    }
+
+    @Test
+    void reopeningWithoutCloseRecoversForcedAndUnforcedRecords() throws IOException {
+        Path file = dir.resolve("history.log");
+        MappedHistoryStorage crashed = open(file);
+        for (int i = 0; i < 50; i++) {
+            crashed.add(visitor(i));
+        }
+        crashed.force();
+        for (int i = 50; i < 80; i++) {
+            crashed.add(visitor(i)); // 进程崩溃时仍在页缓存中
+        }
+        try (MappedHistoryStorage log = open(file)) {
+            assertEquals(80, log.getRecoveredRecords());
+            assertEquals(0, log.getTruncatedBytes());
+            assertEquals(expected(0, 80), rows(log));
+        }
+    }
+
+    @Test
+    void recordsAfterCheckpointAreVerified() throws IOException {
+        Path file = dir.resolve("history.log");
+        MappedHistoryStorage crashed = open(file);
+        for (int i = 0; i < 10; i++) {
+            crashed.add(visitor(i));
+        }
+        crashed.force();
+        long corruptAt = 0;
+        for (int i = 10; i < 20; i++) {
+            if (i == 15) {
+                corruptAt = crashed.getLogBytes() + 12; // 第16条记录的负载
+            }
+            crashed.add(visitor(i));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xEE}), corruptAt);
+        }
+        try (MappedHistoryStorage log = open(file)) {
+            assertEquals(expected(0, 15), rows(log));
+        }
+    }
+
+    @Test
+    void fullSegmentRollsOverAndReopensInOrder() throws IOException {
+        Path file = dir.resolve("history.log");
+        try (MappedHistoryStorage log = MappedHistoryStorage.open(file,
+                MappedHistoryStorage.FlushPolicy.EVERY_CYCLE, 1024)) {
+            for (int i = 0; i < 300; i++) {
+                log.add(visitor(i));
+            }
+            assertTrue(log.getSegmentCount() > 1);
+            assertEquals(expected(0, 300), rows(log));
+        }
+        try (MappedHistoryStorage log = MappedHistoryStorage.open(file,
+                MappedHistoryStorage.FlushPolicy.EVERY_CYCLE, 1024)) {
+            assertEquals(expected(0, 300), rows(log));
+            log.add(visitor(300));
+            assertEquals("V300", log.get(300).getVisitorId());
+        }
+    }
+
+    @Test
+    void groupCommitForcesPendingRecordsWithoutFurtherCycles() throws Exception {
+        Path file = dir.resolve("history.log");
+        try (MappedHistoryStorage log = MappedHistoryStorage.open(file, MappedHistoryStorage.FlushPolicy.GROUP_COMMIT)) {
+            log.setGroupCommit(1_000_000, 20);
+            log.add(visitor(0));
+            log.flush(); // 未达到阈值，不落盘
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (checkpoint(file) != log.getLogBytes() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(log.getLogBytes(), checkpoint(file));
+        }
+    }
+
+    // 文件头中的检查点（已落盘的有效长度）
+    private static long checkpoint(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            channel.read(header, 8);
+            return header.getInt(0);
+        }
+    }
+
+    @Test
+    void historyIndexIsBuiltOnFirstLookup() throws IOException {
+        Path file = dir.resolve("history.log");
+        writeAndClose(file, 30);
+        try (MappedHistoryStorage log = open(file)) {
+            RideHistory history = new RideHistory(log);
+            history.add(visitor(5));
+            assertEquals(31, history.size());
+            assertEquals(2, history.rideCount("V5"));
+            assertTrue(history.containsId("V29"));
+            assertFalse(history.containsId("V30"));
+        }
+    }
+}
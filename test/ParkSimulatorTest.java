@@ -0,0 +1,34 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParkSimulatorTest {
+    private static SimulationConfig overloaded(double meanPatienceMinutes) {
+        SimulationConfig config = new SimulationConfig();
+        config.setDayMinutes(240);
+        config.setArrivalsPerMinute(10);
+        config.setFastPassShare(0);
+        config.setMeanPatienceMinutes(meanPatienceMinutes);
+        config.addRide("过山车", 4, 5, 1);
+        return config;
+    }
+
+    @Test
+    void impatientVisitorsLeaveTheQueueAfterJoining() {
+        SimulationResult result = new ParkSimulator(overloaded(10)).run(42);
+        SimulationResult.RideResult ride = result.getRides().get(0);
+        assertTrue(ride.getAbandoned() > 0);
+        // 每名到达的游客只有一个结局：放弃排队、中途离队、上车或闭园仍在排队
+        assertEquals(result.getArrivals(),
+                ride.getBalked() + ride.getAbandoned() + ride.getBoarded() + ride.getUnserved());
+    }
+
+    @Test
+    void visitorsWhoNeverGiveUpDoNotAbandon() {
+        SimulationResult.RideResult ride = new ParkSimulator(overloaded(Double.POSITIVE_INFINITY)).run(7)
+                .getRides().get(0);
+        assertEquals(0, ride.getAbandoned());
+        assertEquals(0, ride.getBalked());
+        assertTrue(ride.getUnserved() > 0);
+    }
+}
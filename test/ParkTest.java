@@ -0,0 +1,122 @@
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParkTest {
+    private static Ride ride(int maxRider) {
+        return new Ride("过山车", "刺激", new Employee("张三", 30, "1", "E1", "操作员"), maxRider, true);
+    }
+
+    @Test
+    void invalidRegistrationIsReportedThroughListener() {
+        Park park = new Park(1);
+        Ride ride = ride(4);
+        List<RideFailure> failures = new ArrayList<>();
+        ride.setEventListener(new RideEventListener() {
+            @Override
+            public void operationFailed(Ride r, RideFailure failure, String detail) {
+                failures.add(failure);
+            }
+        });
+        assertFalse(park.addRide(null, 100));
+        assertFalse(park.addRide(ride, 0));
+        assertEquals(List.of(RideFailure.INVALID_CYCLE_MILLIS), failures);
+
+        Ride single = new Ride("摩天轮", "观光", new Employee("李四", 30, "1", "E2", "操作员"), 4);
+        single.setEventListener(ride.getEventListener());
+        assertFalse(park.addRide(single, 100)); // 非并发模式的队列不能在调度线程上运行周期
+        assertEquals(List.of(RideFailure.INVALID_CYCLE_MILLIS, RideFailure.NOT_CONCURRENT), failures);
+        assertEquals(0, park.getRideCount());
+        assertTrue(park.addRide(ride, 100));
+        assertEquals(1, park.getRideCount());
+        park.shutdown();
+    }
+
+    @Test
+    void enqueueWhileRunningKeepsQueueAndIndexConsistent() throws InterruptedException {
+        final int visitors = 20000;
+        Ride ride = ride(8);
+        Park park = new Park(2);
+        assertTrue(park.addRide(ride, 1));
+        park.start();
+        for (int i = 0; i < visitors; i++) {
+            ride.addVisitorToQueue(new Visitor("游客" + i, 20, "1", "V" + i, false));
+        }
+        park.shutdown();
+
+        assertEquals(visitors, ride.numberOfVisitors() + ride.getQueueSize());
+        int[] positions = new int[visitors];
+        for (int i = 0; i < visitors; i++) {
+            positions[i] = ride.positionOf("V" + i);
+        }
+        List<Visitor> queued = new ArrayList<>();
+        ride.drain(visitors, queued::add);
+        for (int i = 0; i < queued.size(); i++) {
+            int id = Integer.parseInt(queued.get(i).getVisitorId().substring(1));
+            assertEquals(i, positions[id], queued.get(i).getVisitorId());
+            positions[id] = -2;
+        }
+        VisitorRideIndex index = park.getVisitorIndex();
+        for (int i = 0; i < visitors; i++) {
+            if (positions[i] != -2) {
+                assertEquals(-1, positions[i], "V" + i); // 不在队列中的游客都已上车
+                assertTrue(index.hasRidden("V" + i, ride), "V" + i);
+            }
+        }
+    }
+
+    @Test
+    void visitorIndexSurvivesListenerChange() {
+        Park park = new Park(1);
+        Ride ride = ride(4);
+        assertTrue(park.addRide(ride, 100));
+        ride.setEventListener(new RideEventListener() {}); // 例如演示菜单换成控制台监听器
+        ride.addVisitorToQueue(new Visitor("游客", 20, "1", "V1", false));
+        ride.runOneCycle();
+        assertTrue(park.getVisitorIndex().hasRidden("V1", ride));
+
+        park.removeRide(ride);
+        ride.addVisitorToQueue(new Visitor("游客", 20, "1", "V2", false));
+        ride.runOneCycle();
+        assertEquals(0, park.getVisitorIndex().visitCount("V2")); // 移除后不再写入
+        park.shutdown();
+    }
+
+    @Test
+    void genericRideCountsVisitorsOncePerCycle() throws InterruptedException {
+        Ride delegate = ride(2);
+        for (int i = 0; i < 20; i++) {
+            delegate.addVisitorToQueue(new Visitor("游客" + i, 20, "1", "V" + i, false));
+        }
+        AtomicInteger counts = new AtomicInteger();
+        // 代理不是Ride，调度器只能走通用接口路径
+        RideInterface generic = (RideInterface) Proxy.newProxyInstance(RideInterface.class.getClassLoader(),
+                new Class<?>[]{RideInterface.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("numberOfVisitors")) {
+                        counts.incrementAndGet();
+                    }
+                    try {
+                        return method.invoke(delegate, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        Park park = new Park(1);
+        assertTrue(park.addRide(generic, 5));
+        park.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (delegate.getQueueSize() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        park.shutdown();
+        assertEquals(0, delegate.getQueueSize());
+        assertEquals(20, park.getTotalBoarded());
+        assertEquals(park.getTotalCycles() + 1, counts.get()); // 注册时统计一次，之后每个周期一次
+    }
+}
@@ -0,0 +1,136 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedHistoryStorageTest {
+    private static final long HOUR = 3_600_000L;
+    private static final Comparator<Visitor> BY_AGE = Comparator.comparingInt(Visitor::getAge);
+
+    private final AtomicLong now = new AtomicLong();
+
+    private PartitionedHistoryStorage storage() {
+        return new PartitionedHistoryStorage(ChronoUnit.HOURS, ZoneOffset.UTC, now::get);
+    }
+
+    private static List<String> rows(Iterable<Visitor> visitors) {
+        List<String> rows = new ArrayList<>();
+        for (Visitor visitor : visitors) {
+            rows.add(visitor.toString());
+        }
+        return rows;
+    }
+
+    private static List<String> rowsByIndex(HistoryStorage storage) {
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < storage.size(); i++) {
+            rows.add(storage.get(i).toString());
+        }
+        return rows;
+    }
+
+    // 每小时一个分区，年龄在各分区之间交错，只在分区内排序得不到全局顺序
+    private List<Visitor> fill(PartitionedHistoryStorage storage, int hours, int perHour) {
+        List<Visitor> added = new ArrayList<>();
+        int id = 0;
+        for (int h = 0; h < hours; h++) {
+            now.set(h * HOUR);
+            for (int i = 0; i < perHour; i++) {
+                Visitor visitor = new Visitor("游客" + id, (id * 7) % 23, "", "V" + id, false);
+                storage.add(visitor);
+                added.add(visitor);
+                id++;
+            }
+        }
+        return added;
+    }
+
+    @Test
+    void sortIsGlobalAndStableAcrossPartitions() {
+        PartitionedHistoryStorage storage = storage();
+        List<Visitor> expected = fill(storage, 4, 50);
+        storage.sort(BY_AGE);
+        expected.sort(BY_AGE);
+        assertEquals(rows(expected), rowsByIndex(storage));
+        assertEquals(rows(expected), rows(storage));
+
+        // 排序之后写入的记录按写入顺序排在后面
+        Visitor late = new Visitor("晚到", 1, "", "L1", false);
+        storage.add(late);
+        now.set(5 * HOUR);
+        Visitor later = new Visitor("更晚", 0, "", "L2", false);
+        storage.add(later);
+        expected.add(late);
+        expected.add(later);
+        assertEquals(rows(expected), rowsByIndex(storage));
+        assertEquals(rows(expected), rows(storage));
+    }
+
+    @Test
+    void expiringPartitionsKeepsTheSortedOrder() {
+        PartitionedHistoryStorage storage = storage();
+        List<Visitor> added = fill(storage, 3, 40);
+        storage.sort(BY_AGE);
+        now.set(3 * HOUR);
+        Visitor tail = new Visitor("晚到", 0, "", "L1", false);
+        storage.add(tail);
+
+        HistoryStorage.Snapshot before = storage.snapshot();
+        assertEquals(1, storage.expireBefore(HOUR).size());
+        List<Visitor> expected = new ArrayList<>(added.subList(40, 120));
+        expected.sort(BY_AGE);
+        expected.add(tail);
+        assertEquals(rows(expected), rowsByIndex(storage));
+        assertEquals(rows(expected), rows(storage));
+        assertEquals(121, before.size()); // 之前的快照不受影响
+
+        assertEquals(3, storage.expireBefore(4 * HOUR).size());
+        assertEquals(0, storage.size());
+        storage.add(tail);
+        assertEquals(List.of(tail.toString()), rows(storage));
+    }
+
+    @Test
+    void rideHistoryIndexAndViewsFollowExpiryAfterSort() {
+        PartitionedHistoryStorage storage = storage();
+        RideHistory history = new RideHistory();
+        history.migrateTo(storage);
+        for (int h = 0; h < 3; h++) {
+            now.set(h * HOUR);
+            history.add(new Visitor("游客" + h, 30 - h, "", "V" + h, false));
+            history.add(new Visitor("常客", 40, "", "R", false));
+        }
+        SortedHistoryView view = history.view("年龄", BY_AGE);
+        history.sort(BY_AGE);
+        assertEquals(3, history.rideCount("R"));
+
+        history.expirePartitions(HOUR);
+        assertEquals(4, history.size());
+        assertEquals(2, history.rideCount("R"));
+        assertFalse(history.containsId("V0"));
+        assertEquals(4, history.getView("年龄").size());
+        assertNotSame(view, history.getView("年龄"));
+        assertEquals("V2", history.get(0).getVisitorId());
+    }
+
+    @Test
+    void rollingRiderCountsUseThePartitionClock() {
+        Ride ride = new Ride("过山车", "刺激", new Employee("张三", 30, "1", "E1", "操作员"), 4);
+        now.set(10 * HOUR);
+        ride.enableHistoryPartitioning(ChronoUnit.HOURS, null, null, now::get);
+        for (int i = 0; i < 4; i++) {
+            ride.addVisitorToQueue(new Visitor("游客" + i, 20, "1", "V" + i, false));
+        }
+        ride.runOneCycle();
+        assertEquals(4, ride.getRidersInLast(60_000));
+        now.addAndGet(2 * HOUR); // 模拟时间前进两小时，一小时窗口内没有上车
+        assertEquals(0, ride.getRidersInLast(HOUR));
+        assertEquals(4, ride.getRidersInLast(3 * HOUR));
+    }
+}
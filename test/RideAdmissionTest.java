@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RideAdmissionTest {
+    private static Visitor visitor(int i) {
+        return new Visitor("游客" + i, 20, "138" + i, "V" + i, false);
+    }
+
+    @Test
+    void rejectPolicyRefusesVisitorsBeyondCapacity() {
+        Ride ride = new Ride("过山车", "刺激", new Employee("张三", 30, "1", "E1", "操作员"), 2);
+        ride.setQueueCapacity(3, AdmissionPolicy.REJECT);
+        int accepted = 0;
+        for (int i = 0; i < 5; i++) {
+            if (ride.offerVisitor(visitor(i))) {
+                accepted++;
+            }
+        }
+        assertEquals(3, accepted);
+        assertEquals(3, ride.getQueueSize());
+        assertEquals(2, ride.getRejectedCount());
+    }
+
+    @Test
+    void virtualQueueWorksOnRideWithoutMaxRider() {
+        Ride ride = new Ride(); // maxRider为0
+        List<ReturnTicket> tickets = new ArrayList<>();
+        ride.setEventListener(new RideEventListener() {
+            @Override
+            public void returnTicketIssued(Ride r, ReturnTicket ticket) {
+                tickets.add(ticket);
+            }
+        });
+        ride.setQueueCapacity(1, AdmissionPolicy.VIRTUAL_QUEUE);
+        assertTrue(ride.offerVisitor(visitor(0)));
+        assertTrue(ride.offerVisitor(visitor(1)));
+        assertTrue(ride.offerVisitor(visitor(2)));
+        assertEquals(1, ride.getQueueSize());
+        assertEquals(2, ride.getVirtualQueueSize());
+        assertEquals(2, tickets.size());
+        assertEquals(1, tickets.get(0).getEstimatedReturnCycle());
+        assertEquals(2, tickets.get(1).getEstimatedReturnCycle());
+    }
+
+    @Test
+    void ticketHoldersAreQueuedInOrderWhenSpaceFrees() {
+        Ride ride = new Ride("过山车", "刺激", new Employee("张三", 30, "1", "E1", "操作员"), 1);
+        ride.setQueueCapacity(1, AdmissionPolicy.VIRTUAL_QUEUE);
+        for (int i = 0; i < 3; i++) {
+            ride.offerVisitor(visitor(i));
+        }
+        ride.runOneCycle();
+        assertEquals(1, ride.getQueueSize());
+        assertEquals(1, ride.getVirtualQueueSize());
+        assertEquals(0, ride.positionOf("V1"));
+    }
+}
@@ -0,0 +1,34 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RideHistoryImportTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void legacyImportSharesRegisteredVisitors() throws IOException {
+        Visitor first = new Visitor("张三", 30, "13900000000", "V1", false);
+        Visitor second = new Visitor("李四", 25, "13900000001", "V2", true);
+        Path file = dir.resolve("history.csv");
+        Files.write(file, List.of(first.toCsvString(), "", second.toCsvString(), first.toCsvString()),
+                StandardCharsets.UTF_8);
+
+        Ride ride = new Ride("过山车", "刺激", null, 4);
+        VisitorRegistry registry = new VisitorRegistry();
+        ride.setVisitorRegistry(registry);
+        ride.importRideHistory(file.toString());
+
+        assertEquals(3, ride.getHistorySize());
+        assertEquals(3, registry.getLookups());
+        assertEquals(1, registry.getHits()); // 第二次出现的V1换成了已登记的对象
+        assertEquals(2, registry.size());
+    }
+}
@@ -0,0 +1,141 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RideJournalTest {
+    private static final int VISITORS = 3000;
+
+    @TempDir
+    Path dir;
+
+    private static Ride newRide() {
+        return new Ride("过山车", "刺激", new Employee("张三", 30, "1", "E1", "操作员"), 4, true);
+    }
+
+    private static List<String> rows(List<Visitor> visitors) {
+        return visitors.stream().map(Visitor::toString).collect(Collectors.toList());
+    }
+
+    private static List<String> failures(Ride ride) {
+        List<String> failures = new ArrayList<>();
+        ride.setEventListener(new RideEventListener() {
+            @Override
+            public void operationFailed(Ride r, RideFailure failure, String detail) {
+                if (failure == RideFailure.JOURNAL_FAILED) {
+                    failures.add(detail);
+                }
+            }
+        });
+        return failures;
+    }
+
+    @Test
+    void concurrentOperationsRecoverAfterCrash() throws InterruptedException {
+        Ride ride = newRide();
+        ride.enableFastPassPriority(2, 1);
+        assertEquals(0, ride.enableJournal(dir.toString(), MappedHistoryStorage.FlushPolicy.GROUP_COMMIT));
+
+        AtomicInteger nextId = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            long seed = t;
+            threads.add(new Thread(() -> {
+                Random random = new Random(seed);
+                int id;
+                while ((id = nextId.getAndIncrement()) < VISITORS) {
+                    ride.addVisitorToQueue(new Visitor("游客" + id, 20, "", "V" + id, false));
+                    switch (random.nextInt(6)) {
+                        case 0:
+                            ride.removeVisitor("V" + random.nextInt(id + 1));
+                            break;
+                        case 1:
+                            ride.moveToFastPass("V" + random.nextInt(id + 1));
+                            break;
+                        case 2:
+                            ride.removeVisitorFromQueue();
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }));
+        }
+        threads.add(new Thread(() -> {
+            while (nextId.get() < VISITORS) {
+                ride.runOneCycle();
+            }
+        }));
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // 不关闭日志，模拟进程崩溃后在同一目录恢复
+        Ride recovered = newRide();
+        List<String> failures = failures(recovered);
+        assertTrue(recovered.enableJournal(dir.toString(), MappedHistoryStorage.FlushPolicy.GROUP_COMMIT) > 0);
+        assertEquals(List.of(), failures);
+
+        assertEquals(ride.getNumOfCycles(), recovered.getNumOfCycles());
+        assertEquals(ride.numberOfVisitors(), recovered.numberOfVisitors());
+        assertEquals(rows(ride.historyPage(0, VISITORS)), rows(recovered.historyPage(0, VISITORS)));
+        assertEquals(ride.getQueueSize(), recovered.getQueueSize());
+        for (int i = 0; i < VISITORS; i++) {
+            assertEquals(ride.positionOf("V" + i), recovered.positionOf("V" + i), "V" + i);
+        }
+        recovered.closeJournal();
+    }
+
+    @Test
+    void damagedSegmentStopsReplayAndIsReported() throws IOException {
+        RideJournal first = RideJournal.open(dir, 0, MappedHistoryStorage.FlushPolicy.GROUP_COMMIT);
+        for (int i = 0; i < 10; i++) {
+            first.enqueue(new Visitor("游客" + i, 20, "", "V" + i, false));
+        }
+        first.close();
+        RideJournal second = RideJournal.open(dir, 1, MappedHistoryStorage.FlushPolicy.GROUP_COMMIT);
+        for (int i = 10; i < 15; i++) {
+            second.enqueue(new Visitor("游客" + i, 20, "", "V" + i, false));
+        }
+        second.close();
+
+        // 破坏第一个日志中第6条记录的内容
+        Path file = dir.resolve("journal-0.log");
+        byte[] data = Files.readAllBytes(file);
+        ByteBuffer in = ByteBuffer.wrap(data);
+        int position = 8;
+        for (int i = 0; i < 5; i++) {
+            position += 8 + in.getInt(position);
+        }
+        data[position + 9] ^= 0x5A;
+        Files.write(file, data);
+
+        Ride ride = newRide();
+        List<String> failures = failures(ride);
+        assertEquals(5, ride.enableJournal(dir.toString(), MappedHistoryStorage.FlushPolicy.GROUP_COMMIT));
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0).contains("journal-0.log"));
+        assertEquals(5, ride.getQueueSize());
+        assertEquals(4, ride.positionOf("V4"));
+        assertEquals(-1, ride.positionOf("V10"));
+
+        // 恢复后的快照删除旧日志，但隔离的日志保留下来
+        assertTrue(ride.journalSnapshot());
+        assertTrue(Files.exists(dir.resolve("journal-0.log.damaged")));
+        assertTrue(Files.exists(dir.resolve("journal-1.log.damaged")));
+        assertFalse(Files.exists(dir.resolve("journal-0.log")));
+        assertFalse(Files.exists(dir.resolve("journal-1.log")));
+        ride.closeJournal();
+    }
+}
@@ -0,0 +1,29 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RideMetricsTest {
+    @Test
+    void loadFactorIsRidersOverCapacity() {
+        Ride ride = new Ride("过山车", "刺激", new Employee("张三", 30, "1", "E1", "操作员"), 4);
+        for (int i = 0; i < 6; i++) {
+            ride.addVisitorToQueue(new Visitor("游客" + i, 20, "1", "V" + i, false));
+        }
+        ride.runOneCycle();
+        ride.runOneCycle();
+        RideMetrics.Snapshot snapshot = ride.getMetricsSnapshot();
+        assertEquals(2, snapshot.getCycles());
+        assertEquals(6, snapshot.getBoarded());
+        assertEquals(0.5, snapshot.getLastLoadFactor(), 1e-9);
+        assertEquals(0.75, snapshot.getAverageLoadFactor(), 1e-9);
+    }
+
+    @Test
+    void zeroCapacityCycleGivesZeroLoadFactor() {
+        RideMetrics metrics = new RideMetrics();
+        metrics.recordCycle(0, 0, System.nanoTime());
+        RideMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(0.0, snapshot.getLastLoadFactor());
+        assertEquals(0.0, snapshot.getAverageLoadFactor());
+    }
+}
@@ -0,0 +1,49 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VisitorRideIndexTest {
+    @Test
+    void visitsAreKeptPerVisitorInOrder() {
+        VisitorRideIndex index = new VisitorRideIndex();
+        Ride coaster = new Ride("过山车", "刺激", null, 4);
+        Ride wheel = new Ride("摩天轮", "观光", null, 4);
+        // 足够多的游客，各段的哈希表都会扩容
+        for (int i = 0; i < 20_000; i++) {
+            index.record(coaster, "V" + i, 1, 1000L + i);
+        }
+        index.record(wheel, "V7", 2, 5000L);
+        index.record(coaster, "V7", 3, 6000L);
+        index.record(wheel, null, 1, 7000L);
+
+        assertEquals(20_003, index.getEventCount());
+        assertEquals(20_001, index.getVisitorCount());
+        List<RideVisit> visits = index.visitsOf("V7");
+        assertEquals(3, visits.size());
+        assertEquals(List.of(1, 2, 3), visits.stream().map(RideVisit::getCycle).toList());
+        assertSame(wheel, visits.get(1).getRide());
+        assertEquals(List.of(coaster, wheel), index.ridesOf("V7"));
+        assertTrue(index.hasRidden("V7", wheel));
+        assertFalse(index.hasRidden("V8", wheel));
+        assertEquals(1, index.visitCount(null));
+        assertEquals(0, index.visitCount("V20000"));
+        assertTrue(index.visitsOf("V20000").isEmpty());
+    }
+
+    @Test
+    void removedRideIsNoLongerReferenced() {
+        VisitorRideIndex index = new VisitorRideIndex();
+        Ride coaster = new Ride("过山车", "刺激", null, 4);
+        index.record(coaster, "V1", 1, 1000L);
+        index.removeRide(coaster);
+
+        RideVisit visit = index.visitsOf("V1").get(0);
+        assertNull(visit.getRide());
+        assertEquals(coaster.getRideId(), visit.getRideId());
+        assertEquals("过山车", visit.getRideName());
+        assertTrue(index.ridesOf("V1").isEmpty());
+        assertTrue(index.hasRidden("V1", coaster));
+    }
+}